@@ -4,8 +4,8 @@ import java.io.PrintWriter;
 
 import org.box.metadata.cli.annotation.CLIConfiguration;
 import org.box.metadata.cli.exception.ParseException;
-import org.box.metadata.cli.impl.DefaultConfigurationModel;
 import org.box.metadata.cli.impl.MetaCommandLineParser;
+import org.box.metadata.cli.impl.ModelCache;
 import org.box.metadata.cli.impl.MetaCommandLineParser.ParserType;
 import org.box.metadata.cli.shell.exception.TerminatedException;
 import org.box.metadata.cli.shell.impl.ConsoleShell;
@@ -22,7 +22,13 @@ import org.box.metadata.cli.util.HelpFormatter;
  * 
  * </p>
  * 
+ * <p>
+ * Compiled models are taken from {@link ModelCache}, so repeated calls
+ * for the same configuration class don't compile it again.
+ * </p>
+ * 
  * @see CLIConfiguration
+ * @see ModelCache
  * 
  * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
  * 
@@ -44,7 +50,7 @@ public final class MetaCli {
 	 */
 	public static <T> T parse(Class<T> cfgCalss, String[] args)
 			throws ParseException {
-		return new MetaCommandLineParser<T>(cfgCalss).parse(args);
+		return parse(cfgCalss, args, ParserType.GNU_PARSER);
 	}
 
 	/**
@@ -64,7 +70,7 @@ public final class MetaCli {
 	 */
 	public static <T> T parse(Class<T> cfgCalss, String[] args,  ParserType parserType) 
 			throws ParseException {
-		return new MetaCommandLineParser<T>(cfgCalss, parserType).parse(args);
+		return new MetaCommandLineParser<T>(ModelCache.getModel(cfgCalss), parserType).parse(args);
 	}
 
 	/**
@@ -74,7 +80,7 @@ public final class MetaCli {
 	 *            - the class of the configuration
 	 */
 	public static void printHelp(Class<?> cfgClass) {
-		new HelpFormatter(new DefaultConfigurationModel(cfgClass)).printHelp();
+		new HelpFormatter(ModelCache.getModel(cfgClass)).printHelp();
 	}
 
 	public static void printHelp(ParseException e, Class<?> cfgClass) {
@@ -82,7 +88,7 @@ public final class MetaCli {
 	}
 	
 	public static void printHelp(ParseException e, Class<?> cfgClass, PrintWriter out) {
-		HelpFormatter formatter = new HelpFormatter(new DefaultConfigurationModel(cfgClass));
+		HelpFormatter formatter = new HelpFormatter(ModelCache.getModel(cfgClass));
 
 		if (e != null) {
 			String s = e.getMessage();
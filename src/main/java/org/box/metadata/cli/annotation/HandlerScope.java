@@ -0,0 +1,74 @@
+package org.box.metadata.cli.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.box.metadata.cli.shell.CommandHandler;
+import org.box.metadata.cli.shell.Shell;
+
+/**
+ * <p>
+ * Declares a lifecycle scope of a {@link CommandHandler} class, i.e. how
+ * long the {@link Shell} keeps an instance of the handler. A handler which
+ * is not annotated is created for each execution of a command.
+ * </p>
+ *
+ * <p>
+ * A handler kept by the shell can hold a warmed-up state: connection pools,
+ * caches, compiled templates. If the handler implements {@link AutoCloseable}
+ * it's closed when the shell exits, or after the execution for the
+ * {@link Scope#EXECUTION} scope.
+ * </p>
+ *
+ * <pre>
+ * &#064;HandlerScope(Scope.SHELL)
+ * public class QueryHandler implements CommandHandler&lt;DbConfiguration&gt;, AutoCloseable {
+ * 	...
+ * }
+ * </pre>
+ *
+ * @see Command#handlers()
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface HandlerScope {
+
+	enum Scope {
+		/**
+		 * A new instance for each execution
+		 */
+		EXECUTION,
+
+		/**
+		 * A single instance per shell. The instance is shared by all executions,
+		 * so it must be thread-safe if commands run concurrently.
+		 */
+		SHELL,
+
+		/**
+		 * An instance is taken out of a pool of the shell for an execution and
+		 * returned back after. So an instance is used by one execution at a time.
+		 */
+		POOLED
+	}
+
+	/**
+	 * @return the scope of the handler
+	 */
+	Scope value() default Scope.EXECUTION;
+
+	/**
+	 * {@link Scope#POOLED} only. A maximum number of idle instances kept
+	 * in the pool, extra instances are closed on return.
+	 *
+	 * @return a size of the pool
+	 */
+	int poolSize() default 4;
+}
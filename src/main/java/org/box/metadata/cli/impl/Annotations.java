@@ -0,0 +1,146 @@
+package org.box.metadata.cli.impl;
+
+import java.lang.annotation.Annotation;
+import java.util.Arrays;
+
+import org.box.metadata.cli.annotation.Argument;
+import org.box.metadata.cli.annotation.Command;
+import org.box.metadata.cli.shell.CommandHandler;
+
+/**
+ * <p>
+ * Instances of the model annotations, used by generated {@link ModelCompiler}s
+ * in place of the ones read out of the configuration class by reflection.
+ * </p>
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public final class Annotations {
+
+	private Annotations() {
+	}
+
+	/**
+	 * Creates an instance of {@link Command}
+	 */
+	public static Command command(final String name, final String description,
+			final Class<? extends CommandHandler<?>>[] handlers) {
+		return new Command() {
+
+			@Override
+			public Class<? extends Annotation> annotationType() {
+				return Command.class;
+			}
+
+			@Override
+			public String name() {
+				return name;
+			}
+
+			@Override
+			public String description() {
+				return description;
+			}
+
+			@Override
+			public Class<? extends CommandHandler<?>>[] handlers() {
+				return handlers.clone();
+			}
+
+			@Override
+			public boolean equals(Object obj) {
+				if (this == obj)
+					return true;
+				if (!(obj instanceof Command))
+					return false;
+				Command other = (Command) obj;
+				return name.equals(other.name())
+						&& description.equals(other.description())
+						&& Arrays.equals(handlers, other.handlers());
+			}
+
+			@Override
+			public int hashCode() {
+				// as specified by Annotation.hashCode()
+				return member("name", name.hashCode())
+						+ member("description", description.hashCode())
+						+ member("handlers", Arrays.hashCode(handlers));
+			}
+
+			@Override
+			public String toString() {
+				return "@" + Command.class.getName() + "(name=" + name
+						+ ", description=" + description
+						+ ", handlers=" + Arrays.toString(handlers) + ")";
+			}
+		};
+	}
+
+	/**
+	 * Creates an instance of {@link Argument}
+	 */
+	public static Argument argument(final int index, final String name, final boolean required) {
+		return new Argument() {
+
+			@Override
+			public Class<? extends Annotation> annotationType() {
+				return Argument.class;
+			}
+
+			@Override
+			public int index() {
+				return index;
+			}
+
+			@Override
+			public String name() {
+				return name;
+			}
+
+			@Override
+			public boolean required() {
+				return required;
+			}
+
+			@Override
+			public boolean equals(Object obj) {
+				if (this == obj)
+					return true;
+				if (!(obj instanceof Argument))
+					return false;
+				Argument other = (Argument) obj;
+				return index == other.index()
+						&& name.equals(other.name())
+						&& required == other.required();
+			}
+
+			@Override
+			public int hashCode() {
+				// as specified by Annotation.hashCode()
+				return member("index", Integer.valueOf(index).hashCode())
+						+ member("name", name.hashCode())
+						+ member("required", Boolean.valueOf(required).hashCode());
+			}
+
+			@Override
+			public String toString() {
+				return "@" + Argument.class.getName() + "(index=" + index
+						+ ", name=" + name + ", required=" + required + ")";
+			}
+		};
+	}
+
+	private static int member(String name, int valueHash) {
+		return (127 * name.hashCode()) ^ valueHash;
+	}
+
+	/**
+	 * Creates an array of handler classes, so generated code
+	 * avoids generic array creation
+	 */
+	@SuppressWarnings("unchecked")
+	public static Class<? extends CommandHandler<?>>[] handlers(Class<?>... handlers) {
+		return (Class<? extends CommandHandler<?>>[]) handlers;
+	}
+}
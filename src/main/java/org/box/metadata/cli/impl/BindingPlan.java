@@ -0,0 +1,631 @@
+package org.box.metadata.cli.impl;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.cli.CommandLine;
+import org.box.metadata.cli.annotation.Argument;
+import org.box.metadata.cli.annotation.Arguments;
+import org.box.metadata.cli.annotation.CLIConfiguration;
+import org.box.metadata.cli.annotation.Command;
+import org.box.metadata.cli.annotation.Option;
+import org.box.metadata.cli.exception.InvalidConfigurationException;
+import org.box.metadata.cli.exception.ParseException;
+
+/**
+ * <p>
+ * An immutable, precompiled plan of value injection for a
+ * {@link CLIConfiguration} class or a {@link Command} type.
+ * </p>
+ *
+ * <p>
+ * The plan is built once per class during model compilation: annotated
+ * fields are resolved, the option keys and argument indexes are read out
+ * of the annotations and every field gets an {@link Accessor}. Executing
+ * the plan doesn't touch java reflection or annotation proxies.
+ * </p>
+ *
+ * <p>
+ * Plans are compiled by reflection via {@link #BindingPlan(Class)} or
+ * assembled from generated binders (see the
+ * <code>org.box.metadata.cli.processor</code> package) via
+ * {@link #BindingPlan(Class, Instantiator, FieldBinding[], FieldBinding[])}.
+ * </p>
+ *
+ * @see CommandCompile
+ * @see MetaCommandLineParser
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public final class BindingPlan {
+
+	private static final MethodType SETTER_TYPE =
+			MethodType.methodType(void.class, Object.class, Object.class);
+
+	private static final MethodType CONSTRUCTOR_TYPE =
+			MethodType.methodType(Object.class);
+
+	private static final FieldBinding[] NO_BINDINGS = new FieldBinding[0];
+
+	/**
+	 * A kind of the field binding
+	 */
+	public enum Kind {
+		/** an {@link Option} without arguments */
+		FLAG,
+		/** an {@link Option} with an argument */
+		OPTION,
+		/** an enumerated {@link Argument} */
+		ARGUMENT,
+		/** non-enumerated {@link Arguments} */
+		ARGUMENTS,
+		/** a {@link Command} field */
+		COMMAND
+	}
+
+	/**
+	 * Writes a value into a field of the target object
+	 */
+	public interface Accessor {
+
+		void set(Object target, Object value) throws Exception;
+	}
+
+	/**
+	 * Writes a primitive value into a field of the target object without
+	 * boxing. Only the method matching the field type is called.
+	 *
+	 * @see ValueConverter
+	 */
+	public interface PrimitiveAccessor extends Accessor {
+
+		void setBoolean(Object target, boolean value) throws Exception;
+
+		void setByte(Object target, byte value) throws Exception;
+
+		void setShort(Object target, short value) throws Exception;
+
+		void setInt(Object target, int value) throws Exception;
+
+		void setLong(Object target, long value) throws Exception;
+
+		void setFloat(Object target, float value) throws Exception;
+
+		void setDouble(Object target, double value) throws Exception;
+	}
+
+	/**
+	 * Creates a new instance of a class
+	 */
+	public interface Instantiator {
+
+		Object newInstance() throws Exception;
+	}
+
+	/**
+	 * A single field binding of the plan
+	 */
+	public static final class FieldBinding {
+
+		private final Kind kind;
+		private final Class<?> type;
+		private final Accessor accessor;
+		private final String shortName;
+		private final String fullName;
+		private final int index;
+		private final String name;
+		private final ValueConverter converter;
+
+		FieldBinding(Kind kind, Class<?> type, Accessor accessor,
+				String shortName, String fullName, int index, String name) {
+			this.kind = kind;
+			this.type = type;
+			this.accessor = accessor;
+			this.shortName = shortName;
+			this.fullName = fullName;
+			this.index = index;
+			this.name = name;
+			this.converter = ValueConverter.of(type);
+		}
+
+		public Kind getKind() {
+			return kind;
+		}
+
+		/**
+		 * The type of the bound field
+		 *
+		 * @return a class
+		 */
+		public Class<?> getType() {
+			return type;
+		}
+
+		public String getShortName() {
+			return shortName;
+		}
+
+		public String getFullName() {
+			return fullName;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Injects a value of the option into the target. Flags take
+		 * <code>true</code> regardless of the value.
+		 */
+		void inject(Object target, String key, String value) throws ParseException {
+			try {
+				if (kind == Kind.OPTION)
+					converter.inject(accessor, target, value, key, null);
+				else if (type == boolean.class && accessor instanceof PrimitiveAccessor)
+					((PrimitiveAccessor) accessor).setBoolean(target, true);
+				else
+					accessor.set(target, Boolean.TRUE);
+			} catch (ParseException e) {
+				throw e;
+			} catch (RuntimeException e) {
+				throw new InvalidConfigurationException(e.getMessage());
+			} catch (Exception e) {
+				throw new InvalidConfigurationException(e);
+			}
+		}
+
+		/**
+		 * Injects a value of the enumerated argument into the target
+		 */
+		void injectArgument(Object target, String value) throws ParseException {
+			try {
+				converter.inject(accessor, target, value, null, name);
+			} catch (ParseException e) {
+				throw e;
+			} catch (RuntimeException e) {
+				throw new InvalidConfigurationException(e.getMessage());
+			} catch (Exception e) {
+				throw new InvalidConfigurationException(e);
+			}
+		}
+
+		void set(Object target, Object value) {
+			try {
+				accessor.set(target, value);
+			} catch (RuntimeException e) {
+				throw new InvalidConfigurationException(e.getMessage());
+			} catch (Exception e) {
+				throw new InvalidConfigurationException(e);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "FieldBinding [kind=" + kind + ", type=" + type.getName()
+					+ (name != null ? ", name=" + name : "")
+					+ (shortName != null ? ", shortName=" + shortName : "") + "]";
+		}
+	}
+
+	/**
+	 * Passes exceptions and errors of a method handle through as is,
+	 * anything else thrown by the handle is wrapped.
+	 */
+	private static Exception rethrow(Throwable e) {
+		if (e instanceof Error)
+			throw (Error) e;
+		if (e instanceof Exception)
+			return (Exception) e;
+		return new IllegalStateException(e);
+	}
+
+	/**
+	 * {@link Accessor} over a field setter handle
+	 */
+	private static final class HandleAccessor implements Accessor {
+
+		private final MethodHandle setter;
+
+		HandleAccessor(MethodHandle setter) {
+			this.setter = setter;
+		}
+
+		@Override
+		public void set(Object target, Object value) throws Exception {
+			try {
+				setter.invokeExact(target, value);
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		}
+	}
+
+	/**
+	 * {@link PrimitiveAccessor} over setter handles of a primitive field,
+	 * each <code>setXxx</code> is only valid for a field of that type
+	 */
+	private static final class PrimitiveHandleAccessor implements PrimitiveAccessor {
+
+		private final MethodHandle setter;
+		private final MethodHandle exact;
+
+		PrimitiveHandleAccessor(MethodHandle setter, MethodHandle exact) {
+			this.setter = setter;
+			this.exact = exact;
+		}
+
+		@Override
+		public void set(Object target, Object value) throws Exception {
+			try {
+				setter.invokeExact(target, value);
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		}
+
+		@Override
+		public void setBoolean(Object target, boolean value) throws Exception {
+			try {
+				exact.invokeExact(target, value);
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		}
+
+		@Override
+		public void setByte(Object target, byte value) throws Exception {
+			try {
+				exact.invokeExact(target, value);
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		}
+
+		@Override
+		public void setShort(Object target, short value) throws Exception {
+			try {
+				exact.invokeExact(target, value);
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		}
+
+		@Override
+		public void setInt(Object target, int value) throws Exception {
+			try {
+				exact.invokeExact(target, value);
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		}
+
+		@Override
+		public void setLong(Object target, long value) throws Exception {
+			try {
+				exact.invokeExact(target, value);
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		}
+
+		@Override
+		public void setFloat(Object target, float value) throws Exception {
+			try {
+				exact.invokeExact(target, value);
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		}
+
+		@Override
+		public void setDouble(Object target, double value) throws Exception {
+			try {
+				exact.invokeExact(target, value);
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		}
+	}
+
+	/**
+	 * {@link Instantiator} over a constructor handle
+	 */
+	private static final class HandleInstantiator implements Instantiator {
+
+		private final Class<?> type;
+		private final MethodHandle constructor;
+
+		HandleInstantiator(Class<?> type, MethodHandle constructor) {
+			this.type = type;
+			this.constructor = constructor;
+		}
+
+		@Override
+		public Object newInstance() throws Exception {
+			if (constructor == null)
+				throw new InvalidConfigurationException(
+						"No accessible default constructor: " + type.getName());
+			try {
+				return (Object) constructor.invokeExact();
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		}
+	}
+
+	private final Class<?> type;
+	private final Instantiator instantiator;
+	private final FieldBinding[] options;
+	private final FieldBinding[] arguments;
+
+	/**
+	 * Compiles a new binding plan for the given class
+	 *
+	 * @param type
+	 * 			- a configuration or a command class
+	 *
+	 * @throws InvalidConfigurationException
+	 * 			if a field of the class cannot be accessed
+	 */
+	public BindingPlan(Class<?> type) throws InvalidConfigurationException {
+		this.type = type;
+
+		ArrayList<FieldBinding> options = new ArrayList<>();
+		ArrayList<FieldBinding> arguments = new ArrayList<>();
+		for (Field f : type.getDeclaredFields()) {
+			if (f.isAnnotationPresent(Option.class)) {
+				Option o = f.getAnnotation(Option.class);
+				options.add(option(o.shortName(), o.fullName(),
+						o.hasArguments(), f.getType(), accessor(f)));
+			}
+
+			if (f.isAnnotationPresent(Argument.class)) {
+				Argument a = f.getAnnotation(Argument.class);
+				arguments.add(argument(a.index(), a.name(), f.getType(), accessor(f)));
+			}
+
+			if (f.isAnnotationPresent(Arguments.class)) {
+				arguments.add(arguments(accessor(f)));
+			}
+		}
+
+		this.options = options.toArray(NO_BINDINGS);
+		this.arguments = arguments.toArray(NO_BINDINGS);
+		this.instantiator = instantiator(type);
+	}
+
+	/**
+	 * Assembles a binding plan from precompiled bindings, e.g. from a
+	 * generated binder.
+	 *
+	 * @param type
+	 * 			- a configuration or a command class
+	 * @param instantiator
+	 * 			- a factory of the class instances
+	 * @param options
+	 * 			- bindings of {@link Option} fields
+	 * @param arguments
+	 * 			- bindings of {@link Argument} and {@link Arguments} fields
+	 */
+	public BindingPlan(Class<?> type, Instantiator instantiator,
+			FieldBinding[] options, FieldBinding[] arguments) {
+		this.type = type;
+		this.instantiator = instantiator;
+		this.options = options.clone();
+		this.arguments = arguments.clone();
+	}
+
+	/**
+	 * Creates a binding of an {@link Option} field
+	 */
+	public static FieldBinding option(String shortName, String fullName,
+			boolean hasArguments, Class<?> type, Accessor accessor) {
+		return new FieldBinding(hasArguments ? Kind.OPTION : Kind.FLAG,
+				type, accessor, shortName, fullName, 0, null);
+	}
+
+	/**
+	 * Creates a binding of an {@link Argument} field
+	 */
+	public static FieldBinding argument(int index, String name,
+			Class<?> type, Accessor accessor) {
+		return new FieldBinding(Kind.ARGUMENT, type, accessor, null, null, index, name);
+	}
+
+	/**
+	 * Creates a binding of an {@link Arguments} field
+	 */
+	public static FieldBinding arguments(Accessor accessor) {
+		return new FieldBinding(Kind.ARGUMENTS, String[].class, accessor, null, null, 0, null);
+	}
+
+	/**
+	 * Creates a binding of a {@link Command} field
+	 */
+	public static FieldBinding command(Class<?> type, Accessor accessor) {
+		return new FieldBinding(Kind.COMMAND, type, accessor, null, null, 0, null);
+	}
+
+	/**
+	 * Creates a binding of the {@link Command} annotated field
+	 *
+	 * @param f
+	 * 			- a command field of a configuration class
+	 *
+	 * @return a new binding
+	 */
+	public static FieldBinding commandBinding(Field f) throws InvalidConfigurationException {
+		return command(f.getType(), accessor(f));
+	}
+
+	/**
+	 * Creates an {@link Accessor} of the field via reflection
+	 *
+	 * @param f
+	 * 			- a field
+	 *
+	 * @return a new accessor
+	 *
+	 * @throws InvalidConfigurationException
+	 * 			if the field cannot be accessed
+	 */
+	public static Accessor accessor(Field f) throws InvalidConfigurationException {
+		try {
+			f.setAccessible(true);
+			MethodHandle setter = MethodHandles.lookup().unreflectSetter(f);
+			if (f.getType().isPrimitive())
+				return new PrimitiveHandleAccessor(setter.asType(SETTER_TYPE), 
+						setter.asType(MethodType.methodType(void.class, Object.class, f.getType())));
+			return new HandleAccessor(setter.asType(SETTER_TYPE));
+		} catch (IllegalAccessException e) {
+			throw new InvalidConfigurationException(e);
+		}
+	}
+
+	/**
+	 * Creates an {@link Accessor} of the declared field via reflection
+	 *
+	 * @param type
+	 * 			- a class declaring the field
+	 * @param field
+	 * 			- a name of the field
+	 *
+	 * @return a new accessor
+	 *
+	 * @throws InvalidConfigurationException
+	 * 			if there is no such field or it cannot be accessed
+	 */
+	public static Accessor accessor(Class<?> type, String field)
+			throws InvalidConfigurationException {
+		try {
+			return accessor(type.getDeclaredField(field));
+		} catch (NoSuchFieldException e) {
+			throw new InvalidConfigurationException(e);
+		}
+	}
+
+	/**
+	 * Creates an {@link Instantiator} of the class which calls the default
+	 * constructor via reflection
+	 *
+	 * @param type
+	 * 			- a class to instantiate
+	 *
+	 * @return a new instantiator
+	 */
+	public static Instantiator instantiator(Class<?> type) {
+		MethodHandle constructor;
+		try {
+			Constructor<?> c = type.getDeclaredConstructor();
+			c.setAccessible(true);
+			constructor = MethodHandles.lookup().unreflectConstructor(c).asType(CONSTRUCTOR_TYPE);
+		} catch (NoSuchMethodException e) {
+			// reported on instantiation, the same way as Class.newInstance() does
+			constructor = null;
+		} catch (IllegalAccessException e) {
+			constructor = null;
+		} catch (SecurityException e) {
+			constructor = null;
+		}
+		return new HandleInstantiator(type, constructor);
+	}
+
+	/**
+	 * Creates a new instance of the plan's class via default constructor
+	 *
+	 * @return a new instance
+	 *
+	 * @throws InvalidConfigurationException
+	 * 			if the class has no accessible default constructor or
+	 * 			the constructor fails.
+	 */
+	public Object newInstance() throws InvalidConfigurationException {
+		try {
+			return instantiator.newInstance();
+		} catch (InvalidConfigurationException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new InvalidConfigurationException(e);
+		}
+	}
+
+	/**
+	 * Injects values of the Command Line into the given object.
+	 *
+	 * @param target
+	 *            - the instance of Application's configuration or a
+	 *            configuration's command
+	 * @param cl
+	 *            - CommandLine from delegated parser
+	 * @param populateArgs
+	 *            - populate arguments fields too, or just options
+	 *
+	 * @throws ParseException
+	 *             occurs if a value can't be casted to the field type.
+	 */
+	public void execute(Object target, CommandLine cl, boolean populateArgs)
+			throws ParseException {
+
+		for (FieldBinding b : options) {
+			String key = cl.hasOption(b.shortName) ? b.shortName
+					: cl.hasOption(b.fullName) ? b.fullName : null;
+			if (key != null)
+				b.inject(target, key, cl.getOptionValue(key));
+		}
+
+		if (populateArgs)
+			injectArguments(target, cl.getArgs());
+	}
+
+	/**
+	 * Injects positional arguments into the fields annotated by
+	 * {@link Argument} or {@link Arguments} of the given object.
+	 *
+	 * @param target
+	 *            - the instance of the plan's class
+	 * @param args
+	 *            - a list of non-option arguments
+	 *
+	 * @throws ParseException
+	 *             occurs if a value can't be casted to the field type.
+	 */
+	public void injectArguments(Object target, String[] args) throws ParseException {
+		for (FieldBinding b : arguments) {
+			if (b.kind == Kind.ARGUMENTS) {
+				b.set(target, args);
+			} else if (b.index <= args.length) {
+				b.injectArgument(target, args[b.index - 1]);
+			}
+		}
+	}
+
+	public Class<?> getType() {
+		return type;
+	}
+
+	public List<FieldBinding> getOptions() {
+		return Collections.unmodifiableList(Arrays.asList(options));
+	}
+
+	public List<FieldBinding> getArguments() {
+		return Collections.unmodifiableList(Arrays.asList(arguments));
+	}
+
+	@Override
+	public String toString() {
+		return "BindingPlan [type=" + type.getName() + ", options=" + options.length
+				+ ", arguments=" + arguments.length + "]";
+	}
+}
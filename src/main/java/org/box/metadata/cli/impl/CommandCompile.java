@@ -6,15 +6,43 @@ import java.util.Arrays;
 import org.apache.commons.cli.Options;
 import org.box.metadata.cli.annotation.Argument;
 import org.box.metadata.cli.annotation.Command;
+import org.box.metadata.cli.impl.BindingPlan.FieldBinding;
+import org.box.metadata.cli.util.CLIUtil;
 
 public class CommandCompile{
 	
+	/**
+	 * The parts compiled from the command type
+	 */
+	private static final class Parts {
+		
+		final Options cliOptions;
+		final Argument[] arguments;
+		final String argumentsSyntax;
+		final BindingPlan commandBinding;
+		final FieldBinding commandField;
+
+		Parts(Options cliOptions, Argument[] arguments, String argumentsSyntax,
+				BindingPlan commandBinding, FieldBinding commandField) {
+			this.cliOptions = cliOptions;
+			this.arguments = arguments;
+			this.argumentsSyntax = argumentsSyntax;
+			this.commandBinding = commandBinding;
+			this.commandField = commandField;
+		}
+	}
+	
 	private final Command orig;
 	private final Field field;
 	
-	private final Options cliOptions;
-	private final Argument[] arguments;
-	private final String argumentsSyntax;
+	private final BindingPlan cfgBinding;
+	
+	/** the root options to compile the parts over, for a lazy command only */
+	private final Options rootOptions;
+	
+	private volatile Parts parts;
+	
+	private volatile OptionTable optionTable;
 	
 	protected String[] split;
 
@@ -24,16 +52,98 @@ public class CommandCompile{
 			Options cliOptions, 
 			Argument[] arguments, 
 			String argumentsSyntax) {
+		this(orig, field, cliOptions, arguments, argumentsSyntax, 
+				new BindingPlan(field.getDeclaringClass()));
+	}
+
+	public CommandCompile(
+			Command orig, 
+			Field field, 
+			Options cliOptions, 
+			Argument[] arguments, 
+			String argumentsSyntax,
+			BindingPlan cfgBinding) {
+		this(orig, field, cliOptions, arguments, argumentsSyntax, cfgBinding, 
+				new BindingPlan(field.getType()), BindingPlan.commandBinding(field));
+	}
+
+	/**
+	 * Constructs a command from precompiled parts, e.g. by a generated
+	 * {@link ModelCompiler}.
+	 * 
+	 * @param field
+	 * 			- the command's field or <code>null</code> if it's unknown
+	 */
+	public CommandCompile(
+			Command orig, 
+			Field field, 
+			Options cliOptions, 
+			Argument[] arguments, 
+			String argumentsSyntax,
+			BindingPlan cfgBinding,
+			BindingPlan commandBinding,
+			FieldBinding commandField) {
 		
 		this.orig = orig;
 		this.field = field;
-		this.cliOptions = cliOptions;
-		this.arguments = arguments;
-		this.argumentsSyntax = argumentsSyntax;
+		this.cfgBinding = cfgBinding;
+		this.rootOptions = null;
+		this.parts = new Parts(cliOptions, arguments, argumentsSyntax, 
+				commandBinding, commandField);
 		
 		split = orig.name().trim().split("\\s+");
 	}
 
+	/**
+	 * Constructs a lazy command. Only the name is known, the options, 
+	 * arguments and binding of the command type are compiled from the 
+	 * field when the command is used first, e.g. matched or its help
+	 * is printed. An invalid command type is reported then too.
+	 * 
+	 * @param rootOptions
+	 * 			- the application options which the command's ones are
+	 * 			layered over
+	 */
+	public CommandCompile(
+			Command orig, 
+			Field field, 
+			Options rootOptions,
+			BindingPlan cfgBinding) {
+		
+		this.orig = orig;
+		this.field = field;
+		this.cfgBinding = cfgBinding;
+		this.rootOptions = rootOptions;
+		
+		split = orig.name().trim().split("\\s+");
+	}
+
+	private Parts parts() {
+		Parts p = parts;
+		if (p == null) {
+			synchronized (this) {
+				if ((p = parts) == null) {
+					Class<?> type = field.getType();
+					Options options = new LayeredOptions(rootOptions);
+					CLIUtil.createCLIOptions(options, type);
+					parts = p = new Parts(options, 
+							CLIUtil.collectArguments(type), 
+							CLIUtil.findArgumentsSyntax(type),
+							new BindingPlan(type), 
+							BindingPlan.commandBinding(field));
+				}
+			}
+		}
+		return p;
+	}
+
+	/**
+	 * Returns true if the options, arguments and binding are compiled
+	 */
+	public boolean isCompiled() {
+		return parts != null;
+	}
+
 	public Field getFeild() {
 		return field;
 	}
@@ -47,26 +157,77 @@ public class CommandCompile{
 	}
 
 	public Options getCLIOptions() {
-		return cliOptions;
+		return parts().cliOptions;
 	}
 	
 	public Argument[] getArguments() {
-		return arguments;
+		return parts().arguments;
 	}
 	
 	public String getArgumentsSyntax() {
-		return argumentsSyntax;
+		return parts().argumentsSyntax;
 	}
 	
+	/**
+	 * Returns the binding plan of the configuration class
+	 * which declares the command
+	 * 
+	 * @return a compiled binding plan
+	 */
+	public BindingPlan getCfgBinding() {
+		return cfgBinding;
+	}
+
+	/**
+	 * Returns the binding plan of the command type
+	 * 
+	 * @return a compiled binding plan
+	 */
+	public BindingPlan getCommandBinding() {
+		return parts().commandBinding;
+	}
+
+	/**
+	 * Instantiates the command type and sets it into the 
+	 * command's field of the given configuration
+	 * 
+	 * @param cfg
+	 * 			- an instance of configuration declaring the command
+	 * 
+	 * @return a new instance of the command
+	 */
+	public Object injectCommand(Object cfg) {
+		Parts p = parts();
+		Object command = p.commandBinding.newInstance();
+		p.commandField.set(cfg, command);
+		return command;
+	}
+
+	/**
+	 * Returns the option lookup table for {@link NativeParser}. 
+	 * The table is compiled on the first request.
+	 * 
+	 * @return an immutable option table
+	 */
+	OptionTable getOptionTable() {
+		OptionTable table = optionTable;
+		if (table == null)
+			optionTable = table = new OptionTable(getCLIOptions(), cfgBinding, getCommandBinding());
+		return table;
+	}
+
 	public String getFullAndShortName() {
 		return orig.name();
 	}
 
 	@Override
 	public String toString() {
-		return "CommandCompile [orig=" + getFullAndShortName() + ", cliOptions=" + cliOptions
-				+ ", arguments=" + Arrays.toString(arguments)
-				+ ", argumentsSyntax=" + argumentsSyntax + "]";
+		Parts p = parts;
+		if (p == null)
+			return "CommandCompile [orig=" + getFullAndShortName() + ", not compiled]";
+		return "CommandCompile [orig=" + getFullAndShortName() + ", cliOptions=" + p.cliOptions
+				+ ", arguments=" + Arrays.toString(p.arguments)
+				+ ", argumentsSyntax=" + p.argumentsSyntax + "]";
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,141 @@
+package org.box.metadata.cli.impl;
+
+import java.util.HashMap;
+
+/**
+ * <p>
+ * An immutable word trie of commands used by
+ * {@link DefaultConfigurationModel#findCommandForInput(String[])}.
+ * Each level of the trie is keyed by a case-folded word of a command
+ * name, so a lookup costs as many hash probes as there are words in
+ * the input, regardless of the number of commands.
+ * </p>
+ *
+ * <p>
+ * The longest command matching the beginning of the input wins. If
+ * several commands have the same name, the first added one is found.
+ * </p>
+ *
+ * @see DefaultConfigurationModel
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+final class CommandIndex {
+
+	private static final class Node {
+
+		HashMap<String, Node> children;
+
+		CommandCompile command;
+
+		/** a build which created the node, only it may modify the node */
+		final Object owner;
+
+		Node(Object owner) {
+			this.owner = owner;
+		}
+
+		Node(Object owner, Node copyFrom) {
+			this.owner = owner;
+			if (copyFrom.children != null)
+				children = new HashMap<>(copyFrom.children);
+			command = copyFrom.command;
+		}
+
+		Node child(String word) {
+			return children == null ? null : children.get(word);
+		}
+	}
+
+	static final CommandIndex EMPTY = new CommandIndex(new CommandCompile[0]);
+
+	private final Node root;
+
+	/**
+	 * Builds a new index
+	 *
+	 * @param commands
+	 * 			- commands in order of adding
+	 */
+	CommandIndex(CommandCompile[] commands) {
+		this(null, commands);
+	}
+
+	private CommandIndex(CommandIndex base, CommandCompile[] added) {
+		Object owner = new Object();
+		Node root = base == null ? new Node(owner) : new Node(owner, base.root);
+		for (CommandCompile cc : added) {
+			Node n = root;
+			for (String word : cc.split) {
+				String key = fold(word);
+				Node next = n.child(key);
+				if (next == null || next.owner != owner) {
+					// a new node, or a copy of a node shared with the base
+					next = next == null ? new Node(owner) : new Node(owner, next);
+					if (n.children == null)
+						n.children = new HashMap<>(4);
+					n.children.put(key, next);
+				}
+				n = next;
+			}
+			if (n.command == null)
+				n.command = cc;
+		}
+		this.root = root;
+	}
+
+	/**
+	 * Derives an index with the commands added. Only the nodes on
+	 * the paths of the added commands are copied, the rest of the trie
+	 * is shared with this index which stays unchanged.
+	 *
+	 * @param added
+	 * 			- commands in order of adding
+	 *
+	 * @return a new index
+	 */
+	CommandIndex with(CommandCompile[] added) {
+		return added.length == 0 ? this : new CommandIndex(this, added);
+	}
+
+	/**
+	 * Finds the longest command which name starts the input
+	 *
+	 * @param args
+	 * 			- the Command Line arguments
+	 *
+	 * @return a command or <code>null</code> if no one matches
+	 */
+	CommandCompile find(String[] args) {
+		CommandCompile found = null;
+		Node n = root;
+		for (int i = 0; i < args.length && n.children != null; i++) {
+			if ((n = n.child(fold(args[i]))) == null)
+				break;
+			if (n.command != null)
+				found = n.command;
+		}
+		return found;
+	}
+
+	/**
+	 * Folds the case of a word the same way as
+	 * {@link String#equalsIgnoreCase(String)} compares characters
+	 */
+	static String fold(String word) {
+		for (int i = 0; i < word.length(); i++) {
+			char c = word.charAt(i);
+			if (c != Character.toLowerCase(Character.toUpperCase(c)))
+				return foldFrom(word, i);
+		}
+		return word;
+	}
+
+	private static String foldFrom(String word, int from) {
+		char[] chars = word.toCharArray();
+		for (int i = from; i < chars.length; i++)
+			chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+		return new String(chars);
+	}
+}
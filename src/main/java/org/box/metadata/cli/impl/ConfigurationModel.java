@@ -31,5 +31,20 @@ public interface ConfigurationModel {
 
 	String getRootArgumentsSyntax();
 
+	/**
+	 * Returns the precompiled binding plan of the configuration class.
+	 * 
+	 * <p>
+	 * The plan is optional: if a model returns <code>null</code> the 
+	 * parser compiles one from the configuration class on the first 
+	 * use.
+	 * </p>
+	 * 
+	 * @return a binding plan or <code>null</code>
+	 */
+	default BindingPlan getRootBindingPlan() {
+		return null;
+	}
+
 
 }
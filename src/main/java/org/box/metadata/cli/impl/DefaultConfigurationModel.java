@@ -1,8 +1,6 @@
 package org.box.metadata.cli.impl;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Collection;
 import java.util.List;
 
 import org.apache.commons.cli.Options;
@@ -19,6 +17,14 @@ import org.box.metadata.cli.util.CLIUtil;
  * be used as a raw model with meta-data obtained from a differ type
  * of source, e.g.: xml, properties, composite configurations
  * (see AbstractShell)
+ * </p>
+ * 
+ * <p>
+ * The model is safe for concurrent use: its state is an immutable
+ * {@link ModelSnapshot} which a modification replaces by a derived one,
+ * so a reader never sees a half-updated model. The snapshot can be taken
+ * by {@link #snapshot()} and shared freely, e.g. by other shells.
+ * </p>
  * 
  * @see ShellCommandsModel
  * 
@@ -27,23 +33,9 @@ import org.box.metadata.cli.util.CLIUtil;
  */
 public class DefaultConfigurationModel implements ConfigurationModel {
 	
-	private static final Comparator<CommandCompile> COMMAND_COMPARATOR = 
-			new Comparator<CommandCompile>(){
-
-				@Override
-				public int compare(CommandCompile o1, CommandCompile o2) {
-					return o2.split.length - o1.split.length ;
-				}
-			};
-	
-	private final ArrayList<CommandCompile> commands = new ArrayList<CommandCompile>();
-	private transient boolean _needResort = true;
+	private volatile ModelSnapshot snapshot = ModelSnapshot.EMPTY;
 
-	private Argument[] argsArray;
-
-	private String rootArgumentsSyntax;
-
-	private Options rootCLIOptions;
+	private volatile boolean sealed;
 
 	public DefaultConfigurationModel() {
 	}
@@ -51,76 +43,122 @@ public class DefaultConfigurationModel implements ConfigurationModel {
 	public DefaultConfigurationModel(Class<?> cfgClass) {
 		CLIUtil.compileCommandsModel(this, cfgClass);
 	}
+
+	/**
+	 * @param lazy
+	 * 			- true to compile commands on demand, see 
+	 * 			{@link CLIUtil#compileCommandsModel(DefaultConfigurationModel, Class, boolean)}
+	 */
+	public DefaultConfigurationModel(Class<?> cfgClass, boolean lazy) {
+		CLIUtil.compileCommandsModel(this, cfgClass, lazy);
+	}
 	
+	/**
+	 * Creates a model sharing the state with the given one, 
+	 * the commands are not copied
+	 */
 	public DefaultConfigurationModel(ConfigurationModel copyFrom) {
-		commands.addAll(copyFrom.getCommands());
-		argsArray = copyFrom.getRootArguments();
-		rootArgumentsSyntax = copyFrom.getRootArgumentsSyntax();
-		rootCLIOptions = copyFrom.getRootCLIOptions();
+		snapshot = ModelSnapshot.of(copyFrom);
+	}
+
+	/**
+	 * Returns the current state of the model
+	 */
+	public ModelSnapshot snapshot() {
+		return snapshot;
 	}
 
 	@Override
 	public List<CommandCompile> getCommands() {
-		return Collections.unmodifiableList(commands);
+		return snapshot.getCommands();
 	}
 
-	public void addCommand(CommandCompile commandCompile) {
-		commands.add(commandCompile);
-		_needResort = true;
+	public synchronized void addCommand(CommandCompile commandCompile) {
+		checkNotSealed();
+		snapshot = snapshot.withCommand(commandCompile);
 	}
 	
-	public void addCommands(List<? extends CommandCompile> append) {
-		commands.addAll(append);
-		_needResort = true;
+	public synchronized void addCommands(List<? extends CommandCompile> append) {
+		checkNotSealed();
+		snapshot = snapshot.withCommands(append);
 	}
 
+	/**
+	 * Finds the longest command which name (case insensitive)
+	 * starts the given arguments.
+	 */
 	@Override
 	public CommandCompile findCommandForInput(String[] args) {
-		
-		if (_needResort)
-			Collections.sort(commands, COMMAND_COMPARATOR);
-		
-		for (CommandCompile _cc : commands) {
-//			if (_cc.split.length > args.length)
-//				break;
-			
-			if (CLIUtil.arrayStartsWith(args, _cc.split)) {
-				return _cc;
-			}
-		}
-		
-		return null;
+		return snapshot.findCommandForInput(args);
 	}
 
 	@Override
 	public Options getRootCLIOptions() {
-		return rootCLIOptions;
+		return snapshot.getRootCLIOptions();
 	}
 	
-	public void setRootCLIOptions(Options rootCLIOptions) {
-		this.rootCLIOptions = rootCLIOptions;
+	public synchronized void setRootCLIOptions(Options rootCLIOptions) {
+		checkNotSealed();
+		snapshot = snapshot.withRootCLIOptions(rootCLIOptions);
 	}
 
 	@Override
 	public Argument[] getRootArguments() {
-		return argsArray;
+		return snapshot.getRootArguments();
 	}
 
-	public void setRootArguments(Argument[] argsArray) {
-		this.argsArray = argsArray;
+	public synchronized void setRootArguments(Argument[] argsArray) {
+		checkNotSealed();
+		snapshot = snapshot.withRootArguments(argsArray);
 	}
 	
 	@Override
 	public String getRootArgumentsSyntax() {
-		return this.rootArgumentsSyntax;
+		return snapshot.getRootArgumentsSyntax();
 	}
 	
-	public void setRootArgumentsSyntax(String rootArgumentsSyntax) {
-		this.rootArgumentsSyntax = rootArgumentsSyntax;
+	public synchronized void setRootArgumentsSyntax(String rootArgumentsSyntax) {
+		checkNotSealed();
+		snapshot = snapshot.withRootArgumentsSyntax(rootArgumentsSyntax);
+	}
+
+	@Override
+	public BindingPlan getRootBindingPlan() {
+		return snapshot.getRootBindingPlan();
+	}
+
+	public synchronized void setRootBindingPlan(BindingPlan rootBindingPlan) {
+		checkNotSealed();
+		snapshot = snapshot.withRootBindingPlan(rootBindingPlan);
+	}
+
+	public synchronized void clearCommands() {
+		checkNotSealed();
+		snapshot = snapshot.withoutCommands();
+	}
+
+	public synchronized void removeCommands(Collection<? extends CommandCompile> removed) {
+		checkNotSealed();
+		snapshot = snapshot.withoutCommands(removed);
+	}
+
+	/**
+	 * Makes the model read-only. Any further modification throws 
+	 * {@link UnsupportedOperationException}. Sealed models are safe 
+	 * to share, e.g. via {@link ModelCache}.
+	 */
+	public void seal() {
+		sealed = true;
+		snapshot.buildIndex();
+	}
+
+	public boolean isSealed() {
+		return sealed;
 	}
 
-	public void clearCommands() {
-		commands.clear();
+	private void checkNotSealed() {
+		if (sealed)
+			throw new UnsupportedOperationException("The model is sealed");
 	}
 
 }
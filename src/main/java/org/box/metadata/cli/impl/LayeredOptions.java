@@ -0,0 +1,144 @@
+package org.box.metadata.cli.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.OptionGroup;
+import org.apache.commons.cli.Options;
+
+/**
+ * <p>
+ * Options of a command layered over the root options of the application.
+ * The root options are compiled once and shared by all commands, only the
+ * command's own options are added to a layer. The own options override the
+ * root ones with the same name.
+ * </p>
+ *
+ * <p>
+ * The root options must not be modified once shared. Parsers never write
+ * into them: commons-cli parsers add values to clones of the options.
+ * </p>
+ *
+ * @see org.box.metadata.cli.util.CLIUtil#compileCommandsModel(DefaultConfigurationModel, Class)
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public class LayeredOptions extends Options {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Options base;
+
+	/**
+	 * Creates an empty layer
+	 *
+	 * @param base
+	 * 			- the shared root options
+	 */
+	public LayeredOptions(Options base) {
+		this.base = base;
+	}
+
+	/**
+	 * The shared root options
+	 */
+	public Options getBase() {
+		return base;
+	}
+
+	/**
+	 * The options added to the layer, without the root ones
+	 */
+	public Collection<Option> getOwnOptions() {
+		return super.getOptions();
+	}
+
+	@Override
+	public Option getOption(String opt) {
+		Option o = super.getOption(opt);
+		return o != null ? o : base.getOption(opt);
+	}
+
+	@Override
+	public boolean hasOption(String opt) {
+		return super.hasOption(opt) || base.hasOption(opt);
+	}
+
+	@Override
+	public boolean hasShortOption(String opt) {
+		return super.hasShortOption(opt) || base.hasShortOption(opt);
+	}
+
+	@Override
+	public boolean hasLongOption(String opt) {
+		return super.hasLongOption(opt) || base.hasLongOption(opt);
+	}
+
+	@Override
+	public List<String> getMatchingOptions(String opt) {
+		List<String> own = super.getMatchingOptions(opt);
+		if (own.size() == 1 && super.hasLongOption(opt))
+			return own;
+
+		List<String> inherited = base.getMatchingOptions(opt);
+		if (inherited.isEmpty())
+			return own;
+		if (inherited.size() == 1 && base.hasLongOption(opt))
+			return inherited;
+		if (own.isEmpty())
+			return inherited;
+
+		ArrayList<String> matching = new ArrayList<>(own);
+		for (String name : inherited)
+			if (!matching.contains(name))
+				matching.add(name);
+		return matching;
+	}
+
+	/**
+	 * Returns the root options which are not overridden, then the own ones
+	 */
+	@Override
+	public Collection<Option> getOptions() {
+		Collection<Option> own = super.getOptions();
+		if (own.isEmpty())
+			return base.getOptions();
+
+		ArrayList<Option> options = new ArrayList<>();
+		for (Option o : base.getOptions())
+			if (!overridden(o))
+				options.add(o);
+		options.addAll(own);
+		return Collections.unmodifiableList(options);
+	}
+
+	@Override
+	public List<?> getRequiredOptions() {
+		List<?> inherited = base.getRequiredOptions();
+		if (inherited.isEmpty())
+			return super.getRequiredOptions();
+
+		ArrayList<Object> required = new ArrayList<>();
+		for (Object key : inherited)
+			// a key of a required option, or a required group
+			if (!(key instanceof String) || !super.hasOption((String) key))
+				required.add(key);
+		required.addAll(super.getRequiredOptions());
+		return required;
+	}
+
+	@Override
+	public OptionGroup getOptionGroup(Option opt) {
+		OptionGroup g = super.getOptionGroup(opt);
+		return g != null ? g : base.getOptionGroup(opt);
+	}
+
+	private boolean overridden(Option o) {
+		return (o.getOpt() != null && super.hasShortOption(o.getOpt()))
+				|| (o.getLongOpt() != null && super.hasLongOption(o.getLongOpt()));
+	}
+}
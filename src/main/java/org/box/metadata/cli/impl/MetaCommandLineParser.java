@@ -8,7 +8,6 @@ import org.box.metadata.cli.CommandLineParser;
 import org.box.metadata.cli.annotation.Argument;
 import org.box.metadata.cli.annotation.Arguments;
 import org.box.metadata.cli.annotation.CLIConfiguration;
-import org.box.metadata.cli.annotation.Option;
 import org.box.metadata.cli.exception.InvalidConfigurationException;
 import org.box.metadata.cli.exception.ParseException;
 import org.box.metadata.cli.shell.impl.AbstractShell;
@@ -54,6 +53,9 @@ import org.box.metadata.cli.util.CLIUtil;
  * AppConfiguration cfg = MetaCli.parse(args, AppConfiguration.class);
  * </pre>
  * 
+ * The parser is thread-safe, so a single instance can be shared by any 
+ * number of threads.
+ * 
  * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
  * 
  */
@@ -62,7 +64,7 @@ public class MetaCommandLineParser<T> implements CommandLineParser<T> {
 	/**
 	 * <p>
 	 * Enum of all out of box parsers supported by the Apache's commons-cli
-	 * library.
+	 * library and the {@link #NATIVE} one.
 	 * </p>
 	 * 
 	 * <p>
@@ -87,14 +89,34 @@ public class MetaCommandLineParser<T> implements CommandLineParser<T> {
 			public Parser createParser() {
 				return new org.apache.commons.cli.PosixParser();
 			}
+		}, //
+		/**
+		 * Single-pass parser with GNU-like syntax which injects values
+		 * straight into the configuration object. Has no commons-cli 
+		 * delegate, so {@link #createParser()} returns <code>null</code>.
+		 */
+		NATIVE() {
+			@Override
+			public Parser createParser() {
+				return null;
+			}
 		};//
 		
 		public abstract org.apache.commons.cli.Parser createParser();
 	}
 
+	/**
+	 * A delegate created by the parser type. Kept for subclasses only: 
+	 * commons-cli parsers are not thread-safe, so every call of 
+	 * {@link #parse(String[])} creates its own one.
+	 */
 	protected final org.apache.commons.cli.CommandLineParser delegate;
+	protected final ParserType parserType;
 	protected final ConfigurationModel model;
 	private final Class<?> cfgClass;
+	private final NativeParser nativeParser;
+
+	private volatile BindingPlan rootBindingPlan;
 
 	/**
 	 * Constructors a new instance with nested GnuParser inside.
@@ -106,7 +128,9 @@ public class MetaCommandLineParser<T> implements CommandLineParser<T> {
 	public MetaCommandLineParser(Class<T> cfgClass) {
 		this.model = new DefaultConfigurationModel(cfgClass);
 		this.cfgClass = cfgClass;
-		delegate = ParserType.GNU_PARSER.createParser();
+		this.parserType = ParserType.GNU_PARSER;
+		delegate = parserType.createParser();
+		nativeParser = null;
 	}
 
 	/**
@@ -121,12 +145,15 @@ public class MetaCommandLineParser<T> implements CommandLineParser<T> {
 	public MetaCommandLineParser(Class<T> cfgClass, ParserType parserType) {
 		this.model = new DefaultConfigurationModel(cfgClass);
 		this.cfgClass = cfgClass;
+		this.parserType = parserType;
 		delegate = parserType.createParser();
+		nativeParser = parserType == ParserType.NATIVE ? new NativeParser(this) : null;
 	}
 
 	/**
 	 * <p>
-	 * Protected parser initialization. Used by {@link AbstractShell} for 
+	 * Parser initialization with an already compiled model, e.g. from
+	 * {@link ModelCache}. Also used by {@link AbstractShell} for 
 	 * surrogate User Input processing.
 	 * </p>
 	 * 
@@ -136,10 +163,12 @@ public class MetaCommandLineParser<T> implements CommandLineParser<T> {
 	 * @param parserType
 	 * 				- one of the following {@link ParserType}
 	 */
-	protected MetaCommandLineParser(ConfigurationModel model, ParserType parserType) {
+	public MetaCommandLineParser(ConfigurationModel model, ParserType parserType) {
 		this.model = model;
-		delegate = parserType.createParser();
 		this.cfgClass = null;
+		this.parserType = parserType;
+		delegate = parserType.createParser();
+		nativeParser = parserType == ParserType.NATIVE ? new NativeParser(this) : null;
 	}
 
 	/*
@@ -148,13 +177,37 @@ public class MetaCommandLineParser<T> implements CommandLineParser<T> {
 	 * @see org.box.metadate.cli.CommandLineParser#parse(java.lang.String[])
 	 */
 	@Override
+	@SuppressWarnings("unchecked")
 	public T parse(String[] args) throws ParseException {
+		return (T) doParse(model.findCommandForInput(args), args);
+	}
 
+	/**
+	 * Parses the arguments for the given command and returns a new 
+	 * instance of the command's configuration class with injected values.
+	 * 
+	 * @param cmd
+	 * 				- a command found for the input or <code>null</code>
+	 * @param args
+	 * 				- the command line arguments including the command name
+	 * 
+	 * @return a new instance of the configuration
+	 * 
+	 * @throws ParseException
+	 * 				if the user's input is wrong
+	 */
+	protected Object doParse(CommandCompile cmd, String[] args) throws ParseException {
+
+		if (nativeParser != null)
+			return nativeParser.parse(cmd, args);
+
+		// commons-cli parsers keep the state of parsing inside,
+		// so the delegate is never shared between calls
+		org.apache.commons.cli.CommandLineParser delegate = parserType.createParser();
 		org.apache.commons.cli.CommandLine cl;
 
 		try {
 			Field cField = null;
-			CommandCompile cmd = model.findCommandForInput(args);
 			if (cmd != null) {
 				
 				cField = cmd.getFeild();
@@ -165,7 +218,7 @@ public class MetaCommandLineParser<T> implements CommandLineParser<T> {
 
 			checkArgumentsPopulation(cl, model);
 			
-			T obj = doCreateConfigurationObject(cmd, cField, cl);
+			Object obj = doCreateConfigurationObject(cmd, cField, cl);
 			doPopulateConfigurationObject(obj, cmd, cField, cl);
 			
 			return obj;
@@ -178,25 +231,23 @@ public class MetaCommandLineParser<T> implements CommandLineParser<T> {
 		}
 	}
 
+	/**
+	 * Injects the parsed values into the configuration object and its 
+	 * command by their precompiled binding plans. It's the hook to 
+	 * customize the injection of the commons-cli parsers, the values are 
+	 * injected by {@link #injectValues(BindingPlan, Object, CommandLine, boolean)}.
+	 * {@link ParserType#NATIVE} injects the values while parsing.
+	 */
 	protected void doPopulateConfigurationObject(Object cfg, CommandCompile cmd,
 			Field cField, CommandLine cl) throws ParseException {
-		try {
-			
-			if (cField != null) {
-				Object command = cField.getType().newInstance();
-				cField.setAccessible(true);
-				cField.set(cfg, command);
-
-				injectValues(cfg, cl, false);
-				injectValues(command, cl, true);
-			} else {
-				injectValues(cfg, cl, true);
-			}
+		
+		if (cmd != null) {
+			Object command = cmd.injectCommand(cfg);
 
-		} catch (InstantiationException e) {
-			throw new InvalidConfigurationException(e.getMessage());
-		} catch (IllegalAccessException e) {
-			throw new InvalidConfigurationException(e.getMessage());
+			injectValues(cmd.getCfgBinding(), cfg, cl, false);
+			injectValues(cmd.getCommandBinding(), command, cl, true);
+		} else {
+			injectValues(getRootBindingPlan(), cfg, cl, true);
 		}
 		
 	}
@@ -206,7 +257,8 @@ public class MetaCommandLineParser<T> implements CommandLineParser<T> {
 			org.apache.commons.cli.CommandLine cl) throws ParseException, 
 			InstantiationException, IllegalAccessException {
 
-		return (T) cfgClass.newInstance();
+		return (T) (cmd != null ? cmd.getCfgBinding().newInstance() 
+				: getRootBindingPlan().newInstance());
 	}
 
 	/**
@@ -224,63 +276,45 @@ public class MetaCommandLineParser<T> implements CommandLineParser<T> {
 	 * @throws ParseException
 	 *             occurs if an options's value can't be casted to assigned enum.
 	 * 
-	 * 
-	 * @throws IllegalArgumentException
-	 * @throws IllegalAccessException
+	 * @deprecated it's no longer called by the parser, so overriding it 
+	 *             has no effect; a plan is compiled on each call for a class 
+	 *             other than the root one. Use 
+	 *             {@link #injectValues(BindingPlan, Object, CommandLine, boolean)}
+	 *             or override {@link #doPopulateConfigurationObject(Object, CommandCompile, Field, CommandLine)}.
 	 */
+	@Deprecated
 	protected void injectValues(Object cfg,
 			org.apache.commons.cli.CommandLine cmd, boolean populateArgs)
 			throws ParseException {
 
-		try {
-			for (Field f : cfg.getClass().getDeclaredFields()) {
-				// populate options
-				if (f.isAnnotationPresent(Option.class)) {
-					Option o = f.getAnnotation(Option.class);
-					if (cmd.hasOption(o.shortName())) {
-						f.setAccessible(true);
-						if (o.hasArguments()) {
-							f.set(cfg,  CLIUtil.autoCast(f, cmd.getOptionValue(o.shortName()),
-								o.shortName(), null));
-						} else {
-							f.setBoolean(cfg, true);
-						}
-					} else if (cmd.hasOption(o.fullName())) {
-						f.setAccessible(true);
-						if (o.hasArguments()) {
-							f.set(cfg, CLIUtil.autoCast(f, cmd.getOptionValue(o.fullName()),
-								o.fullName(), null));
-						} else {
-							f.setBoolean(cfg, true);
-						}
-					}
-				} 
-
-				if (populateArgs) {
-					// populate enumerated arguments
-					String[] args = cmd.getArgs();
-					if (f.isAnnotationPresent(Argument.class)) {
-						Argument a = f.getAnnotation(Argument.class);
-						if (a.index() <= args.length) {
-							String val = args[a.index() - 1];
-							f.setAccessible(true);
-							f.set(cfg, CLIUtil.autoCast(f, val, null, a.name()));
-						}
-					}
+		BindingPlan plan = getRootBindingPlan();
+		if (plan.getType() != cfg.getClass())
+			plan = new BindingPlan(cfg.getClass());
+		injectValues(plan, cfg, cmd, populateArgs);
+	}
 
-					// non-enumerated args ( including enumerated arguments)
-					if (f.isAnnotationPresent(Arguments.class)) {
-						f.setAccessible(true);
-						f.set(cfg, args);
-					}
-				}
-			}
-		} catch (IllegalArgumentException e) {
-			throw new InvalidConfigurationException(e.getMessage());
-		} catch (IllegalAccessException e) {
-			throw new InvalidConfigurationException(e.getMessage());
-		}
+	/**
+	 * Injects Command Line options and arguments into the Application's
+	 * configuration object by the precompiled {@link BindingPlan}
+	 * 
+	 * @param plan
+	 *            - the binding plan compiled for the class of <code>cfg</code>
+	 * @param cfg
+	 *            - the instance of Application's configuration or a
+	 *            configuration's command
+	 * @param cmd
+	 *            - CommandLine from delegated parser
+	 * @param populateArgs
+	 *            - populate arguments fields too, or just options
+	 *            
+	 * @throws ParseException
+	 *             occurs if an options's value can't be casted to assigned enum.
+	 */
+	protected void injectValues(BindingPlan plan, Object cfg,
+			org.apache.commons.cli.CommandLine cmd, boolean populateArgs)
+			throws ParseException {
 
+		plan.execute(cfg, cmd, populateArgs);
 	}
 
 	/**
@@ -297,7 +331,12 @@ public class MetaCommandLineParser<T> implements CommandLineParser<T> {
 	protected void checkArgumentsPopulation(org.apache.commons.cli.CommandLine cmd,
 			ConfigurationModel model) throws ParseException {
 
-		String[] args = cmd.getArgs();
+		checkArgumentsPopulation(cmd.getArgs(), model);
+	}
+
+	static void checkArgumentsPopulation(String[] args, 
+			ConfigurationModel model) throws ParseException {
+
 		for (Argument arg : model.getRootArguments()) {
 			if (arg.required() && arg.index() > args.length) {
 				throw new ParseException(String.format(
@@ -306,6 +345,35 @@ public class MetaCommandLineParser<T> implements CommandLineParser<T> {
 		}
 	}
 
+	/**
+	 * Returns the binding plan of the configuration class. The plan of
+	 * the model is used if any, otherwise it's compiled once from the 
+	 * configuration class.
+	 * 
+	 * @return a binding plan of the configuration class
+	 * 
+	 * @throws InvalidConfigurationException
+	 * 				if the configuration class is unknown
+	 */
+	protected BindingPlan getRootBindingPlan() {
+		BindingPlan plan = model.getRootBindingPlan();
+		if (plan != null)
+			return plan;
+
+		plan = rootBindingPlan;
+		if (plan == null) {
+			if (cfgClass != null)
+				plan = new BindingPlan(cfgClass);
+			else if (model.getCommands() != null && !model.getCommands().isEmpty())
+				plan = model.getCommands().get(0).getCfgBinding();
+			else
+				throw new InvalidConfigurationException(
+						"The model has no binding plan of the configuration class");
+			rootBindingPlan = plan;
+		}
+		return plan;
+	}
+
 	/**
 	 * Compiled model from cfgClass
 	 * 
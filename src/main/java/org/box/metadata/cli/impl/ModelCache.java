@@ -0,0 +1,196 @@
+package org.box.metadata.cli.impl;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.box.metadata.cli.MetaCli;
+import org.box.metadata.cli.annotation.CLIConfiguration;
+import org.box.metadata.cli.exception.InvalidConfigurationException;
+import org.box.metadata.cli.shell.impl.ShellCommandsModel;
+
+/**
+ * <p>
+ * A process-wide cache of compiled models keyed by a {@link CLIConfiguration}
+ * class. Repeated requests for the same class skip the compilation.
+ * </p>
+ *
+ * <p>
+ * The cache is backed by {@link ClassValue}, so it neither keeps classes
+ * nor their class loaders from being unloaded. All cached models are
+ * {@link DefaultConfigurationModel#seal() sealed} and can be shared
+ * between threads.
+ * </p>
+ *
+ * @see MetaCli
+ * @see DefaultConfigurationModel
+ * @see ShellCommandsModel
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public final class ModelCache {
+
+	private static final class Entry {
+		volatile DefaultConfigurationModel model;
+		volatile ShellCommandsModel shellModel;
+	}
+
+	private static final ClassValue<Entry> CACHE = new ClassValue<Entry>() {
+		@Override
+		protected Entry computeValue(Class<?> type) {
+			return new Entry();
+		}
+	};
+
+	private ModelCache() {
+	}
+
+	/**
+	 * Returns a compiled model of the configuration class. The model
+	 * is compiled on the first request.
+	 *
+	 * @param cfgClass
+	 * 			- a class annotated by {@link CLIConfiguration}
+	 *
+	 * @return a sealed model
+	 *
+	 * @throws InvalidConfigurationException
+	 * 			if the class is not a valid configuration
+	 */
+	public static DefaultConfigurationModel getModel(Class<?> cfgClass)
+			throws InvalidConfigurationException {
+		Entry e = CACHE.get(cfgClass);
+		DefaultConfigurationModel model = e.model;
+		if (model == null) {
+			synchronized (e) {
+				if ((model = e.model) == null) {
+					model = new DefaultConfigurationModel(cfgClass);
+					model.seal();
+					e.model = model;
+				}
+			}
+		}
+		return model;
+	}
+
+	/**
+	 * Returns a compiled shell model of the given configuration classes.
+	 * Each class is compiled once; a model of several classes is merged
+	 * from the cached ones in the given order. The classes missing in 
+	 * the cache are compiled in parallel by 
+	 * {@link ShellCommandsModel#compileAll(boolean, Class...)}.
+	 *
+	 * @param cfgClasses
+	 * 			- classes annotated by {@link CLIConfiguration}
+	 *
+	 * @return a sealed model
+	 *
+	 * @throws InvalidConfigurationException
+	 * 			if a class is not a valid configuration, other invalid 
+	 * 			classes are suppressed
+	 */
+	public static ShellCommandsModel getShellModel(Class<?>... cfgClasses)
+			throws InvalidConfigurationException {
+		if (cfgClasses.length == 1)
+			return getShellModel(cfgClasses[0]);
+
+		compileMissing(cfgClasses);
+
+		ShellCommandsModel merged = new ShellCommandsModel();
+		for (Class<?> c : cfgClasses) {
+			ShellCommandsModel model = getShellModel(c);
+			merged.addCommands(model.getCommands());
+			merged.setRootCLIOptions(model.getRootCLIOptions());
+			merged.setRootArguments(model.getRootArguments());
+			merged.setRootArgumentsSyntax(model.getRootArgumentsSyntax());
+			merged.setRootBindingPlan(model.getRootBindingPlan());
+		}
+		merged.seal();
+		return merged;
+	}
+
+	/**
+	 * Compiles the shell models of the classes missing in the cache at once
+	 * and caches them, a model compiled by another thread meanwhile is kept
+	 */
+	private static void compileMissing(Class<?>... cfgClasses)
+			throws InvalidConfigurationException {
+		Set<Class<?>> missing = new LinkedHashSet<>();
+		for (Class<?> c : cfgClasses) {
+			if (CACHE.get(c).shellModel == null)
+				missing.add(c);
+		}
+		if (missing.isEmpty())
+			return;
+
+		Class<?>[] classes = missing.toArray(new Class<?>[missing.size()]);
+		List<ShellCommandsModel> models = ShellCommandsModel.compileAll(false, classes);
+		for (int i = 0; i < classes.length; i++) {
+			Entry e = CACHE.get(classes[i]);
+			synchronized (e) {
+				if (e.shellModel == null) {
+					ShellCommandsModel model = models.get(i);
+					model.seal();
+					e.shellModel = model;
+				}
+			}
+		}
+	}
+
+	private static ShellCommandsModel getShellModel(Class<?> cfgClass)
+			throws InvalidConfigurationException {
+		Entry e = CACHE.get(cfgClass);
+		ShellCommandsModel model = e.shellModel;
+		if (model == null) {
+			synchronized (e) {
+				if ((model = e.shellModel) == null) {
+					model = new ShellCommandsModel(cfgClass);
+					model.seal();
+					e.shellModel = model;
+				}
+			}
+		}
+		return model;
+	}
+
+	/**
+	 * Compiles models of the given classes ahead of the first use.
+	 *
+	 * @param cfgClasses
+	 * 			- classes annotated by {@link CLIConfiguration}
+	 *
+	 * @throws InvalidConfigurationException
+	 * 			if a class is not a valid configuration
+	 */
+	public static void preload(Class<?>... cfgClasses)
+			throws InvalidConfigurationException {
+		for (Class<?> c : cfgClasses)
+			getModel(c);
+	}
+
+	/**
+	 * Compiles shell models of the given classes ahead of the first use.
+	 *
+	 * @param cfgClasses
+	 * 			- classes annotated by {@link CLIConfiguration}
+	 *
+	 * @throws InvalidConfigurationException
+	 * 			if a class is not a valid configuration
+	 */
+	public static void preloadShell(Class<?>... cfgClasses)
+			throws InvalidConfigurationException {
+		for (Class<?> c : cfgClasses)
+			getShellModel(c);
+	}
+
+	/**
+	 * Removes all compiled models of the given class from the cache.
+	 *
+	 * @param cfgClass
+	 * 			- a configuration class
+	 */
+	public static void evict(Class<?> cfgClass) {
+		CACHE.remove(cfgClass);
+	}
+}
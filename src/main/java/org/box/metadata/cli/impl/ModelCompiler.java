@@ -0,0 +1,41 @@
+package org.box.metadata.cli.impl;
+
+import org.box.metadata.cli.annotation.CLIConfiguration;
+import org.box.metadata.cli.exception.InvalidConfigurationException;
+import org.box.metadata.cli.shell.impl.ShellCommandsModel;
+import org.box.metadata.cli.util.CLIUtil;
+
+/**
+ * <p>
+ * Compiles commands, options and arguments of a particular 
+ * {@link CLIConfiguration} class into a model. 
+ * </p>
+ * 
+ * <p>
+ * Implementations are generated at build time by the
+ * <code>CLIConfigurationProcessor</code> as <code>&lt;cfgClass&gt;_CLIModel</code>
+ * and picked up by {@link CLIUtil#compileCommandsModel(DefaultConfigurationModel, Class)}
+ * instead of the runtime reflection.
+ * </p>
+ * 
+ * @see CLIUtil#generatedCompilerName(String)
+ * 
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public interface ModelCompiler {
+
+	/**
+	 * Puts compiled commands and root options/arguments of the
+	 * configuration into the model.
+	 * 
+	 * @param model
+	 * 			- a model to compile in, {@link ShellCommandsModel} gets 
+	 * 			  shell commands
+	 * 
+	 * @throws InvalidConfigurationException
+	 * 			if the configuration cannot be compiled
+	 */
+	void compile(DefaultConfigurationModel model) throws InvalidConfigurationException;
+
+}
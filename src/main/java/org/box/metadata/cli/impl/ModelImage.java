@@ -0,0 +1,685 @@
+package org.box.metadata.cli.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URISyntaxException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.cli.Options;
+import org.box.metadata.cli.annotation.Argument;
+import org.box.metadata.cli.annotation.Arguments;
+import org.box.metadata.cli.annotation.CLIConfiguration;
+import org.box.metadata.cli.annotation.Command;
+import org.box.metadata.cli.annotation.Option;
+import org.box.metadata.cli.exception.InvalidConfigurationException;
+import org.box.metadata.cli.impl.BindingPlan.FieldBinding;
+import org.box.metadata.cli.shell.impl.ShellCommandCompile;
+import org.box.metadata.cli.shell.impl.ShellCommandsModel;
+
+/**
+ * <p>
+ * A binary image of a compiled model: commands, options, arguments, syntax
+ * strings and binding metadata. Loading the image skips the annotation
+ * processing and validation of a compilation, the model is assembled from
+ * precompiled parts the same way a generated {@link ModelCompiler} does.
+ * The image is read through a memory-mapped buffer.
+ * </p>
+ *
+ * <p>
+ * The image is fingerprinted by CRC32 hashes of bytecode of the configuration
+ * and command classes. If any of them is changed, the image is stale and
+ * {@link #load(File, Class)} compiles the model and stores it again.
+ * </p>
+ *
+ * <pre>
+ * DefaultConfigurationModel model = ModelImage.load(new File("app.model"), AppCfg.class);
+ * </pre>
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public final class ModelImage {
+
+	private static final int MAGIC = 0x4d434c49; // "MCLI"
+
+	private static final int VERSION = 1;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final byte ARGUMENT = 0;
+
+	private static final byte ARGUMENTS = 1;
+
+	private ModelImage() {
+	}
+
+	/**
+	 * Loads a model of the given configuration classes from the image or
+	 * compiles it, if the image is missing or stale, and stores it into
+	 * the image. A shell model is created for several classes or a single
+	 * class by {@link #loadShell(File, Class...)}.
+	 *
+	 * @param file
+	 * 			- an image file
+	 * @param cfgClass
+	 * 			- a class annotated by {@link CLIConfiguration}
+	 *
+	 * @return the model
+	 *
+	 * @throws InvalidConfigurationException
+	 * 			if the class is not a valid configuration
+	 * @throws IOException
+	 * 			if the image cannot be read or written
+	 */
+	public static DefaultConfigurationModel load(File file, Class<?> cfgClass)
+			throws IOException, InvalidConfigurationException {
+		DefaultConfigurationModel model = read(file, false, cfgClass);
+		if (model == null) {
+			model = new DefaultConfigurationModel(cfgClass);
+			write(model, file, cfgClass);
+		}
+		return model;
+	}
+
+	/**
+	 * Loads a shell model of the given configuration classes from the image,
+	 * or compiles and stores it.
+	 *
+	 * @see #load(File, Class)
+	 */
+	public static ShellCommandsModel loadShell(File file, Class<?>... cfgClasses)
+			throws IOException, InvalidConfigurationException {
+		ShellCommandsModel model = (ShellCommandsModel) read(file, true, cfgClasses);
+		if (model == null) {
+			model = new ShellCommandsModel(cfgClasses);
+			write(model, file, cfgClasses);
+		}
+		return model;
+	}
+
+	/**
+	 * Reads a model from the image
+	 *
+	 * @param file
+	 * 			- an image file
+	 * @param shell
+	 * 			- true to read a {@link ShellCommandsModel}
+	 * @param cfgClasses
+	 * 			- the configuration classes the model is compiled of
+	 *
+	 * @return the model or <code>null</code> if the image is missing, stale,
+	 * 			corrupted or stores a model of other classes
+	 *
+	 * @throws IOException
+	 * 			if the image cannot be read
+	 */
+	public static DefaultConfigurationModel read(File file, boolean shell, Class<?>... cfgClasses)
+			throws IOException {
+		if (!file.isFile())
+			return null;
+
+		MappedByteBuffer in;
+		try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			in = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+		}
+
+		try {
+			return decode(in, shell, cfgClasses);
+		} finally {
+			// the model is copied out, so the file can be replaced right away
+			unmap(in);
+		}
+	}
+
+	/**
+	 * Decodes a model from the image content
+	 *
+	 * @return the model or <code>null</code> if the image is stale,
+	 * 			corrupted or stores a model of other classes
+	 *
+	 * @throws IOException
+	 * 			if the class files cannot be read for the fingerprint
+	 */
+	static DefaultConfigurationModel decode(ByteBuffer in, boolean shell, Class<?>... cfgClasses)
+			throws IOException {
+		ClassLoader loader = cfgClasses[0].getClassLoader();
+		try {
+			if (in.getInt() != MAGIC || in.getInt() != VERSION || (in.get() != 0) != shell)
+				return null;
+
+			String[] sources = new String[readLength(in, 4)];
+			for (int i = 0; i < sources.length; i++)
+				sources[i] = readString(in);
+			if (!Arrays.equals(sources, names(cfgClasses)))
+				return null;
+
+			String[] typeNames = new String[readLength(in, 4)];
+			for (int i = 0; i < typeNames.length; i++)
+				typeNames[i] = readString(in);
+			byte[] fingerprint = new byte[readLength(in, 1)];
+			in.get(fingerprint);
+
+			// loading is harmless: a stale model is compiled of these classes
+			Class<?>[] types = new Class<?>[typeNames.length];
+			for (int i = 0; i < types.length; i++)
+				types[i] = Class.forName(typeNames[i], false, loader);
+			if (!Arrays.equals(fingerprint, fingerprint(types)))
+				return null;
+
+			return readModel(in, shell, types, loader);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		} catch (RuntimeException e) {
+			// a truncated or corrupted image: a length or an index is out 
+			// of range, an option name is invalid and so on
+			return null;
+		} catch (LinkageError e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the model into the image. The file is replaced atomically,
+	 * where the file system allows it.
+	 *
+	 * @param model
+	 * 			- a model compiled of the given classes
+	 * @param file
+	 * 			- an image file
+	 * @param cfgClasses
+	 * 			- the configuration classes the model is compiled of
+	 *
+	 * @throws IOException
+	 * 			if the image cannot be written or a class file is not found
+	 * 			to fingerprint
+	 * @throws InvalidConfigurationException
+	 * 			if a command field of the model cannot be found
+	 */
+	public static void write(DefaultConfigurationModel model, File file, Class<?>... cfgClasses)
+			throws IOException, InvalidConfigurationException {
+		ModelSnapshot snapshot = model.snapshot();
+
+		Map<Class<?>, Integer> types = new LinkedHashMap<>();
+		for (Class<?> c : cfgClasses)
+			index(types, c);
+		List<Field> fields = new ArrayList<>();
+		for (CommandCompile cc : snapshot.getCommands()) {
+			Field f = commandField(cc);
+			fields.add(f);
+			index(types, f.getDeclaringClass());
+			index(types, f.getType());
+		}
+		if (snapshot.getRootBindingPlan() != null)
+			index(types, snapshot.getRootBindingPlan().getType());
+
+		Map<Options, Integer> optionSets = new IdentityHashMap<>();
+		List<Options> optionList = new ArrayList<>();
+		if (snapshot.getRootCLIOptions() != null)
+			index(optionSets, optionList, snapshot.getRootCLIOptions());
+		for (CommandCompile cc : snapshot.getCommands())
+			index(optionSets, optionList, cc.getCLIOptions());
+
+		File dir = file.getAbsoluteFile().getParentFile();
+		File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+		try {
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(tmp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeByte(model instanceof ShellCommandsModel ? 1 : 0);
+
+				writeStrings(out, names(cfgClasses));
+				Class<?>[] typeArray = types.keySet().toArray(new Class<?>[types.size()]);
+				writeStrings(out, names(typeArray));
+				byte[] fingerprint = fingerprint(typeArray);
+				if (fingerprint == null)
+					throw new IOException("cannot find bytecode of " + Arrays.toString(typeArray));
+				out.writeInt(fingerprint.length);
+				out.write(fingerprint);
+
+				for (Class<?> type : types.keySet())
+					writePlan(out, type);
+
+				out.writeInt(optionList.size());
+				for (Options options : optionList)
+					writeOptions(out, options, optionSets);
+
+				out.writeInt(snapshot.getRootCLIOptions() != null
+						? optionSets.get(snapshot.getRootCLIOptions()) : -1);
+				writeArguments(out, snapshot.getRootArguments());
+				writeString(out, snapshot.getRootArgumentsSyntax());
+				out.writeInt(snapshot.getRootBindingPlan() != null
+						? types.get(snapshot.getRootBindingPlan().getType()) : -1);
+
+				List<CommandCompile> commands = snapshot.getCommands();
+				out.writeInt(commands.size());
+				for (int i = 0; i < commands.size(); i++) {
+					CommandCompile cc = commands.get(i);
+					Field f = fields.get(i);
+					Command cmd = cc.getOrig();
+					writeString(out, cmd.name());
+					writeString(out, cmd.description());
+					String[] handlers = new String[cmd.handlers().length];
+					for (int h = 0; h < handlers.length; h++)
+						handlers[h] = cmd.handlers()[h].getName();
+					writeStrings(out, handlers);
+
+					out.writeInt(types.get(f.getDeclaringClass()));
+					writeString(out, f.getName());
+					writeString(out, cc instanceof ShellCommandCompile
+							? ((ShellCommandCompile) cc).getAppName() : null);
+					out.writeInt(optionSets.get(cc.getCLIOptions()));
+					writeArguments(out, cc.getArguments());
+					writeString(out, cc.getArgumentsSyntax());
+				}
+			}
+			move(tmp, file);
+		} finally {
+			tmp.delete();
+		}
+	}
+
+	private static DefaultConfigurationModel readModel(ByteBuffer in, boolean shell,
+			Class<?>[] types, ClassLoader loader) throws ReflectiveOperationException {
+		BindingPlan[] plans = new BindingPlan[types.length];
+		for (int i = 0; i < types.length; i++)
+			plans[i] = readPlan(in, types[i]);
+
+		Options[] optionSets = new Options[readLength(in, 4)];
+		for (int i = 0; i < optionSets.length; i++)
+			optionSets[i] = readOptions(in, optionSets);
+
+		DefaultConfigurationModel model = shell
+				? new ShellCommandsModel() : new DefaultConfigurationModel();
+		int rootOptions = in.getInt();
+		Argument[] rootArguments = readArguments(in);
+		String rootSyntax = readString(in);
+		int rootPlan = in.getInt();
+
+		CommandCompile[] commands = new CommandCompile[readLength(in, 4)];
+		for (int i = 0; i < commands.length; i++) {
+			String name = readString(in);
+			String description = readString(in);
+			Class<?>[] handlers = new Class<?>[readLength(in, 4)];
+			for (int h = 0; h < handlers.length; h++)
+				handlers[h] = Class.forName(readString(in), false, loader);
+			Command cmd = Annotations.command(name, description, Annotations.handlers(handlers));
+
+			int cfgType = in.getInt();
+			Field f = types[cfgType].getDeclaredField(readString(in));
+			String appName = readString(in);
+			Options options = optionSets[in.getInt()];
+			Argument[] arguments = readArguments(in);
+			String syntax = readString(in);
+
+			BindingPlan commandBinding = plans[indexOf(types, f.getType())];
+			FieldBinding commandField = BindingPlan.commandBinding(f);
+			commands[i] = shell
+					? new ShellCommandCompile(cmd, f, options, arguments, syntax, appName,
+							types[cfgType], plans[cfgType], commandBinding, commandField)
+					: new CommandCompile(cmd, f, options, arguments, syntax,
+							plans[cfgType], commandBinding, commandField);
+		}
+
+		model.addCommands(Arrays.asList(commands));
+		if (rootOptions >= 0)
+			model.setRootCLIOptions(optionSets[rootOptions]);
+		model.setRootArguments(rootArguments);
+		model.setRootArgumentsSyntax(rootSyntax);
+		if (rootPlan >= 0)
+			model.setRootBindingPlan(plans[rootPlan]);
+		return model;
+	}
+
+	/**
+	 * Writes the binding metadata of the type. It's read out of the annotations,
+	 * so a model compiled by a generated compiler is written the same way.
+	 */
+	private static void writePlan(DataOutputStream out, Class<?> type) throws IOException {
+		List<Field> options = new ArrayList<>();
+		List<Field> arguments = new ArrayList<>();
+		for (Field f : type.getDeclaredFields()) {
+			if (f.isAnnotationPresent(Option.class))
+				options.add(f);
+			if (f.isAnnotationPresent(Argument.class) || f.isAnnotationPresent(Arguments.class))
+				arguments.add(f);
+		}
+
+		out.writeInt(options.size());
+		for (Field f : options) {
+			Option o = f.getAnnotation(Option.class);
+			writeString(out, f.getName());
+			writeString(out, o.shortName());
+			writeString(out, o.fullName());
+			out.writeBoolean(o.hasArguments());
+		}
+
+		out.writeInt(arguments.size());
+		for (Field f : arguments) {
+			writeString(out, f.getName());
+			Argument a = f.getAnnotation(Argument.class);
+			if (a != null) {
+				out.writeByte(ARGUMENT);
+				out.writeInt(a.index());
+				writeString(out, a.name());
+			} else {
+				out.writeByte(ARGUMENTS);
+			}
+		}
+	}
+
+	private static BindingPlan readPlan(ByteBuffer in, Class<?> type)
+			throws ReflectiveOperationException {
+		FieldBinding[] options = new FieldBinding[readLength(in, 4)];
+		for (int i = 0; i < options.length; i++) {
+			Field f = type.getDeclaredField(readString(in));
+			String shortName = readString(in);
+			String fullName = readString(in);
+			options[i] = BindingPlan.option(shortName, fullName, in.get() != 0,
+					f.getType(), BindingPlan.accessor(f));
+		}
+
+		FieldBinding[] arguments = new FieldBinding[readLength(in, 4)];
+		for (int i = 0; i < arguments.length; i++) {
+			Field f = type.getDeclaredField(readString(in));
+			if (in.get() == ARGUMENT) {
+				int index = in.getInt();
+				arguments[i] = BindingPlan.argument(index, readString(in),
+						f.getType(), BindingPlan.accessor(f));
+			} else {
+				arguments[i] = BindingPlan.arguments(BindingPlan.accessor(f));
+			}
+		}
+
+		return new BindingPlan(type, BindingPlan.instantiator(type), options, arguments);
+	}
+
+	private static void writeOptions(DataOutputStream out, Options options,
+			Map<Options, Integer> optionSets) throws IOException {
+		Collection<org.apache.commons.cli.Option> own;
+		if (options instanceof LayeredOptions) {
+			LayeredOptions layer = (LayeredOptions) options;
+			out.writeInt(optionSets.get(layer.getBase()));
+			own = layer.getOwnOptions();
+		} else {
+			out.writeInt(-1);
+			own = options.getOptions();
+		}
+
+		out.writeInt(own.size());
+		for (org.apache.commons.cli.Option o : own) {
+			writeString(out, o.getOpt());
+			writeString(out, o.getLongOpt());
+			out.writeBoolean(o.hasArg());
+			writeString(out, o.getDescription());
+		}
+	}
+
+	private static Options readOptions(ByteBuffer in, Options[] optionSets) {
+		int base = in.getInt();
+		Options options = base >= 0 ? new LayeredOptions(optionSets[base]) : new Options();
+		for (int i = readLength(in, 4); i > 0; i--) {
+			String opt = readString(in);
+			String longOpt = readString(in);
+			boolean hasArg = in.get() != 0;
+			options.addOption(new org.apache.commons.cli.Option(opt, longOpt, hasArg, readString(in)));
+		}
+		return options;
+	}
+
+	private static void writeArguments(DataOutputStream out, Argument[] arguments)
+			throws IOException {
+		if (arguments == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(arguments.length);
+		for (Argument a : arguments) {
+			out.writeInt(a.index());
+			writeString(out, a.name());
+			out.writeBoolean(a.required());
+		}
+	}
+
+	private static Argument[] readArguments(ByteBuffer in) {
+		int size = in.getInt();
+		if (size < 0)
+			return null;
+		Argument[] arguments = new Argument[checkLength(in, size, 4)];
+		for (int i = 0; i < size; i++) {
+			int index = in.getInt();
+			String name = readString(in);
+			arguments[i] = Annotations.argument(index, name, in.get() != 0);
+		}
+		return arguments;
+	}
+
+	/**
+	 * Returns the field of the command. Commands of generated compilers
+	 * don't keep it, so it's looked up by the command name.
+	 */
+	private static Field commandField(CommandCompile cc) throws InvalidConfigurationException {
+		if (cc.getFeild() != null)
+			return cc.getFeild();
+
+		Class<?> cfgClass = cc instanceof ShellCommandCompile
+				? ((ShellCommandCompile) cc).getCfgClass() : cc.getCfgBinding().getType();
+		for (Field f : cfgClass.getDeclaredFields()) {
+			Command cmd = f.getAnnotation(Command.class);
+			if (cmd != null && cmd.name().equals(cc.getOrig().name()))
+				return f;
+		}
+		throw new InvalidConfigurationException("no field of command '"
+				+ cc.getOrig().name() + "' in " + cfgClass.getName());
+	}
+
+	/**
+	 * Collects CRC32 hashes of bytecode of the classes. A hash of a class
+	 * packed into a jar is taken from the jar's entry, so the class file
+	 * is not read.
+	 *
+	 * @return the hashes or <code>null</code> if a class file is not found
+	 */
+	private static byte[] fingerprint(Class<?>[] types) throws IOException {
+		ByteBuffer hashes = ByteBuffer.allocate(types.length * 4);
+		Map<File, ZipFile> jars = new HashMap<>();
+		try {
+			CRC32 crc = new CRC32();
+			byte[] buf = new byte[8192];
+			for (Class<?> type : types) {
+				String resource = type.getName().replace('.', '/') + ".class";
+				File location = location(type);
+
+				if (location != null && location.isFile()) {
+					ZipFile jar = jars.get(location);
+					if (jar == null)
+						jars.put(location, jar = new ZipFile(location));
+					ZipEntry e = jar.getEntry(resource);
+					if (e == null || e.getCrc() == -1)
+						return null;
+					hashes.putInt((int) e.getCrc());
+					continue;
+				}
+
+				InputStream in;
+				if (location != null)
+					in = new FileInputStream(new File(location, resource));
+				else if (type.getClassLoader() != null)
+					in = type.getClassLoader().getResourceAsStream(resource);
+				else
+					in = ClassLoader.getSystemResourceAsStream(resource);
+				if (in == null)
+					return null;
+				try {
+					crc.reset();
+					for (int n; (n = in.read(buf)) > 0;)
+						crc.update(buf, 0, n);
+					hashes.putInt((int) crc.getValue());
+				} finally {
+					in.close();
+				}
+			}
+			return hashes.array();
+		} catch (FileNotFoundException e) {
+			return null;
+		} finally {
+			for (ZipFile jar : jars.values())
+				jar.close();
+		}
+	}
+
+	/**
+	 * Returns a local jar or directory the class is loaded from
+	 *
+	 * @return the location or <code>null</code> if it's unknown
+	 */
+	private static File location(Class<?> type) {
+		CodeSource source = type.getProtectionDomain().getCodeSource();
+		if (source == null || source.getLocation() == null
+				|| !"file".equals(source.getLocation().getProtocol()))
+			return null;
+		try {
+			return new File(source.getLocation().toURI());
+		} catch (URISyntaxException e) {
+			return null;
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	private static void move(File from, File to) throws IOException {
+		try {
+			Files.move(from.toPath(), to.toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Reads a length of an array. Each element takes at least the given 
+	 * number of bytes in the image, so a corrupted length fails before 
+	 * the array is allocated.
+	 */
+	private static int readLength(ByteBuffer in, int elementSize) {
+		return checkLength(in, in.getInt(), elementSize);
+	}
+
+	private static int checkLength(ByteBuffer in, int length, int elementSize) {
+		if (length < 0 || length > in.remaining() / elementSize)
+			throw new BufferUnderflowException();
+		return length;
+	}
+
+	/**
+	 * Releases the mapping right away instead of on garbage collection, 
+	 * since a mapped file cannot be replaced on some platforms (Windows).
+	 * The buffer must not be used after that.
+	 */
+	private static void unmap(MappedByteBuffer buffer) {
+		try {
+			try {
+				// Java 9+
+				Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+				Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+				Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+				theUnsafe.setAccessible(true);
+				invokeCleaner.invoke(theUnsafe.get(null), buffer);
+			} catch (NoSuchMethodException e) {
+				// Java 8
+				Method cleaner = buffer.getClass().getMethod("cleaner");
+				cleaner.setAccessible(true);
+				Object c = cleaner.invoke(buffer);
+				if (c != null)
+					c.getClass().getMethod("clean").invoke(c);
+			}
+		} catch (ReflectiveOperationException e) {
+			// not supported, the mapping is released by the garbage collector
+		} catch (RuntimeException e) {
+			// not accessible, the same as above
+		}
+	}
+
+	private static void index(Map<Class<?>, Integer> types, Class<?> type) {
+		if (!types.containsKey(type))
+			types.put(type, types.size());
+	}
+
+	private static void index(Map<Options, Integer> optionSets, List<Options> optionList,
+			Options options) {
+		if (optionSets.containsKey(options))
+			return;
+		// a base is written before its layers
+		if (options instanceof LayeredOptions)
+			index(optionSets, optionList, ((LayeredOptions) options).getBase());
+		optionSets.put(options, optionList.size());
+		optionList.add(options);
+	}
+
+	private static int indexOf(Class<?>[] types, Class<?> type) {
+		for (int i = 0; i < types.length; i++)
+			if (types[i] == type)
+				return i;
+		throw new InvalidConfigurationException("no binding of " + type.getName());
+	}
+
+	private static String[] names(Class<?>[] classes) {
+		String[] names = new String[classes.length];
+		for (int i = 0; i < classes.length; i++)
+			names[i] = classes[i].getName();
+		return names;
+	}
+
+	private static void writeStrings(DataOutputStream out, String[] strings) throws IOException {
+		out.writeInt(strings.length);
+		for (String s : strings)
+			writeString(out, s);
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = s.getBytes(UTF8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(ByteBuffer in) {
+		int length = in.getInt();
+		if (length < 0)
+			return null;
+		byte[] bytes = new byte[checkLength(in, length, 1)];
+		in.get(bytes);
+		return new String(bytes, UTF8);
+	}
+}
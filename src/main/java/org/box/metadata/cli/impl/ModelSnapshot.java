@@ -0,0 +1,248 @@
+package org.box.metadata.cli.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.cli.Options;
+import org.box.metadata.cli.annotation.Argument;
+
+/**
+ * <p>
+ * An immutable {@link ConfigurationModel}. A modification derives a new
+ * snapshot sharing the structure with the original one: the commands
+ * are kept in a chain of chunks, so adding commands appends a chunk,
+ * and the command index of the derived snapshot copies only the trie
+ * nodes on the paths of the added commands (see {@link CommandIndex}).
+ * </p>
+ *
+ * <p>
+ * Snapshots are safe to share between shells and threads without
+ * synchronization. {@link DefaultConfigurationModel} keeps its state as
+ * a snapshot, so a reader never sees a half-updated model.
+ * </p>
+ *
+ * @see DefaultConfigurationModel#snapshot()
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public final class ModelSnapshot implements ConfigurationModel {
+
+	private static final CommandCompile[] NO_COMMANDS = new CommandCompile[0];
+
+	/**
+	 * Commands added at once. The index of a chunk covers the commands
+	 * of the chunk and all the previous ones, it's built on demand.
+	 */
+	private static final class Chunk {
+
+		final Chunk prev;
+
+		final CommandCompile[] commands;
+
+		final int size;
+
+		volatile CommandIndex index;
+
+		Chunk(Chunk prev, CommandCompile[] commands) {
+			this.prev = prev;
+			this.commands = commands;
+			this.size = (prev != null ? prev.size : 0) + commands.length;
+		}
+
+		CommandIndex index() {
+			CommandIndex idx = index;
+			if (idx != null)
+				return idx;
+
+			// derives from the closest indexed chunk, all the chunks
+			// after it are indexed at once
+			Chunk base = prev;
+			while (base != null && base.index == null)
+				base = base.prev;
+
+			CommandIndex from = base != null ? base.index : CommandIndex.EMPTY;
+			idx = from.with(toArray(base));
+			index = idx;
+			return idx;
+		}
+
+		/**
+		 * The commands after the given chunk
+		 */
+		CommandCompile[] toArray(Chunk after) {
+			CommandCompile[] array = new CommandCompile[size - (after != null ? after.size : 0)];
+			int end = array.length;
+			for (Chunk c = this; c != after; c = c.prev) {
+				end -= c.commands.length;
+				System.arraycopy(c.commands, 0, array, end, c.commands.length);
+			}
+			return array;
+		}
+	}
+
+	/**
+	 * A model without commands and root options
+	 */
+	public static final ModelSnapshot EMPTY = new ModelSnapshot(null, null, null, null, null);
+
+	private final Chunk chunk;
+
+	private final Options rootCLIOptions;
+
+	private final Argument[] rootArguments;
+
+	private final String rootArgumentsSyntax;
+
+	private final BindingPlan rootBindingPlan;
+
+	private volatile List<CommandCompile> list;
+
+	private ModelSnapshot(Chunk chunk, Options rootCLIOptions, Argument[] rootArguments,
+			String rootArgumentsSyntax, BindingPlan rootBindingPlan) {
+		this.chunk = chunk;
+		this.rootCLIOptions = rootCLIOptions;
+		this.rootArguments = rootArguments;
+		this.rootArgumentsSyntax = rootArgumentsSyntax;
+		this.rootBindingPlan = rootBindingPlan;
+	}
+
+	/**
+	 * Returns a snapshot of the model
+	 *
+	 * @param model
+	 * 			- any model
+	 *
+	 * @return the current snapshot of a {@link DefaultConfigurationModel},
+	 * 			or a copy of the model
+	 */
+	public static ModelSnapshot of(ConfigurationModel model) {
+		if (model instanceof ModelSnapshot)
+			return (ModelSnapshot) model;
+		if (model instanceof DefaultConfigurationModel)
+			return ((DefaultConfigurationModel) model).snapshot();
+
+		return EMPTY.withCommands(model.getCommands())
+				.withRootCLIOptions(model.getRootCLIOptions())
+				.withRootArguments(model.getRootArguments())
+				.withRootArgumentsSyntax(model.getRootArgumentsSyntax())
+				.withRootBindingPlan(model.getRootBindingPlan());
+	}
+
+	@Override
+	public List<CommandCompile> getCommands() {
+		List<CommandCompile> l = list;
+		if (l == null) {
+			l = chunk == null ? Collections.<CommandCompile>emptyList()
+					: Collections.unmodifiableList(Arrays.asList(chunk.toArray(null)));
+			list = l;
+		}
+		return l;
+	}
+
+	/**
+	 * Finds the longest command which name (case insensitive)
+	 * starts the given arguments.
+	 */
+	@Override
+	public CommandCompile findCommandForInput(String[] args) {
+		return chunk == null ? null : chunk.index().find(args);
+	}
+
+	/**
+	 * Builds the command index ahead of the first lookup
+	 */
+	void buildIndex() {
+		if (chunk != null)
+			chunk.index();
+	}
+
+	@Override
+	public Options getRootCLIOptions() {
+		return rootCLIOptions;
+	}
+
+	@Override
+	public Argument[] getRootArguments() {
+		return rootArguments;
+	}
+
+	@Override
+	public String getRootArgumentsSyntax() {
+		return rootArgumentsSyntax;
+	}
+
+	@Override
+	public BindingPlan getRootBindingPlan() {
+		return rootBindingPlan;
+	}
+
+	/**
+	 * Derives a snapshot with the commands appended
+	 */
+	public ModelSnapshot withCommands(List<? extends CommandCompile> added) {
+		if (added.isEmpty())
+			return this;
+		return withChunk(new Chunk(chunk, added.toArray(NO_COMMANDS)));
+	}
+
+	/**
+	 * Derives a snapshot with the command appended
+	 */
+	public ModelSnapshot withCommand(CommandCompile added) {
+		return withChunk(new Chunk(chunk, new CommandCompile[] { added }));
+	}
+
+	/**
+	 * Derives a snapshot without the given commands. The root options
+	 * are kept, but the command index is built anew.
+	 */
+	public ModelSnapshot withoutCommands(Collection<?> removed) {
+		if (chunk == null || removed.isEmpty())
+			return this;
+
+		ArrayList<CommandCompile> kept = new ArrayList<>(chunk.size);
+		for (CommandCompile cc : chunk.toArray(null))
+			if (!removed.contains(cc))
+				kept.add(cc);
+
+		if (kept.size() == chunk.size)
+			return this;
+		return withChunk(kept.isEmpty() ? null : new Chunk(null, kept.toArray(NO_COMMANDS)));
+	}
+
+	/**
+	 * Derives a snapshot without commands, the root options are kept
+	 */
+	public ModelSnapshot withoutCommands() {
+		return chunk == null ? this : withChunk(null);
+	}
+
+	public ModelSnapshot withRootCLIOptions(Options rootCLIOptions) {
+		return new ModelSnapshot(chunk, rootCLIOptions, rootArguments,
+				rootArgumentsSyntax, rootBindingPlan);
+	}
+
+	public ModelSnapshot withRootArguments(Argument[] rootArguments) {
+		return new ModelSnapshot(chunk, rootCLIOptions, rootArguments,
+				rootArgumentsSyntax, rootBindingPlan);
+	}
+
+	public ModelSnapshot withRootArgumentsSyntax(String rootArgumentsSyntax) {
+		return new ModelSnapshot(chunk, rootCLIOptions, rootArguments,
+				rootArgumentsSyntax, rootBindingPlan);
+	}
+
+	public ModelSnapshot withRootBindingPlan(BindingPlan rootBindingPlan) {
+		return new ModelSnapshot(chunk, rootCLIOptions, rootArguments,
+				rootArgumentsSyntax, rootBindingPlan);
+	}
+
+	private ModelSnapshot withChunk(Chunk chunk) {
+		return new ModelSnapshot(chunk, rootCLIOptions, rootArguments,
+				rootArgumentsSyntax, rootBindingPlan);
+	}
+}
@@ -0,0 +1,180 @@
+package org.box.metadata.cli.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.box.metadata.cli.exception.ParseException;
+import org.box.metadata.cli.impl.BindingPlan.FieldBinding;
+import org.box.metadata.cli.impl.MetaCommandLineParser.ParserType;
+
+/**
+ * <p>
+ * The engine behind {@link ParserType#NATIVE}. It walks the Command Line
+ * arguments once against {@link OptionTable}s precompiled from the model
+ * and injects values straight into the configuration object, so no
+ * commons-cli <code>CommandLine</code> is built on the way.
+ * </p>
+ *
+ * <p>
+ * Tokens are recognized the same way as by the GNU parser:
+ * <li><code>--</code> - the rest of tokens are arguments
+ * <li><code>-</code> - an argument
+ * <li><code>-name</code>, <code>--name</code> - an option by short or full name
+ * <li><code>-name=value</code> - an option with the value
+ * <li><code>-Xvalue</code> - a single character option <code>X</code> with the value
+ * </p>
+ *
+ * <p>
+ * If an option is repeated the first value wins, like with the GNU parser.
+ * </p>
+ *
+ * @see MetaCommandLineParser
+ * @see OptionTable
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+final class NativeParser {
+
+	private final MetaCommandLineParser<?> parser;
+	private final ConfigurationModel model;
+
+	private volatile OptionTable rootTable;
+
+	NativeParser(MetaCommandLineParser<?> parser) {
+		this.parser = parser;
+		this.model = parser.getModel();
+	}
+
+	/**
+	 * Parses the arguments and creates a new configuration object
+	 *
+	 * @param cmd
+	 * 			- a command found for the input or <code>null</code>
+	 * @param args
+	 * 			- the command line arguments including the command name
+	 *
+	 * @return a new configuration object with injected values
+	 *
+	 * @throws ParseException
+	 * 			if the user's input is wrong
+	 */
+	Object parse(CommandCompile cmd, String[] args) throws ParseException {
+
+		OptionTable table;
+		Object cfg, target;
+		BindingPlan targetPlan;
+		int from;
+		if (cmd != null) {
+			table = cmd.getOptionTable();
+			cfg = cmd.getCfgBinding().newInstance();
+			target = cmd.injectCommand(cfg);
+			targetPlan = cmd.getCommandBinding();
+			from = cmd.complexity();
+		} else {
+			table = rootTable();
+			targetPlan = parser.getRootBindingPlan();
+			cfg = targetPlan.newInstance();
+			target = cfg;
+			from = 0;
+		}
+
+		String[] positional = new String[args.length - from];
+		int count = 0;
+		// options seen so far, a repeated option keeps the first value as
+		// commons-cli's CommandLine.getOptionValue() does
+		ArrayList<OptionTable.Entry> seen = null;
+
+		for (int i = from; i < args.length; i++) {
+			String token = args[i];
+
+			if (token.length() < 2 || token.charAt(0) != '-') {
+				positional[count++] = token;
+				continue;
+			}
+
+			if ("--".equals(token)) {
+				while (++i < args.length)
+					positional[count++] = args[i];
+				break;
+			}
+
+			String name = stripLeadingHyphens(token);
+			String value = null;
+			boolean inlined = false;
+
+			OptionTable.Entry e = table.get(name);
+			if (e == null) {
+				int eq = name.indexOf('=');
+				if (eq != -1 && (e = table.get(name.substring(0, eq))) != null) {
+					value = name.substring(eq + 1);
+					inlined = true;
+				} else if (token.charAt(1) != '-'
+						&& (e = table.get(token.substring(1, 2))) != null) {
+					value = token.substring(2);
+					inlined = true;
+				} else
+					throw new ParseException("Unrecognized option: " + token);
+			}
+
+			if (e.hasArg) {
+				if (!inlined) {
+					if (i + 1 >= args.length || isOption(table, args[i + 1]))
+						throw new ParseException("Missing argument for option: " + e.key);
+					value = args[++i];
+				}
+			} else if (inlined) {
+				// the rest of a flag is an argument
+				positional[count++] = value;
+				value = null;
+			}
+
+			if (seen == null)
+				seen = new ArrayList<>(4);
+			else if (seen.contains(e))
+				continue;
+			seen.add(e);
+
+			inject(e.cfgBindings, cfg, e.key, value);
+			inject(e.commandBindings, target, e.key, value);
+		}
+
+		if (count != positional.length)
+			positional = Arrays.copyOf(positional, count);
+
+		MetaCommandLineParser.checkArgumentsPopulation(positional, model);
+
+		targetPlan.injectArguments(target, positional);
+
+		return cfg;
+	}
+
+	private static void inject(FieldBinding[] bindings, Object target,
+			String key, String value) throws ParseException {
+		for (FieldBinding b : bindings)
+			b.inject(target, key, value);
+	}
+
+	private static boolean isOption(OptionTable table, String token) {
+		return token.length() > 1 && token.charAt(0) == '-'
+				&& table.get(stripLeadingHyphens(token)) != null;
+	}
+
+	private static String stripLeadingHyphens(String token) {
+		if (token.startsWith("--"))
+			return token.substring(2);
+		else if (token.startsWith("-"))
+			return token.substring(1);
+		return token;
+	}
+
+	private OptionTable rootTable() {
+		OptionTable table = rootTable;
+		if (table == null || table.getOptions() != model.getRootCLIOptions()) {
+			table = new OptionTable(model.getRootCLIOptions(),
+					parser.getRootBindingPlan(), null);
+			rootTable = table;
+		}
+		return table;
+	}
+}
@@ -0,0 +1,127 @@
+package org.box.metadata.cli.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.cli.Options;
+import org.box.metadata.cli.impl.BindingPlan.FieldBinding;
+
+/**
+ * <p>
+ * A lookup table of options precompiled for {@link NativeParser}.
+ * Both short and full option names are mapped to the same {@link Entry}
+ * which holds field bindings of the configuration and the command.
+ * </p>
+ *
+ * <p>
+ * The table is immutable once created.
+ * </p>
+ *
+ * @see NativeParser
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+final class OptionTable {
+
+	/**
+	 * An option with its bindings
+	 */
+	static final class Entry {
+
+		final String key;
+		final boolean hasArg;
+		final FieldBinding[] cfgBindings;
+		final FieldBinding[] commandBindings;
+
+		private Entry(String key, boolean hasArg,
+				FieldBinding[] cfgBindings, FieldBinding[] commandBindings) {
+			this.key = key;
+			this.hasArg = hasArg;
+			this.cfgBindings = cfgBindings;
+			this.commandBindings = commandBindings;
+		}
+	}
+
+	private static final FieldBinding[] NO_BINDINGS = new FieldBinding[0];
+
+	private final HashMap<String, Entry> entries;
+
+	private final Options options;
+
+	/**
+	 * Compiles a new table
+	 *
+	 * @param options
+	 * 			- the option set of a command or the root
+	 * @param cfgBinding
+	 * 			- a binding plan of the configuration class
+	 * @param commandBinding
+	 * 			- a binding plan of the command type or <code>null</code>
+	 */
+	OptionTable(Options options, BindingPlan cfgBinding, BindingPlan commandBinding) {
+		this.options = options;
+
+		IdentityHashMap<org.apache.commons.cli.Option, List<FieldBinding>> cfgs = new IdentityHashMap<>();
+		IdentityHashMap<org.apache.commons.cli.Option, List<FieldBinding>> cmds = new IdentityHashMap<>();
+
+		collect(options, cfgBinding, cfgs);
+		if (commandBinding != null)
+			collect(options, commandBinding, cmds);
+
+		entries = new HashMap<>();
+		for (Object o : options.getOptions()) {
+			org.apache.commons.cli.Option opt = (org.apache.commons.cli.Option) o;
+			Entry e = new Entry(opt.getOpt() != null ? opt.getOpt() : opt.getLongOpt(),
+					opt.hasArg(), toArray(cfgs.get(opt)), toArray(cmds.get(opt)));
+			if (opt.getOpt() != null)
+				entries.put(opt.getOpt(), e);
+			if (opt.getLongOpt() != null)
+				entries.put(opt.getLongOpt(), e);
+		}
+	}
+
+	private static void collect(Options options, BindingPlan plan,
+			Map<org.apache.commons.cli.Option, List<FieldBinding>> map) {
+		for (FieldBinding b : plan.getOptions()) {
+			org.apache.commons.cli.Option opt = options.getOption(b.getShortName());
+			if (opt == null)
+				opt = options.getOption(b.getFullName());
+			if (opt == null)
+				continue;
+
+			List<FieldBinding> list = map.get(opt);
+			if (list == null)
+				map.put(opt, list = new ArrayList<>(1));
+			list.add(b);
+		}
+	}
+
+	private static FieldBinding[] toArray(List<FieldBinding> list) {
+		return list == null ? NO_BINDINGS : list.toArray(new FieldBinding[list.size()]);
+	}
+
+	/**
+	 * Looks up an option by a name without leading hyphens
+	 *
+	 * @param name
+	 * 			- a short or full name of the option
+	 *
+	 * @return an entry or <code>null</code> if no such option
+	 */
+	Entry get(String name) {
+		return entries.get(name);
+	}
+
+	/**
+	 * The option set the table was compiled from
+	 *
+	 * @return commons-cli options
+	 */
+	Options getOptions() {
+		return options;
+	}
+}
@@ -0,0 +1,371 @@
+package org.box.metadata.cli.impl;
+
+import java.util.HashMap;
+
+import org.box.metadata.cli.annotation.Argument;
+import org.box.metadata.cli.annotation.Option;
+import org.box.metadata.cli.exception.ParseException;
+import org.box.metadata.cli.impl.BindingPlan.Accessor;
+import org.box.metadata.cli.impl.BindingPlan.PrimitiveAccessor;
+import org.box.metadata.cli.util.CLIUtil;
+import org.box.metadata.cli.util.EnumTable;
+
+/**
+ * <p>
+ * Converts a string value of an {@link Option} or an {@link Argument}
+ * to the field type. A converter is picked once per field when its
+ * {@link BindingPlan} is compiled, so the type is not inspected again
+ * on parsing.
+ * </p>
+ *
+ * <p>
+ * Converters of primitive types write the parsed value through
+ * {@link PrimitiveAccessor} if the field's accessor supports it, so
+ * the value is never boxed.
+ * </p>
+ *
+ * <p>
+ * Supported types are <code>String</code>, enums, <code>boolean</code>,
+ * <code>byte</code>, <code>short</code>, <code>int</code>, <code>long</code>,
+ * <code>float</code>, <code>double</code> and their wrappers.
+ * </p>
+ *
+ * @see BindingPlan
+ * @see CLIUtil#autoCast(Class, String, String, String)
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public abstract class ValueConverter {
+
+	/**
+	 * Passes the string as is, used for unsupported types
+	 */
+	private static final ValueConverter STRING = new ValueConverter("string") {
+		@Override
+		public Object convert(String value, String option, String argument) {
+			return value;
+		}
+	};
+
+	private static final ValueConverter BOOLEAN = new ValueConverter("boolean") {
+		@Override
+		public Object convert(String value, String option, String argument) throws ParseException {
+			return parseBoolean(value, option, argument);
+		}
+
+		@Override
+		public void inject(Accessor accessor, Object target, String value,
+				String option, String argument) throws Exception {
+			if (accessor instanceof PrimitiveAccessor)
+				((PrimitiveAccessor) accessor).setBoolean(target, parseBoolean(value, option, argument));
+			else
+				accessor.set(target, convert(value, option, argument));
+		}
+
+		private boolean parseBoolean(String value, String option, String argument) throws ParseException {
+			if ("true".equalsIgnoreCase(value) || "1".equals(value))
+				return true;
+			else if ("false".equalsIgnoreCase(value) || "0".equals(value))
+				return false;
+			throw mismatch(value, option, argument);
+		}
+	};
+
+	private static final ValueConverter BYTE = new ValueConverter("byte") {
+		@Override
+		public Object convert(String value, String option, String argument) throws ParseException {
+			return parseByte(value, option, argument);
+		}
+
+		@Override
+		public void inject(Accessor accessor, Object target, String value,
+				String option, String argument) throws Exception {
+			if (accessor instanceof PrimitiveAccessor)
+				((PrimitiveAccessor) accessor).setByte(target, parseByte(value, option, argument));
+			else
+				accessor.set(target, convert(value, option, argument));
+		}
+
+		private byte parseByte(String value, String option, String argument) throws ParseException {
+			try {
+				return Byte.parseByte(value);
+			} catch (NumberFormatException e) {
+				throw mismatch(value, option, argument);
+			}
+		}
+	};
+
+	private static final ValueConverter SHORT = new ValueConverter("short") {
+		@Override
+		public Object convert(String value, String option, String argument) throws ParseException {
+			return parseShort(value, option, argument);
+		}
+
+		@Override
+		public void inject(Accessor accessor, Object target, String value,
+				String option, String argument) throws Exception {
+			if (accessor instanceof PrimitiveAccessor)
+				((PrimitiveAccessor) accessor).setShort(target, parseShort(value, option, argument));
+			else
+				accessor.set(target, convert(value, option, argument));
+		}
+
+		private short parseShort(String value, String option, String argument) throws ParseException {
+			try {
+				return Short.parseShort(value);
+			} catch (NumberFormatException e) {
+				throw mismatch(value, option, argument);
+			}
+		}
+	};
+
+	private static final ValueConverter INT = new ValueConverter("integer") {
+		@Override
+		public Object convert(String value, String option, String argument) throws ParseException {
+			return parseInt(value, option, argument);
+		}
+
+		@Override
+		public void inject(Accessor accessor, Object target, String value,
+				String option, String argument) throws Exception {
+			if (accessor instanceof PrimitiveAccessor)
+				((PrimitiveAccessor) accessor).setInt(target, parseInt(value, option, argument));
+			else
+				accessor.set(target, convert(value, option, argument));
+		}
+
+		private int parseInt(String value, String option, String argument) throws ParseException {
+			try {
+				return Integer.parseInt(value);
+			} catch (NumberFormatException e) {
+				throw mismatch(value, option, argument);
+			}
+		}
+	};
+
+	private static final ValueConverter LONG = new ValueConverter("long") {
+		@Override
+		public Object convert(String value, String option, String argument) throws ParseException {
+			return parseLong(value, option, argument);
+		}
+
+		@Override
+		public void inject(Accessor accessor, Object target, String value,
+				String option, String argument) throws Exception {
+			if (accessor instanceof PrimitiveAccessor)
+				((PrimitiveAccessor) accessor).setLong(target, parseLong(value, option, argument));
+			else
+				accessor.set(target, convert(value, option, argument));
+		}
+
+		private long parseLong(String value, String option, String argument) throws ParseException {
+			try {
+				return Long.parseLong(value);
+			} catch (NumberFormatException e) {
+				throw mismatch(value, option, argument);
+			}
+		}
+	};
+
+	private static final ValueConverter FLOAT = new ValueConverter("float") {
+		@Override
+		public Object convert(String value, String option, String argument) throws ParseException {
+			return parseFloat(value, option, argument);
+		}
+
+		@Override
+		public void inject(Accessor accessor, Object target, String value,
+				String option, String argument) throws Exception {
+			if (accessor instanceof PrimitiveAccessor)
+				((PrimitiveAccessor) accessor).setFloat(target, parseFloat(value, option, argument));
+			else
+				accessor.set(target, convert(value, option, argument));
+		}
+
+		private float parseFloat(String value, String option, String argument) throws ParseException {
+			try {
+				return Float.parseFloat(value);
+			} catch (NumberFormatException e) {
+				throw mismatch(value, option, argument);
+			}
+		}
+	};
+
+	private static final ValueConverter DOUBLE = new ValueConverter("double") {
+		@Override
+		public Object convert(String value, String option, String argument) throws ParseException {
+			return parseDouble(value, option, argument);
+		}
+
+		@Override
+		public void inject(Accessor accessor, Object target, String value,
+				String option, String argument) throws Exception {
+			if (accessor instanceof PrimitiveAccessor)
+				((PrimitiveAccessor) accessor).setDouble(target, parseDouble(value, option, argument));
+			else
+				accessor.set(target, convert(value, option, argument));
+		}
+
+		private double parseDouble(String value, String option, String argument) throws ParseException {
+			try {
+				return Double.parseDouble(value);
+			} catch (NumberFormatException e) {
+				throw mismatch(value, option, argument);
+			}
+		}
+	};
+
+	/**
+	 * Converts to an enum constant ignoring case
+	 */
+	private static final class EnumConverter extends ValueConverter {
+
+		private final EnumTable table;
+
+		EnumConverter(Class<?> type) {
+			super(null);
+			this.table = EnumTable.of(type);
+		}
+
+		@Override
+		public Object convert(String value, String option, String argument) throws ParseException {
+			Object val = table.get(value);
+			if (val != null)
+				return val;
+
+			if (option != null)
+				throw new ParseException("Option '%s' expected one of the: [%s] but was: '%s'",
+						option, table.getConstants(), value);
+			else if (argument != null)
+				throw new ParseException("Argument '%s' expected one of the: [%s] but was: '%s'",
+						argument, table.getConstants(), value);
+			else
+				throw new IllegalStateException();
+		}
+	}
+
+	private static final HashMap<Class<?>, ValueConverter> BASE_TYPES = new HashMap<>();
+
+	static {
+		BASE_TYPES.put(String.class, STRING);
+		BASE_TYPES.put(boolean.class, BOOLEAN);
+		BASE_TYPES.put(byte.class, BYTE);
+		BASE_TYPES.put(short.class, SHORT);
+		BASE_TYPES.put(int.class, INT);
+		BASE_TYPES.put(long.class, LONG);
+		BASE_TYPES.put(float.class, FLOAT);
+		BASE_TYPES.put(double.class, DOUBLE);
+		// wrappers take the boxed path only
+		BASE_TYPES.put(Boolean.class, boxed(BOOLEAN));
+		BASE_TYPES.put(Byte.class, boxed(BYTE));
+		BASE_TYPES.put(Short.class, boxed(SHORT));
+		BASE_TYPES.put(Integer.class, boxed(INT));
+		BASE_TYPES.put(Long.class, boxed(LONG));
+		BASE_TYPES.put(Float.class, boxed(FLOAT));
+		BASE_TYPES.put(Double.class, boxed(DOUBLE));
+	}
+
+	/**
+	 * Converters of supported types, or {@link #STRING} for the rest
+	 */
+	private static final ClassValue<ValueConverter> CONVERTERS = new ClassValue<ValueConverter>() {
+		@Override
+		protected ValueConverter computeValue(Class<?> type) {
+			if (type.isEnum())
+				return new EnumConverter(type);
+			ValueConverter c = BASE_TYPES.get(type);
+			return c != null ? c : STRING;
+		}
+	};
+
+	private final String expected;
+
+	private ValueConverter(String expected) {
+		this.expected = expected;
+	}
+
+	/**
+	 * Returns a converter of the given type. Values of unsupported types
+	 * are passed as is.
+	 *
+	 * @param type
+	 * 			- a field type
+	 *
+	 * @return a shared converter
+	 */
+	public static ValueConverter of(Class<?> type) {
+		return CONVERTERS.get(type);
+	}
+
+	/**
+	 * Checks that a value of an {@link Option} or an {@link Argument} can
+	 * be converted to the given type
+	 *
+	 * @param type
+	 * 			- a field type
+	 *
+	 * @return true if the type is supported
+	 */
+	public static boolean isSupported(Class<?> type) {
+		return type == String.class || CONVERTERS.get(type) != STRING;
+	}
+
+	/**
+	 * Converts a string value
+	 *
+	 * @param value
+	 * 			- a value from the Command Line
+	 * @param option
+	 * 			- a key of the option having the value, or <code>null</code>
+	 * @param argument
+	 * 			- a name of the argument having the value, or <code>null</code>
+	 *
+	 * @return a converted value, boxed for primitive types
+	 *
+	 * @throws ParseException
+	 * 			if the value doesn't fit the type
+	 */
+	public abstract Object convert(String value, String option, String argument)
+			throws ParseException;
+
+	/**
+	 * Converts a string value and writes it into the target
+	 *
+	 * @param accessor
+	 * 			- an accessor of the target's field
+	 * @param target
+	 * 			- an object to inject the value into
+	 *
+	 * @throws ParseException
+	 * 			if the value doesn't fit the type
+	 * @throws Exception
+	 * 			if the accessor fails
+	 *
+	 * @see #convert(String, String, String)
+	 */
+	public void inject(Accessor accessor, Object target, String value,
+			String option, String argument) throws Exception {
+		accessor.set(target, convert(value, option, argument));
+	}
+
+	ParseException mismatch(String value, String option, String argument) {
+		if (option != null)
+			return new ParseException("Option '%s' expected %s value but was: '%s'",
+					option, expected, value);
+		else if (argument != null)
+			return new ParseException("Argument '%s' expected %s value but was: '%s'",
+					argument, expected, value);
+		else
+			throw new IllegalStateException();
+	}
+
+	private static ValueConverter boxed(final ValueConverter primitive) {
+		return new ValueConverter(primitive.expected) {
+			@Override
+			public Object convert(String value, String option, String argument) throws ParseException {
+				return primitive.convert(value, option, argument);
+			}
+		};
+	}
+}
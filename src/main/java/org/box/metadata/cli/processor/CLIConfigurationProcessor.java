@@ -0,0 +1,597 @@
+package org.box.metadata.cli.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.JavaFileObject;
+
+import org.box.metadata.cli.annotation.Argument;
+import org.box.metadata.cli.annotation.Arguments;
+import org.box.metadata.cli.annotation.CLIConfiguration;
+import org.box.metadata.cli.annotation.Command;
+import org.box.metadata.cli.annotation.Option;
+import org.box.metadata.cli.impl.ModelCompiler;
+import org.box.metadata.cli.util.CLIUtil;
+
+/**
+ * <p>
+ * An annotation processor which validates {@link CLIConfiguration} classes
+ * at build time and generates a {@link ModelCompiler} for each of them.
+ * </p>
+ *
+ * <p>
+ * A configuration error, e.g. an invalid command name or an unsupported
+ * field type, is reported as a compilation error on the annotated element.
+ * The generated <code>&lt;cfgClass&gt;_CLIModel</code> builds commands,
+ * options and binding plans without reflection: fields are assigned and
+ * classes are instantiated directly where they are accessible from the
+ * configuration's package, reflective accessors are used otherwise.
+ * {@link CLIUtil#compileCommandsModel} picks the generated compiler up
+ * automatically.
+ * </p>
+ *
+ * <p>
+ * The processor is not registered as a service, to enable it pass
+ * <code>-processor org.box.metadata.cli.processor.CLIConfigurationProcessor</code>
+ * to javac or list it in the build's annotation processor configuration.
+ * </p>
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+@SupportedAnnotationTypes("org.box.metadata.cli.annotation.CLIConfiguration")
+public class CLIConfigurationProcessor extends AbstractProcessor {
+
+	private static final String COMMAND = Command.class.getName();
+
+	private static final String STRING_ARRAY = "java.lang.String[]";
+
+	private static final TypeKind[] PRIMITIVES = {TypeKind.BOOLEAN, TypeKind.BYTE,
+		TypeKind.SHORT, TypeKind.INT, TypeKind.LONG, TypeKind.FLOAT, TypeKind.DOUBLE};
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for (Element e : roundEnv.getElementsAnnotatedWith(CLIConfiguration.class)) {
+			if (e.getKind() != ElementKind.CLASS)
+				continue;
+
+			TypeElement cfgClass = (TypeElement) e;
+			Generator g = new Generator(cfgClass);
+			if (g.validate())
+				g.generate();
+		}
+		return false;
+	}
+
+	/**
+	 * Validates a single configuration class and writes its compiler
+	 */
+	private final class Generator {
+
+		private final TypeElement cfgClass;
+		private final CLIConfiguration cfg;
+		private final PackageElement pkg;
+		private final String compilerName;
+
+		private final StringBuilder setters = new StringBuilder();
+		private final Map<TypeKind, StringBuilder> primitiveSetters = new EnumMap<>(TypeKind.class);
+		private final StringBuilder constructors = new StringBuilder();
+		private int ids;
+
+		/** set if the compiler cannot be generated, but the class is valid */
+		private String unsupported;
+
+		Generator(TypeElement cfgClass) {
+			this.cfgClass = cfgClass;
+			this.cfg = cfgClass.getAnnotation(CLIConfiguration.class);
+			this.pkg = processingEnv.getElementUtils().getPackageOf(cfgClass);
+
+			String binaryName = processingEnv.getElementUtils().getBinaryName(cfgClass).toString();
+			String flat = CLIUtil.generatedCompilerName(binaryName);
+			this.compilerName = pkg.isUnnamed() ? flat
+					: flat.substring(pkg.getQualifiedName().length() + 1);
+		}
+
+		/**
+		 * Checks the class the same way as the runtime compilation does
+		 *
+		 * @return true if no errors found
+		 */
+		boolean validate() {
+			boolean valid = validateFields(cfgClass);
+			Set<TypeElement> validated = new HashSet<>();
+
+			for (VariableElement f : fields(cfgClass)) {
+				Command cmd = f.getAnnotation(Command.class);
+				if (cmd == null)
+					continue;
+
+				String name = cmd.name().trim();
+				if ("".equals(name)) {
+					if ("".equals(cfg.name().trim()))
+						valid = error(f, "default command (command name == \"\") cannot be embedded (app name ==\"\")");
+				} else if (CLIUtil.validateCommandName(name) != null)
+					valid = error(f, CLIUtil.validateCommandName(name));
+
+				TypeElement type = typeOf(f);
+				if (type == null)
+					valid = error(f, "@Command Field '" + f.getSimpleName() + "' shall be of a class type");
+				else if (validated.add(type))
+					valid &= validateFields(type);
+			}
+			return valid;
+		}
+
+		private boolean validateFields(TypeElement type) {
+			boolean valid = true;
+			for (VariableElement f : fields(type)) {
+				Option o = f.getAnnotation(Option.class);
+				if (o != null) {
+					String nameError = CLIUtil.validateOptionShortName(o.shortName());
+					if (nameError != null)
+						valid = error(f, nameError);
+
+					nameError = CLIUtil.validateOptionFullName(o.fullName());
+					if (nameError != null)
+						valid = error(f, nameError);
+
+					String t = typeName(f.asType());
+					if (!o.hasArguments() && !"boolean".equals(t) && !"java.lang.Boolean".equals(t))
+						valid = error(f, String.format("@Option Field '%s' has an incompatible field type. "
+								+ "Valid is one of [boolean, Boolean].", f.getSimpleName()));
+					else if (o.hasArguments() && !isValueType(f.asType()))
+						valid = error(f, String.format("@Option Field '%s' has an incompatible field type.",
+								f.getSimpleName()));
+				}
+
+				if (f.getAnnotation(Argument.class) != null && !isValueType(f.asType()))
+					valid = error(f, String.format("@Argument Field '%s' has an incompatible field type.",
+							f.getSimpleName()));
+
+				if (f.getAnnotation(Arguments.class) != null
+						&& !STRING_ARRAY.equals(typeName(f.asType())))
+					valid = error(f, String.format("@Arguments Field '%s' has an incompatible field type. "
+							+ "Valid 'String[]' is allowed.", f.getSimpleName()));
+			}
+			return valid;
+		}
+
+		private boolean isValueType(TypeMirror type) {
+			if (CLIUtil.isValueType(typeName(type)))
+				return true;
+			TypeElement e = asElement(type);
+			return e != null && e.getKind() == ElementKind.ENUM;
+		}
+
+		/**
+		 * Writes the <code>&lt;cfgClass&gt;_CLIModel</code> source
+		 */
+		void generate() {
+			String body = compileBody();
+			if (unsupported != null) {
+				processingEnv.getMessager().printMessage(Kind.WARNING,
+						"CLI model of " + cfgClass.getQualifiedName()
+						+ " is not generated, the runtime compilation is used: " + unsupported,
+						cfgClass);
+				return;
+			}
+
+			StringBuilder src = new StringBuilder();
+			if (!pkg.isUnnamed())
+				src.append("package ").append(pkg.getQualifiedName()).append(";\n\n");
+
+			src.append("import org.apache.commons.cli.Options;\n");
+			src.append("import org.box.metadata.cli.annotation.Argument;\n");
+			src.append("import org.box.metadata.cli.impl.Annotations;\n");
+			src.append("import org.box.metadata.cli.impl.BindingPlan;\n");
+			src.append("import org.box.metadata.cli.impl.BindingPlan.FieldBinding;\n");
+			src.append("import org.box.metadata.cli.impl.DefaultConfigurationModel;\n");
+			src.append("import org.box.metadata.cli.impl.LayeredOptions;\n");
+			src.append("import org.box.metadata.cli.impl.ModelCompiler;\n");
+			src.append("import org.box.metadata.cli.util.CLIUtil;\n\n");
+
+			src.append("/**\n");
+			src.append(" * Generated by ").append(CLIConfigurationProcessor.class.getName())
+					.append(" from {@link ").append(cfgClass.getQualifiedName()).append("}. Do not edit.\n");
+			src.append(" */\n");
+			src.append("public final class ").append(compilerName).append(" implements ModelCompiler {\n\n");
+
+			src.append(body);
+
+			src.append("\tprivate static final class Binder implements BindingPlan.PrimitiveAccessor, BindingPlan.Instantiator {\n\n");
+			src.append("\t\tprivate final int id;\n\n");
+			src.append("\t\tBinder(int id) {\n\t\t\tthis.id = id;\n\t\t}\n\n");
+			src.append("\t\t@Override\n");
+			src.append("\t\tpublic void set(Object target, Object value) throws Exception {\n");
+			src.append("\t\t\tswitch (id) {\n");
+			src.append(setters);
+			src.append("\t\t\tdefault:\n\t\t\t\tthrow new IllegalStateException(\"no field #\" + id);\n");
+			src.append("\t\t\t}\n\t\t}\n\n");
+			for (TypeKind kind : PRIMITIVES) {
+				String type = kind.name().toLowerCase(Locale.ENGLISH);
+				src.append("\t\t@Override\n");
+				src.append("\t\tpublic void set").append(Character.toUpperCase(type.charAt(0)))
+						.append(type.substring(1)).append("(Object target, ").append(type)
+						.append(" value) throws Exception {\n");
+				src.append("\t\t\tswitch (id) {\n");
+				if (primitiveSetters.containsKey(kind))
+					src.append(primitiveSetters.get(kind));
+				src.append("\t\t\tdefault:\n\t\t\t\tthrow new IllegalStateException(\"no ")
+						.append(type).append(" field #\" + id);\n");
+				src.append("\t\t\t}\n\t\t}\n\n");
+			}
+
+			src.append("\t\t@Override\n");
+			src.append("\t\tpublic Object newInstance() throws Exception {\n");
+			src.append("\t\t\tswitch (id) {\n");
+			src.append(constructors);
+			src.append("\t\t\tdefault:\n\t\t\t\tthrow new IllegalStateException(\"no class #\" + id);\n");
+			src.append("\t\t\t}\n\t\t}\n");
+			src.append("\t}\n");
+			src.append("}\n");
+
+			String name = pkg.isUnnamed() ? compilerName
+					: pkg.getQualifiedName() + "." + compilerName;
+			try {
+				JavaFileObject file = processingEnv.getFiler().createSourceFile(name, cfgClass);
+				Writer w = file.openWriter();
+				try {
+					w.write(src.toString());
+				} finally {
+					w.close();
+				}
+			} catch (IOException e) {
+				processingEnv.getMessager().printMessage(Kind.ERROR,
+						"Cannot write " + name + ": " + e.getMessage(), cfgClass);
+			}
+		}
+
+		private String compileBody() {
+			String cfgName = literal(cfgClass);
+
+			StringBuilder b = new StringBuilder();
+			b.append("\t@Override\n");
+			b.append("\tpublic void compile(DefaultConfigurationModel model) {\n");
+			b.append("\t\tBindingPlan cfgBinding = ").append(plan(cfgClass)).append(";\n");
+			b.append("\t\tOptions rootOptions = rootOptions();\n");
+			b.append("\t\tOptions options;\n");
+
+			for (VariableElement f : fields(cfgClass)) {
+				Command cmd = f.getAnnotation(Command.class);
+				if (cmd == null)
+					continue;
+
+				TypeElement type = typeOf(f);
+				b.append("\n\t\t// ").append(f.getSimpleName()).append('\n');
+				b.append("\t\toptions = new LayeredOptions(rootOptions);\n");
+				options(b, type, "options");
+				b.append("\t\tCLIUtil.addCompiledCommand(model,\n");
+				b.append("\t\t\t\tAnnotations.command(").append(quote(cmd.name())).append(", ")
+						.append(quote(cmd.description())).append(", Annotations.handlers(")
+						.append(handlers(f)).append(")),\n");
+				b.append("\t\t\t\toptions,\n");
+				b.append("\t\t\t\t").append(arguments(type)).append(",\n");
+				b.append("\t\t\t\t").append(quote(syntax(type))).append(",\n");
+				b.append("\t\t\t\t").append(quote(cfg.name())).append(", ")
+						.append(cfgName).append(".class, cfgBinding,\n");
+				b.append("\t\t\t\t").append(plan(type)).append(",\n");
+				b.append("\t\t\t\tBindingPlan.command(").append(literal(type)).append(".class, ")
+						.append(accessor(f)).append("));\n");
+			}
+
+			b.append("\n");
+			b.append("\t\tmodel.setRootCLIOptions(rootOptions);\n");
+			b.append("\t\tmodel.setRootArgumentsSyntax(").append(quote(syntax(cfgClass))).append(");\n");
+			b.append("\t\tmodel.setRootArguments(").append(arguments(cfgClass)).append(");\n");
+			b.append("\t\tmodel.setRootBindingPlan(cfgBinding);\n");
+			b.append("\t}\n\n");
+
+			b.append("\tprivate static Options rootOptions() {\n");
+			b.append("\t\tOptions options = new Options();\n");
+			options(b, cfgClass, "options");
+			b.append("\t\treturn options;\n");
+			b.append("\t}\n\n");
+			return b.toString();
+		}
+
+		private void options(StringBuilder b, TypeElement type, String var) {
+			for (VariableElement f : fields(type)) {
+				Option o = f.getAnnotation(Option.class);
+				if (o != null)
+					b.append("\t\t").append(var).append(".addOption(new org.apache.commons.cli.Option(")
+							.append(quote(o.shortName())).append(", ")
+							.append(quote(o.fullName())).append(", ")
+							.append(o.hasArguments()).append(", ")
+							.append(quote(o.description())).append("));\n");
+			}
+		}
+
+		private String arguments(TypeElement type) {
+			List<Argument> args = new ArrayList<>();
+			for (VariableElement f : fields(type)) {
+				Argument a = f.getAnnotation(Argument.class);
+				if (a != null)
+					args.add(a);
+			}
+
+			Collections.sort(args, new Comparator<Argument>() {
+
+				@Override
+				public int compare(Argument o1, Argument o2) {
+					return Integer.compare(o1.index(), o2.index());
+				}
+			});
+
+			StringBuilder b = new StringBuilder("new Argument[] {");
+			for (int i = 0; i < args.size(); i++) {
+				Argument a = args.get(i);
+				b.append(i == 0 ? "" : ", ").append("Annotations.argument(").append(a.index())
+						.append(", ").append(quote(a.name())).append(", ").append(a.required()).append(')');
+			}
+			return b.append('}').toString();
+		}
+
+		private String syntax(TypeElement type) {
+			for (VariableElement f : fields(type)) {
+				Arguments a = f.getAnnotation(Arguments.class);
+				if (a != null)
+					return a.syntax();
+			}
+			return null;
+		}
+
+		private String handlers(VariableElement f) {
+			StringBuilder b = new StringBuilder();
+			for (AnnotationMirror m : f.getAnnotationMirrors()) {
+				if (!COMMAND.equals(asElement(m.getAnnotationType()).getQualifiedName().toString()))
+					continue;
+				for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> e
+						: m.getElementValues().entrySet()) {
+					if (!"handlers".equals(e.getKey().getSimpleName().toString()))
+						continue;
+					@SuppressWarnings("unchecked")
+					List<? extends AnnotationValue> values = (List<? extends AnnotationValue>) e.getValue().getValue();
+					for (AnnotationValue v : values) {
+						TypeElement handler = asElement((TypeMirror) v.getValue());
+						b.append(b.length() == 0 ? "" : ", ").append(literal(handler)).append(".class");
+					}
+				}
+			}
+			return b.toString();
+		}
+
+		/**
+		 * Returns a source expression creating the binding plan of the type
+		 */
+		private String plan(TypeElement type) {
+			String name = literal(type);
+			StringBuilder opts = new StringBuilder();
+			StringBuilder args = new StringBuilder();
+			for (VariableElement f : fields(type)) {
+				Option o = f.getAnnotation(Option.class);
+				if (o != null)
+					opts.append(opts.length() == 0 ? "" : ",\n\t\t\t\t\t\t")
+							.append("BindingPlan.option(").append(quote(o.shortName())).append(", ")
+							.append(quote(o.fullName())).append(", ").append(o.hasArguments()).append(", ")
+							.append(classLiteral(f.asType())).append(", ").append(accessor(f)).append(')');
+
+				Argument a = f.getAnnotation(Argument.class);
+				if (a != null)
+					args.append(args.length() == 0 ? "" : ",\n\t\t\t\t\t\t")
+							.append("BindingPlan.argument(").append(a.index()).append(", ")
+							.append(quote(a.name())).append(", ")
+							.append(classLiteral(f.asType())).append(", ").append(accessor(f)).append(')');
+
+				if (f.getAnnotation(Arguments.class) != null)
+					args.append(args.length() == 0 ? "" : ",\n\t\t\t\t\t\t")
+							.append("BindingPlan.arguments(").append(accessor(f)).append(')');
+			}
+
+			return "new BindingPlan(" + name + ".class, " + instantiator(type) + ",\n"
+					+ "\t\t\t\t\tnew FieldBinding[] {" + opts + "},\n"
+					+ "\t\t\t\t\tnew FieldBinding[] {" + args + "})";
+		}
+
+		/**
+		 * Returns a source expression of a field's accessor. A direct
+		 * assignment is generated if the field is accessible.
+		 */
+		private String accessor(VariableElement f) {
+			TypeElement owner = (TypeElement) f.getEnclosingElement();
+			if (f.getModifiers().contains(Modifier.FINAL)
+					|| f.getModifiers().contains(Modifier.STATIC)
+					|| !isAccessible(f) || !isAccessible(owner)
+					|| !isAccessible(f.asType()))
+				return "BindingPlan.accessor(" + literal(owner) + ".class, "
+						+ quote(f.getSimpleName().toString()) + ")";
+
+			int id = ids++;
+			setters.append("\t\t\tcase ").append(id).append(":\n");
+			setters.append("\t\t\t\t((").append(literal(owner)).append(") target).")
+					.append(f.getSimpleName()).append(" = (").append(castType(f.asType()))
+					.append(") value;\n");
+			setters.append("\t\t\t\treturn;\n");
+
+			TypeKind kind = f.asType().getKind();
+			if (kind.isPrimitive()) {
+				StringBuilder b = primitiveSetters.get(kind);
+				if (b == null)
+					primitiveSetters.put(kind, b = new StringBuilder());
+				b.append("\t\t\tcase ").append(id).append(":\n");
+				b.append("\t\t\t\t((").append(literal(owner)).append(") target).")
+						.append(f.getSimpleName()).append(" = value;\n");
+				b.append("\t\t\t\treturn;\n");
+			}
+			return "new Binder(" + id + ")";
+		}
+
+		/**
+		 * Returns a source expression of a type's instantiator. A constructor
+		 * call is generated if the default constructor is accessible.
+		 */
+		private String instantiator(TypeElement type) {
+			boolean direct = isAccessible(type)
+					&& !type.getModifiers().contains(Modifier.ABSTRACT)
+					&& (type.getNestingKind().isNested() ? type.getModifiers().contains(Modifier.STATIC) : true);
+
+			if (direct) {
+				direct = false;
+				for (ExecutableElement c : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+					if (c.getParameters().isEmpty() && isAccessible(c))
+						direct = true;
+				}
+			}
+
+			if (!direct)
+				return "BindingPlan.instantiator(" + literal(type) + ".class)";
+
+			int id = ids++;
+			constructors.append("\t\t\tcase ").append(id).append(":\n");
+			constructors.append("\t\t\t\treturn new ").append(literal(type)).append("();\n");
+			return "new Binder(" + id + ")";
+		}
+
+		/**
+		 * Checks the element is accessible from the generated compiler's package
+		 */
+		private boolean isAccessible(Element e) {
+			for (Element i = e; i != null && i.getKind() != ElementKind.PACKAGE; i = i.getEnclosingElement()) {
+				Set<Modifier> m = i.getModifiers();
+				if (m.contains(Modifier.PRIVATE))
+					return false;
+				if (!m.contains(Modifier.PUBLIC)
+						&& !processingEnv.getElementUtils().getPackageOf(i).equals(pkg))
+					return false;
+				if (i.getKind() != ElementKind.CLASS && i.getKind() != ElementKind.ENUM
+						&& i.getKind() != ElementKind.INTERFACE && i != e)
+					return false;
+			}
+			return true;
+		}
+
+		private boolean isAccessible(TypeMirror type) {
+			if (type.getKind().isPrimitive())
+				return true;
+			if (type.getKind() == TypeKind.ARRAY)
+				return true; // String[] only
+			TypeElement e = asElement(type);
+			return e != null && isAccessible(e);
+		}
+
+		/**
+		 * Returns a name of the type usable in the generated source. Marks
+		 * the compiler as unsupported if the type is not accessible.
+		 */
+		private String literal(TypeElement type) {
+			if (!isAccessible(type) && unsupported == null)
+				unsupported = type.getQualifiedName() + " is not accessible from " + pkg;
+			return type.getQualifiedName().toString();
+		}
+
+		private String classLiteral(TypeMirror type) {
+			if (type.getKind().isPrimitive() || type.getKind() == TypeKind.ARRAY)
+				return typeName(type) + ".class";
+			return literal(asElement(type)) + ".class";
+		}
+
+		private String castType(TypeMirror type) {
+			if (type.getKind().isPrimitive())
+				return processingEnv.getTypeUtils().boxedClass(
+						processingEnv.getTypeUtils().getPrimitiveType(type.getKind()))
+						.getQualifiedName().toString();
+			return typeName(type);
+		}
+
+		private TypeElement typeOf(VariableElement f) {
+			return f.asType().getKind() == TypeKind.DECLARED ? asElement(f.asType()) : null;
+		}
+
+		private boolean error(Element e, String message) {
+			Messager m = processingEnv.getMessager();
+			m.printMessage(Kind.ERROR, message, e);
+			return false;
+		}
+	}
+
+	private static List<VariableElement> fields(TypeElement type) {
+		return ElementFilter.fieldsIn(type.getEnclosedElements());
+	}
+
+	private static TypeElement asElement(TypeMirror type) {
+		return type.getKind() == TypeKind.DECLARED
+				? (TypeElement) ((DeclaredType) type).asElement() : null;
+	}
+
+	private String typeName(TypeMirror type) {
+		return processingEnv.getTypeUtils().erasure(type).toString();
+	}
+
+	/**
+	 * Returns a java literal of the string or <code>null</code>
+	 */
+	private static String quote(String s) {
+		if (s == null)
+			return "null";
+
+		StringBuilder b = new StringBuilder(s.length() + 2).append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '"':
+				b.append("\\\"");
+				break;
+			case '\\':
+				b.append("\\\\");
+				break;
+			case '\n':
+				b.append("\\n");
+				break;
+			case '\r':
+				b.append("\\r");
+				break;
+			case '\t':
+				b.append("\\t");
+				break;
+			default:
+				if (c < 0x20 || c > 0x7e)
+					b.append(String.format("\\u%04x", (int) c));
+				else
+					b.append(c);
+			}
+		}
+		return b.append('"').toString();
+	}
+}
@@ -1,18 +1,21 @@
 package org.box.metadata.cli.shell.impl;
 
+import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.Field;
+import java.util.Arrays;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 
 import org.box.metadata.cli.CommandLineParser;
 import org.box.metadata.cli.annotation.Command;
+import org.box.metadata.cli.annotation.HandlerScope;
 import org.box.metadata.cli.exception.InvalidConfigurationException;
 import org.box.metadata.cli.exception.ParseException;
 import org.box.metadata.cli.impl.CommandCompile;
 import org.box.metadata.cli.impl.ConfigurationModel;
 import org.box.metadata.cli.impl.MetaCommandLineParser;
 import org.box.metadata.cli.impl.MetaCommandLineParser.ParserType;
+import org.box.metadata.cli.impl.ModelCache;
 import org.box.metadata.cli.shell.CommandHandler;
 import org.box.metadata.cli.shell.CommandHandlerListener;
 import org.box.metadata.cli.shell.Shell;
@@ -21,8 +24,13 @@ import org.box.metadata.cli.shell.impl.message.ErrorMessageFormatter;
 import org.box.metadata.cli.shell.impl.message.GreetingMessageFormatter;
 import org.box.metadata.cli.shell.impl.message.HelpMessageFormatter;
 import org.box.metadata.cli.shell.impl.message.InfoMessageFormatter;
+import org.box.metadata.cli.shell.impl.input.LineReader;
+import org.box.metadata.cli.shell.impl.input.MappedLineReader;
 import org.box.metadata.cli.shell.impl.message.MessageFormatters;
-import org.box.metadata.cli.util.CLIUtil;
+import org.box.metadata.cli.shell.impl.output.AsyncSink;
+import org.box.metadata.cli.shell.impl.output.BufferedSink;
+import org.box.metadata.cli.shell.impl.output.OutputSink;
+import org.box.metadata.cli.util.Tokens;
 
 /**
  * <p>
@@ -39,6 +47,12 @@ import org.box.metadata.cli.util.CLIUtil;
  */
 @SuppressWarnings("rawtypes")
 public abstract class AbstractShell implements Shell {
+
+	/** the last input token to run a command in background */
+	public static final String BACKGROUND = "&";
+
+	/** a time to wait for killed background jobs on exit, in milliseconds */
+	private static final long JOBS_EXIT_TIMEOUT = 5000;
 	
 	private static final class BasicSellCLIParser extends
 			MetaCommandLineParser<Object> {
@@ -48,28 +62,45 @@ public abstract class AbstractShell implements Shell {
 		}
 
 		public Object processCmd(ShellCommandCompile cmd, String[] args) throws ParseException {
-			org.apache.commons.cli.CommandLine cl;
+			return doParse(cmd, args);
+		}
+	}
 
-			try {
-				Field cField = null;
-					
-				cField = cmd.getFeild();
-				cl = delegate.parse(cmd.getCLIOptions(), 
-						CLIUtil.excludeCommandName(cmd, args));
-
-				checkArgumentsPopulation(cl, model);
-				Object obj = cmd.getCfgClass().newInstance();
-
-				doPopulateConfigurationObject(obj, cmd, cField, cl);
-				
-				return obj;
-			} catch (org.apache.commons.cli.ParseException e) {
-				throw new ParseException(e.getMessage());
-			} catch (InstantiationException e) {
-				throw new InvalidConfigurationException(e);
-			} catch (IllegalAccessException e) {
-				throw new InvalidConfigurationException(e);
-			}
+	/**
+	 * A command input parsed to be executed, keeps the parse failure to
+	 * report it at the command's turn
+	 * 
+	 * @see AbstractShell#parseCommand(String[])
+	 */
+	protected static final class ParsedInput {
+
+		private final String[] args;
+		private final boolean background;
+		private final CommandCompile command;
+		private final Object cfg;
+		private final Throwable failure;
+
+		/** the line of a script, or 0 */
+		int line;
+
+		private ParsedInput(String[] args, boolean background, CommandCompile command, 
+				Object cfg, Throwable failure) {
+			this.args = args;
+			this.background = background;
+			this.command = command;
+			this.cfg = cfg;
+			this.failure = failure;
+		}
+
+		public String[] getArgs() {
+			return args;
+		}
+
+		/**
+		 * @return the command or <code>null</code> if no command is found
+		 */
+		public CommandCompile getCommand() {
+			return command;
 		}
 	}
 
@@ -87,13 +118,34 @@ public abstract class AbstractShell implements Shell {
 
 	private final CommandLineParser parser;
 
+	private final HandlerScopes handlers = new HandlerScopes();
+
+	private final Jobs jobs = new Jobs();
+
+	private volatile OutputSink output;
+
+	private volatile LineReader input;
+
+	private final Object inputLock = new Object();
+
+	/** a thread waiting for the input, guarded by inputLock */
+	private Thread inputThread;
+
+	/** a script is run, the output isn't flushed after each command */
+	private volatile boolean scripting;
+
+	/** a number of script commands parsed ahead, 0 is off */
+	private volatile int parseAhead;
+
+	private volatile ParseCache parseCache;
+
 	protected AbstractShell(ParserType parserType, ConfigurationModel model) {
 		this.model = model;
 		parser = createParser(model, parserType);
 	}
 	
 	protected AbstractShell(ParserType parserType, Class... cfgClasses) {
-		model = new ShellCommandsModel(cfgClasses);
+		model = ModelCache.getShellModel(cfgClasses);
 		parser = createParser(model, parserType);
 	}
 	
@@ -108,13 +160,15 @@ public abstract class AbstractShell implements Shell {
 	 */
 	@Override
 	public void run(String[] args) {
+		try {
+			displayGreeting();
 
-		displayGreeting();
-
-		handleUserInput(args);
-
-		mainLoop();
+			handleUserInput(args);
 
+			mainLoop();
+		} finally {
+			dispose();
+		}
 	}
 
 	/*
@@ -126,28 +180,206 @@ public abstract class AbstractShell implements Shell {
 	 */
 	@Override
 	public void runAndExit(String[] args) {
-		if (args.length > 0) 
-			executeCommand(args);
-		else
-			displayHelp(null, new ParseException("no command specified"));
+		try {
+			if (args.length > 0) 
+				executeCommand(args);
+			else
+				displayHelp(null, new ParseException("no command specified"));
+			jobs.waitAll();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			dispose();
+		}
+	}
+
+	/**
+	 * <p>
+	 * Runs the commands of a script file, a command per line. The file is
+	 * memory-mapped and its lines are executed one by one without a greeting, 
+	 * prompts or echo. The output is flushed by the sink's policy, not after
+	 * each command. Blank lines and lines starting with <code>#</code> are
+	 * skipped, a line can be continued by next lines within quotes.
+	 * </p>
+	 * 
+	 * <p>
+	 * With {@link #setParseAhead(int)} next lines are parsed on another 
+	 * thread while a command is executed. The commands are still executed 
+	 * and their errors are reported in the script's order.
+	 * </p>
+	 * 
+	 * <p>
+	 * The script stops on {@link #exit()}. The background jobs are waited for 
+	 * at the end and the shell is closed as by {@link #runAndExit(String[])}.
+	 * The summary is displayed as info.
+	 * </p>
+	 * 
+	 * @return the outcomes of the lines
+	 * 
+	 * @throws IOException
+	 * 			if the script cannot be read
+	 */
+	public ScriptSummary runScript(File script) throws IOException {
+		ScriptSummary summary = new ScriptSummary();
+		long start = System.nanoTime();
+		ScriptInput input = new ScriptInput(new MappedLineReader(script), createTokens());
+		int ahead = canParseAhead() ? parseAhead : 0;
+		scripting = true;
+		try {
+			if (ahead > 0)
+				runPipelined(new ParseAhead(this, input, ahead), summary);
+			else
+				runSequential(input, summary);
+			jobs.waitAll();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			scripting = false;
+			summary.finish(System.nanoTime() - start);
+			displayInfo(summary.toString());
+			dispose();
+		}
+		return summary;
+	}
+
+	private void runSequential(ScriptInput input, ScriptSummary summary) throws IOException {
+		try {
+			String[] tokens;
+			while (!doExit && (tokens = input.next()) != null) {
+				if (tokens == ScriptInput.SKIPPED)
+					summary.skip();
+				else
+					summary.add(input.getLineNumber(), execute(commandInput(tokens)));
+			}
+		} finally {
+			input.close();
+		}
+	}
+
+	private void runPipelined(ParseAhead stage, ScriptSummary summary) 
+			throws IOException, InterruptedException {
+		try {
+			Object o;
+			while (!doExit && (o = stage.take()) != null) {
+				if (o == ScriptInput.SKIPPED)
+					summary.skip();
+				else {
+					ParsedInput parsed = (ParsedInput) o;
+					summary.add(parsed.line, executeParsed(parsed));
+				}
+			}
+		} finally {
+			stage.stop();
+		}
+	}
+
+	/**
+	 * Sets a number of script commands parsed ahead of the executed one.
+	 * Parsing ahead is valid when commands don't change how next lines 
+	 * are parsed, e.g. don't add commands to the model.
+	 * 
+	 * @param commands
+	 * 			- a size of the parsed queue, 0 to parse each command at its turn
+	 * 
+	 * @see #runScript(File)
+	 */
+	public void setParseAhead(int commands) {
+		this.parseAhead = commands;
+	}
+
+	public int getParseAhead() {
+		return parseAhead;
+	}
+
+	/**
+	 * Returns false if the input of a command depends on the commands 
+	 * executed before, so it cannot be parsed ahead
+	 */
+	protected boolean canParseAhead() {
+		return true;
+	}
+
+	/**
+	 * Creates a tokenizer of input lines
+	 */
+	protected Tokens createTokens() {
+		return new Tokens();
+	}
+
+	/**
+	 * Converts the tokens of a line into the command input, 
+	 * e.g. resolves a path of the command
+	 */
+	protected String[] commandInput(String[] tokens) {
+		return tokens;
 	}
 
+	/**
+	 * Runs handlers of the command. A handler instance is taken 
+	 * according to its {@link HandlerScope}.
+	 * 
+	 * @throws InvalidConfigurationException
+	 * 			if a handler cannot be constructed
+	 */
 	@SuppressWarnings("unchecked")
 	protected void runHandlers(Command c, Object cfg) throws TerminatedException, ParseException {
 		
 		for (Class<? extends CommandHandler<?>> chc : c.handlers()) {
-			CommandHandler handler = null;
+			CommandHandler handler = handlers.acquire(chc);
+			Throwable failure = null;
 			try {
-				handler = chc.newInstance();
 				handler.validate(cfg, this);
 				fireHandlerStart(c, cfg, handler); // fire about start
 				handler.process(cfg, this);
 				fireHandlerSuccess(c, cfg, handler);
-			} catch (InstantiationException e) {
-				throw new InvalidConfigurationException(e.getMessage());
-			} catch (IllegalAccessException e) {
-				throw new InvalidConfigurationException(e.getMessage());
-			} 
+			} catch (Throwable e) {
+				failure = e;
+				throw e;
+			} finally {
+				Exception e = handlers.release(chc, handler);
+				if (e != null) {
+					if (failure != null)
+						failure.addSuppressed(e);
+					else
+						throw new IllegalStateException("cannot close a handler: " + handler, e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Releases everything the shell holds when it exits: stops the 
+	 * background jobs, disposes the handlers and closes the output.
+	 * Subclasses release their own resources here too.
+	 */
+	protected void dispose() {
+		stopJobs();
+		disposeHandlers();
+		closeOutput();
+	}
+
+	/**
+	 * Kills the background jobs on exit and waits for them a while
+	 */
+	protected void stopJobs() {
+		try {
+			if (!jobs.shutdown(JOBS_EXIT_TIMEOUT))
+				displayInfo("Some background jobs are still running");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Closes handlers kept by the shell, is called when the shell exits
+	 * 
+	 * @see HandlerScope
+	 */
+	protected void disposeHandlers() {
+		try {
+			handlers.dispose();
+		} catch (Exception e) {
+			displayError(null, e);
 		}
 	}
 
@@ -193,27 +425,186 @@ public abstract class AbstractShell implements Shell {
 		
 	}
 
+	/**
+	 * Executes the command of the input. It's called for the user's input 
+	 * and by {@link #runAndExit(String[])}; a script is executed by 
+	 * {@link #execute(String[])} for the outcomes of its commands, or by
+	 * {@link #executeParsed(ParsedInput)} when it's parsed ahead.
+	 * 
+	 * @see #execute(String[])
+	 */
 	protected void executeCommand(String[] args) {
+		execute(args);
+	}
+
+	/**
+	 * Executes the command of the input. The input ending with 
+	 * {@link #BACKGROUND} is parsed at once and executed as a 
+	 * background {@link Job}.
+	 * 
+	 * @return the outcome of the command
+	 */
+	protected CommandStatus execute(String[] args) {
+		return executeParsed(parseCommand(args));
+	}
+
+	/**
+	 * Finds the command of the input and parses its configuration. 
+	 * Nothing is displayed, a failure is kept to {@link #executeParsed(ParsedInput)}.
+	 * Can be called from another thread than the one executing commands.
+	 * 
+	 * @see #setParseCache(int)
+	 */
+	protected ParsedInput parseCommand(String[] args) {
+		boolean background = args.length > 1 && BACKGROUND.equals(args[args.length - 1]);
+		if (background)
+			args = Arrays.copyOf(args, args.length - 1);
+		
 		CommandCompile cc = model.findCommandForInput(args);
+		if (cc == null)
+			return new ParsedInput(args, background, null, null, null);
+		
+		ParseCache cache = parseCache;
+		if (cache != null) {
+			ParseCache.Result e = cache.get(cc, args);
+			if (e != null)
+				return new ParsedInput(args, background, cc, e.cfg, e.failure);
+		}
+		
+		try {
+			ShellCommandCompile scc = ((ShellCommandCompile) cc);
+			Object cfg = ((BasicSellCLIParser)parser).processCmd(scc, args);
+			if (cache != null)
+				cache.put(cc, args, cfg);
+			return new ParsedInput(args, background, cc, cfg, null);
+		} catch (ParseException e) {
+			if (cache != null)
+				cache.put(cc, args, e);
+			return new ParsedInput(args, background, cc, null, e);
+		} catch (Throwable e) {
+			return new ParsedInput(args, background, cc, null, e);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Turns on caching of parsed inputs, for workloads repeating the same 
+	 * command lines. A repeated input of a command isn't parsed, a copy of 
+	 * the cached configuration is passed to the handlers, see {@link ParseCache}.
+	 * </p>
+	 * 
+	 * <p>
+	 * The command is still found for each input, so a change of the commands
+	 * is seen. The cache must be cleared if the parsing of a command is 
+	 * changed otherwise.
+	 * </p>
+	 * 
+	 * @param capacity
+	 * 			- a number of cached inputs, 0 turns the caching off
+	 */
+	public void setParseCache(int capacity) {
+		parseCache = capacity > 0 ? new ParseCache(capacity) : null;
+	}
+
+	/**
+	 * @return the cache of parsed inputs with its counters, or <code>null</code>
+	 * 			if the caching is off
+	 */
+	public ParseCache getParseCache() {
+		return parseCache;
+	}
+
+	/**
+	 * Executes the parsed command or reports its parse failure
+	 * 
+	 * @return the outcome of the command
+	 */
+	protected CommandStatus executeParsed(ParsedInput parsed) {
+		CommandCompile cc = parsed.command;
 		if (cc != null) {
 			Command orig = cc.getOrig();
-			Object cfg = null;
+			Object cfg = parsed.cfg;
 			try {
-				ShellCommandCompile scc = ((ShellCommandCompile) cc);
-				cfg = ((BasicSellCLIParser)parser).processCmd(scc, args);
+				if (parsed.failure != null)
+					throw parsed.failure;
+				if (parsed.background) {
+					executeInBackground(cc, cfg, parsed.args);
+					return CommandStatus.STARTED;
+				}
 				runHandlers(orig, cfg);
+				return CommandStatus.DONE;
 			} catch (ParseException e) {
 				// wrong parameters specified for the command.
 				// the actual command processing is not started yet.
 				displayHelp(cc, e);
+				return CommandStatus.INVALID;
 			} catch (Throwable e) {
 				fireHandlerFailure(orig, cfg, null);
 				displayError(cc, e);
+				return CommandStatus.FAILED;
+			} finally {
+				commandDone();
 			}
-		} else
+		} else {
 			displayInfo(String.format(
 					"No appropriate command has been found for '%s'",
-					args[0]));
+					parsed.args[0]));
+			commandDone();
+			return CommandStatus.NOT_FOUND;
+		}
+	}
+
+	/**
+	 * Flushes the output at the end of a command unless a script is run
+	 */
+	private void commandDone() {
+		if (!scripting)
+			flushOutput();
+	}
+
+	/**
+	 * Runs handlers of the parsed command as a background {@link Job}.
+	 * The listeners are notified from the job's thread.
+	 * 
+	 * @param args
+	 * 			- the input of the command
+	 * 
+	 * @return the started job
+	 */
+	protected Job executeInBackground(final CommandCompile cc, final Object cfg, String[] args) {
+		StringBuilder commandLine = new StringBuilder();
+		for (String arg : args)
+			commandLine.append(commandLine.length() > 0 ? " " : "").append(arg);
+
+		Job started = jobs.submit(commandLine.toString(), new Jobs.Task() {
+			@Override
+			public void run(Job job) throws Exception {
+				Command orig = cc.getOrig();
+				try {
+					runHandlers(orig, cfg);
+				} catch (Exception e) {
+					fireHandlerFailure(orig, cfg, null);
+					if (job.isKilled())
+						displayInfo(String.format("[%d] killed: %s", job.getId(), job.getCommandLine()));
+					else
+						displayError(cc, e);
+					throw e;
+				} finally {
+					flushOutput();
+				}
+				displayInfo(String.format("[%d] done: %s", job.getId(), job.getCommandLine()));
+				flushOutput();
+			}
+		});
+		displayInfo(String.format("[%d] %s", started.getId(), started.getCommandLine()));
+		return started;
+	}
+
+	/**
+	 * Returns background jobs of the shell
+	 */
+	public Jobs getJobs() {
+		return jobs;
 	}
 
 	/**
@@ -224,10 +615,145 @@ public abstract class AbstractShell implements Shell {
 	 */
 	protected void mainLoop() {
 		while (!doExit) {
+			flushOutput();
 			handleUserInput(getUserInput());
 		}
 	}
 
+	/**
+	 * Stops the shell after the current command. A wait for the input 
+	 * is interrupted at once.
+	 */
+	@Override
+	public void exit() {
+		synchronized (inputLock) {
+			doExit = true;
+			if (inputThread != null)
+				inputThread.interrupt();
+		}
+	}
+
+	/**
+	 * Returns the reader of the user's input, <code>System.in</code> 
+	 * by default
+	 */
+	public LineReader getInput() {
+		LineReader i = input;
+		return i != null ? i : LineReader.stdin();
+	}
+
+	/**
+	 * Replaces the reader of the user's input
+	 * 
+	 * @param input
+	 * 			- a reader or <code>null</code> for <code>System.in</code>
+	 */
+	public void setInput(LineReader input) {
+		this.input = input;
+	}
+
+	/**
+	 * Waits for a next line of the user's input. The shell exits at the end
+	 * of the input and when the waiting thread is interrupted, the 
+	 * interruption status is kept then.
+	 * 
+	 * @return the line or <code>null</code> if the shell exits
+	 */
+	protected String readLine() {
+		synchronized (inputLock) {
+			if (doExit)
+				return null;
+			inputThread = Thread.currentThread();
+		}
+		
+		String line = null;
+		boolean interrupted = false;
+		IOException failure = null;
+		try {
+			line = getInput().readLine();
+		} catch (InterruptedException e) {
+			interrupted = true;
+		} catch (IOException e) {
+			failure = e;
+		}
+		
+		synchronized (inputLock) {
+			inputThread = null;
+			if (doExit) {
+				// the interruption by exit() is consumed
+				Thread.interrupted();
+				return null;
+			}
+			if (line == null && failure == null)
+				doExit = true;
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		if (failure != null)
+			throw new RuntimeException(failure);
+		return line;
+	}
+
+	/**
+	 * Returns the sink of messages appended to the shell, it's created 
+	 * on first use
+	 * 
+	 * @see #createOutput()
+	 */
+	public OutputSink getOutput() {
+		OutputSink o = output;
+		if (o == null) {
+			synchronized (this) {
+				if ((o = output) == null)
+					output = o = createOutput();
+			}
+		}
+		return o;
+	}
+
+	/**
+	 * Replaces the sink of messages, the previous one is closed
+	 * 
+	 * @param output
+	 * 			- a new sink or <code>null</code> to create the default one
+	 */
+	public void setOutput(OutputSink output) {
+		OutputSink prev;
+		synchronized (this) {
+			prev = this.output;
+			this.output = output;
+		}
+		if (prev != null && prev != output)
+			prev.close();
+	}
+
+	/**
+	 * Creates the default sink of messages: a buffer of <code>System.out</code>
+	 * written by a background thread. The buffer is flushed when it's full, 
+	 * by time and at the end of each command.
+	 */
+	protected OutputSink createOutput() {
+		return new AsyncSink(new BufferedSink(), AsyncSink.DEFAULT_INTERVAL);
+	}
+
+	/**
+	 * Writes out the appended messages, e.g. at the end of a command and
+	 * before a prompt
+	 */
+	protected void flushOutput() {
+		OutputSink o = output;
+		if (o != null)
+			o.flush();
+	}
+
+	/**
+	 * Flushes and closes the sink of messages when the shell exits, 
+	 * a new one is created on next use
+	 */
+	protected void closeOutput() {
+		setOutput(null);
+	}
+
 	/**
 	 * Prints a greeting message to the user on Shell's run
 	 * @param cfgClass 
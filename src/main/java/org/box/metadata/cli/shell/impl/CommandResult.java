@@ -0,0 +1,96 @@
+package org.box.metadata.cli.shell.impl;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An outcome of a command executed by {@link ShellSession}: the status,
+ * the messages appended to the shell during the execution, the failure 
+ * and the time of each phase.
+ * 
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ * 
+ */
+public final class CommandResult {
+
+	public enum Phase {
+		/** splitting of the input line into tokens */
+		TOKENIZE,
+		/** finding the command and parsing its configuration */
+		PARSE,
+		/** running the handlers */
+		EXECUTE
+	}
+
+	private final CommandStatus status;
+	private final List<String> messages;
+	private final Throwable failure;
+	private final long[] nanos;
+
+	CommandResult(CommandStatus status, List<String> messages, Throwable failure, long[] nanos) {
+		this.status = status;
+		this.messages = Collections.unmodifiableList(messages);
+		this.failure = failure;
+		this.nanos = nanos;
+	}
+
+	public CommandStatus getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return true if the command is done or started in background
+	 */
+	public boolean isSuccessful() {
+		return status == CommandStatus.DONE || status == CommandStatus.STARTED;
+	}
+
+	/**
+	 * @return the messages in order, text appended without a line break 
+	 * 			is joined with the next message
+	 */
+	public List<String> getMessages() {
+		return messages;
+	}
+
+	/**
+	 * @return the messages as lines of text
+	 */
+	public String getOutput() {
+		StringBuilder sb = new StringBuilder();
+		for (String m : messages)
+			sb.append(m).append(System.lineSeparator());
+		return sb.toString();
+	}
+
+	/**
+	 * @return the parse error or the exception of a handler, or <code>null</code>
+	 */
+	public Throwable getFailure() {
+		return failure;
+	}
+
+	/**
+	 * @return the time of the phase, in nanoseconds
+	 */
+	public long getTime(Phase phase) {
+		return nanos[phase.ordinal()];
+	}
+
+	/**
+	 * @return the time of all phases, in nanoseconds
+	 */
+	public long getTotalTime() {
+		long total = 0;
+		for (long n : nanos)
+			total += n;
+		return total;
+	}
+
+	@Override
+	public String toString() {
+		return "CommandResult [status=" + status + ", messages=" + messages.size() 
+				+ (failure != null ? ", failure=" + failure : "") 
+				+ ", time=" + getTotalTime() / 1000 + " us]";
+	}
+}
@@ -0,0 +1,27 @@
+package org.box.metadata.cli.shell.impl;
+
+/**
+ * An outcome of an executed command input
+ * 
+ * @see AbstractShell#execute(String[])
+ * 
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ * 
+ */
+public enum CommandStatus {
+
+	/** the handlers are processed successfully */
+	DONE,
+
+	/** the command is started as a background {@link Job} */
+	STARTED,
+
+	/** the input is not valid for the command, the help is displayed */
+	INVALID,
+
+	/** a handler is failed */
+	FAILED,
+
+	/** no command is found for the input */
+	NOT_FOUND
+}
@@ -1,12 +1,9 @@
 package org.box.metadata.cli.shell.impl;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-
 import org.box.metadata.cli.impl.MetaCommandLineParser.ParserType;
 import org.box.metadata.cli.shell.Shell;
 import org.box.metadata.cli.util.CLIUtil;
+import org.box.metadata.cli.util.Tokens;
 
 /**
  * <br>Provides Shell implementation for std. IO.
@@ -22,7 +19,7 @@ import org.box.metadata.cli.util.CLIUtil;
  */
 public class ConsoleShell extends AbstractShell {
 
-	BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
+	private final Tokens tokens = createTokens();
 
 	public ConsoleShell(Class<?>... cfgClass) {
 		super(ParserType.GNU_PARSER, 
@@ -42,17 +39,12 @@ public class ConsoleShell extends AbstractShell {
 	@Override
 	protected String[] getUserInput() {
 		System.out.print(">");
-		try {
-			return CLIUtil.smartSplit(br.readLine());
-		} catch (IOException e) {
-			throw new RuntimeException(e);
-		}
-	}
-
-	@Override
-	public void exit() {
-		doExit = true;
-		//TODO: interrupt 'System.in' waiting
+		String line = readLine();
+		if (line == null)
+			return new String[0];
+		
+		tokens.tokenize(line);
+		return tokens.toArray();
 	}
 
 	/*
@@ -61,7 +53,7 @@ public class ConsoleShell extends AbstractShell {
 	 */
 	@Override
 	public void appendMessage(String msg) {
-		System.out.println(msg);
+		getOutput().append(msg + System.lineSeparator());
 	}
 	
 	/*
@@ -70,6 +62,6 @@ public class ConsoleShell extends AbstractShell {
 	 */
 	@Override
 	public void appendMessageNoBr(String msg) {
-		System.out.print(msg);
+		getOutput().append(msg);
 	}
 }
@@ -18,4 +18,16 @@ public class DefaultConsoleConfiguration {
 			handlers = HelpCommand.class)
 	public HelpCommand helpCommand;
 
+	@Command(name = "jobs", description = "print background jobs", 
+			handlers = JobsCommand.class)
+	public JobsCommand jobsCommand;
+
+	@Command(name = "wait", description = "wait for the background job <id> or all jobs", 
+			handlers = WaitCommand.class)
+	public WaitCommand waitCommand;
+
+	@Command(name = "kill", description = "kill the background job <id>", 
+			handlers = KillCommand.class)
+	public KillCommand killCommand;
+
 }
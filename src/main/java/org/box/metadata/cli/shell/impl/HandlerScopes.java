@@ -0,0 +1,237 @@
+package org.box.metadata.cli.shell.impl;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.box.metadata.cli.annotation.HandlerScope;
+import org.box.metadata.cli.annotation.HandlerScope.Scope;
+import org.box.metadata.cli.exception.InvalidConfigurationException;
+import org.box.metadata.cli.impl.BindingPlan;
+import org.box.metadata.cli.impl.BindingPlan.Instantiator;
+import org.box.metadata.cli.shell.CommandHandler;
+
+/**
+ * <p>
+ * Handler instances of a shell kept according to their {@link HandlerScope}.
+ * A handler is acquired for an execution and released after it. The
+ * handlers are constructed by a method handle, not by reflection.
+ * </p>
+ *
+ * @see AbstractShell
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+final class HandlerScopes {
+
+	private abstract static class Scoped {
+
+		private final Class<?> type;
+		private final Instantiator instantiator;
+
+		Scoped(Class<?> type) {
+			this.type = type;
+			this.instantiator = BindingPlan.instantiator(type);
+		}
+
+		CommandHandler<?> create() {
+			try {
+				return (CommandHandler<?>) instantiator.newInstance();
+			} catch (InvalidConfigurationException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new InvalidConfigurationException(e);
+			}
+		}
+
+		abstract CommandHandler<?> acquire();
+
+		/**
+		 * Returns the handler after the execution
+		 *
+		 * @return a failure to close the handler or <code>null</code>
+		 */
+		abstract Exception release(CommandHandler<?> handler);
+
+		/**
+		 * Closes all kept instances
+		 *
+		 * @return the first failure, others are suppressed
+		 */
+		abstract Exception dispose(Exception failure);
+
+		Exception close(CommandHandler<?> handler, Exception failure) {
+			if (handler instanceof AutoCloseable) {
+				try {
+					((AutoCloseable) handler).close();
+				} catch (Exception e) {
+					if (failure == null)
+						return e;
+					failure.addSuppressed(e);
+				}
+			}
+			return failure;
+		}
+
+		@Override
+		public String toString() {
+			return getClass().getSimpleName() + " [" + type.getName() + "]";
+		}
+	}
+
+	private static final class ExecutionScoped extends Scoped {
+
+		ExecutionScoped(Class<?> type) {
+			super(type);
+		}
+
+		@Override
+		CommandHandler<?> acquire() {
+			return create();
+		}
+
+		@Override
+		Exception release(CommandHandler<?> handler) {
+			return close(handler, null);
+		}
+
+		@Override
+		Exception dispose(Exception failure) {
+			return failure;
+		}
+	}
+
+	private static final class ShellScoped extends Scoped {
+
+		private volatile CommandHandler<?> instance;
+
+		ShellScoped(Class<?> type) {
+			super(type);
+		}
+
+		@Override
+		CommandHandler<?> acquire() {
+			CommandHandler<?> h = instance;
+			if (h == null) {
+				synchronized (this) {
+					if ((h = instance) == null)
+						instance = h = create();
+				}
+			}
+			return h;
+		}
+
+		@Override
+		Exception release(CommandHandler<?> handler) {
+			return null;
+		}
+
+		@Override
+		synchronized Exception dispose(Exception failure) {
+			CommandHandler<?> h = instance;
+			instance = null;
+			return close(h, failure);
+		}
+	}
+
+	private static final class PooledScoped extends Scoped {
+
+		private final ArrayDeque<CommandHandler<?>> idle = new ArrayDeque<>();
+		private final int poolSize;
+
+		PooledScoped(Class<?> type, int poolSize) {
+			super(type);
+			this.poolSize = poolSize;
+		}
+
+		@Override
+		CommandHandler<?> acquire() {
+			synchronized (idle) {
+				CommandHandler<?> h = idle.poll();
+				if (h != null)
+					return h;
+			}
+			return create();
+		}
+
+		@Override
+		Exception release(CommandHandler<?> handler) {
+			synchronized (idle) {
+				if (idle.size() < poolSize) {
+					idle.push(handler);
+					return null;
+				}
+			}
+			return close(handler, null);
+		}
+
+		@Override
+		Exception dispose(Exception failure) {
+			synchronized (idle) {
+				for (CommandHandler<?> h; (h = idle.poll()) != null;)
+					failure = close(h, failure);
+			}
+			return failure;
+		}
+	}
+
+	private final ConcurrentMap<Class<?>, Scoped> scopes = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns a handler instance for an execution
+	 *
+	 * @throws InvalidConfigurationException
+	 * 			if the handler cannot be constructed
+	 */
+	CommandHandler<?> acquire(Class<? extends CommandHandler<?>> type) {
+		return scoped(type).acquire();
+	}
+
+	/**
+	 * Returns the handler after the execution. It never throws, so 
+	 * a failure of the execution is not hidden by the one of closing.
+	 *
+	 * @return a failure to close the handler or <code>null</code>
+	 */
+	Exception release(Class<? extends CommandHandler<?>> type, CommandHandler<?> handler) {
+		return scoped(type).release(handler);
+	}
+
+	/**
+	 * Closes all kept handlers, new instances are created on a next acquire
+	 *
+	 * @throws Exception
+	 * 			the first failure to close a handler, others are suppressed
+	 */
+	void dispose() throws Exception {
+		Exception failure = null;
+		for (Scoped s : scopes.values())
+			failure = s.dispose(failure);
+		scopes.clear();
+		if (failure != null)
+			throw failure;
+	}
+
+	private Scoped scoped(Class<?> type) {
+		Scoped s = scopes.get(type);
+		if (s == null) {
+			HandlerScope a = type.getAnnotation(HandlerScope.class);
+			Scope scope = a != null ? a.value() : Scope.EXECUTION;
+			switch (scope) {
+			case SHELL:
+				s = new ShellScoped(type);
+				break;
+			case POOLED:
+				s = new PooledScoped(type, a.poolSize());
+				break;
+			default:
+				s = new ExecutionScoped(type);
+			}
+			Scoped prev = scopes.putIfAbsent(type, s);
+			if (prev != null)
+				s = prev;
+		}
+		return s;
+	}
+}
@@ -0,0 +1,146 @@
+package org.box.metadata.cli.shell.impl;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.box.metadata.cli.shell.CommandHandler;
+import org.box.metadata.cli.shell.exception.TerminatedException;
+
+/**
+ * <p>
+ * A command executed in background, e.g. by <code>cmd &amp;</code> input.
+ * </p>
+ *
+ * <p>
+ * A job is killed by interruption of its thread. A handler is expected to
+ * check the interruption in its {@link CommandHandler#process(Object,
+ * org.box.metadata.cli.shell.Shell) process} and throw
+ * {@link TerminatedException}.
+ * </p>
+ *
+ * @see Jobs
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public final class Job implements Runnable {
+
+	public enum State {
+		RUNNING, DONE, FAILED, KILLED
+	}
+
+	private static final ThreadLocal<Job> CURRENT = new ThreadLocal<>();
+
+	private final int id;
+	private final String commandLine;
+	private final Jobs.Task task;
+	private final CountDownLatch finished = new CountDownLatch(1);
+
+	private volatile State state = State.RUNNING;
+	private volatile Throwable failure;
+
+	/** guarded by this */
+	private Thread thread;
+	private boolean killed;
+
+	Job(int id, String commandLine, Jobs.Task task) {
+		this.id = id;
+		this.commandLine = commandLine;
+		this.task = task;
+	}
+
+	@Override
+	public void run() {
+		synchronized (this) {
+			if (killed) {
+				state = State.KILLED;
+				finished.countDown();
+				return;
+			}
+			thread = Thread.currentThread();
+		}
+		CURRENT.set(this);
+		try {
+			task.run(this);
+			state = State.DONE;
+		} catch (Throwable e) {
+			failure = e;
+			state = isKilled() ? State.KILLED : State.FAILED;
+		} finally {
+			CURRENT.remove();
+			synchronized (this) {
+				thread = null;
+			}
+			// the pooled thread must not stay interrupted
+			Thread.interrupted();
+			finished.countDown();
+		}
+	}
+
+	/**
+	 * Interrupts the job
+	 */
+	public synchronized void kill() {
+		killed = true;
+		if (thread != null)
+			thread.interrupt();
+	}
+
+	public synchronized boolean isKilled() {
+		return killed;
+	}
+
+	/**
+	 * Waits for the job completion
+	 *
+	 * @throws InterruptedException
+	 * 			if the waiting thread is interrupted
+	 */
+	public void waitFor() throws InterruptedException {
+		finished.await();
+	}
+
+	/**
+	 * Waits for the job completion
+	 *
+	 * @return false if the time is out
+	 */
+	public boolean waitFor(long timeout, TimeUnit unit) throws InterruptedException {
+		return finished.await(timeout, unit);
+	}
+
+	/**
+	 * @return the job running on the current thread or <code>null</code>
+	 */
+	public static Job current() {
+		return CURRENT.get();
+	}
+
+	public boolean isDone() {
+		return finished.getCount() == 0;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public String getCommandLine() {
+		return commandLine;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	/**
+	 * @return an exception the job is failed or killed with, or <code>null</code>
+	 */
+	public Throwable getFailure() {
+		return failure;
+	}
+
+	@Override
+	public String toString() {
+		return "[" + id + "] " + state + " " + commandLine;
+	}
+}
@@ -0,0 +1,160 @@
+package org.box.metadata.cli.shell.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Background jobs of a shell. Jobs run on daemon threads of a cached pool,
+ * so a job doesn't block the shell's input and the JVM exit.
+ * </p>
+ *
+ * <p>
+ * A finished job is kept to be reported until {@link #prune()}, at most 
+ * {@link #FINISHED_CAPACITY} of them: the oldest ones are forgotten when 
+ * a new job is started, so a script or a session which never lists its 
+ * jobs doesn't grow them without bound.
+ * </p>
+ *
+ * @see AbstractShell
+ * @see Job
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public final class Jobs {
+
+	/**
+	 * A body of a job
+	 */
+	public interface Task {
+		void run(Job job) throws Exception;
+	}
+
+	/** a number of finished jobs kept to be reported */
+	public static final int FINISHED_CAPACITY = 100;
+
+	private final AtomicInteger ids = new AtomicInteger();
+
+	private final ConcurrentSkipListMap<Integer, Job> jobs = new ConcurrentSkipListMap<>();
+
+	/** guarded by this */
+	private ExecutorService executor;
+
+	/**
+	 * Starts a new job
+	 *
+	 * @param commandLine
+	 * 			- the input of the job, to display
+	 * @param task
+	 * 			- the job's body
+	 *
+	 * @return the started job
+	 */
+	public Job submit(String commandLine, Task task) {
+		Job job = new Job(ids.incrementAndGet(), commandLine, task);
+		jobs.put(job.getId(), job);
+		trim();
+		executor().execute(job);
+		return job;
+	}
+
+	/**
+	 * @return the job or <code>null</code> if there is no such job
+	 */
+	public Job get(int id) {
+		return jobs.get(id);
+	}
+
+	/**
+	 * @return all jobs by id, the finished ones are kept until {@link #prune()}
+	 * 			or until there are too many of them
+	 */
+	public List<Job> list() {
+		return new ArrayList<>(jobs.values());
+	}
+
+	/**
+	 * Forgets the finished jobs
+	 */
+	public void prune() {
+		for (Job job : jobs.values())
+			if (job.isDone())
+				jobs.remove(job.getId(), job);
+	}
+
+	/**
+	 * Forgets the oldest finished jobs beyond {@link #FINISHED_CAPACITY}
+	 */
+	private void trim() {
+		int finished = 0;
+		for (Job job : jobs.values())
+			if (job.isDone())
+				finished++;
+		for (Job job : jobs.values()) {
+			if (finished <= FINISHED_CAPACITY)
+				break;
+			if (job.isDone() && jobs.remove(job.getId(), job))
+				finished--;
+		}
+	}
+
+	/**
+	 * Waits for all jobs started before. Called by a job, it waits for 
+	 * the jobs started before that job only, so a job never waits for 
+	 * itself and jobs don't wait for each other.
+	 */
+	public void waitAll() throws InterruptedException {
+		Job current = Job.current();
+		Collection<Job> before = current != null && jobs.get(current.getId()) == current
+				? jobs.headMap(current.getId()).values() : jobs.values();
+		for (Job job : before)
+			job.waitFor();
+	}
+
+	/**
+	 * Kills all jobs and waits for them
+	 *
+	 * @param timeout
+	 * 			- a time to wait, in milliseconds
+	 *
+	 * @return false if some of the jobs are still running
+	 */
+	public boolean shutdown(long timeout) throws InterruptedException {
+		ExecutorService e;
+		synchronized (this) {
+			e = executor;
+			executor = null;
+		}
+		if (e == null)
+			return true;
+
+		for (Job job : jobs.values())
+			job.kill();
+		e.shutdown();
+		return e.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+	}
+
+	private synchronized ExecutorService executor() {
+		if (executor == null) {
+			executor = Executors.newCachedThreadPool(new ThreadFactory() {
+				private final AtomicInteger threads = new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "shell-job-" + threads.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return executor;
+	}
+}
@@ -0,0 +1,56 @@
+package org.box.metadata.cli.shell.impl;
+
+import org.box.metadata.cli.exception.ParseException;
+import org.box.metadata.cli.shell.CommandHandler;
+import org.box.metadata.cli.shell.Shell;
+import org.box.metadata.cli.shell.exception.TerminatedException;
+
+/**
+ * Prints out background jobs of the shell. The finished jobs are
+ * printed once.
+ * 
+ * @see Jobs
+ * 
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ * 
+ */
+public class JobsCommand implements CommandHandler<DefaultConsoleConfiguration> {
+
+	@Override
+	public void validate(DefaultConsoleConfiguration cfg, Shell shell) throws ParseException {
+		jobsOf(shell);
+	}
+
+	@Override
+	public void process(DefaultConsoleConfiguration cfg, Shell shell) throws TerminatedException {
+		Jobs jobs = ((AbstractShell) shell).getJobs();
+		for (Job job : jobs.list())
+			shell.appendMessage(job.toString());
+		jobs.prune();
+	}
+
+	/**
+	 * Returns jobs of the shell
+	 * 
+	 * @throws ParseException
+	 * 			if the shell has no job control
+	 */
+	static Jobs jobsOf(Shell shell) throws ParseException {
+		if (!(shell instanceof AbstractShell))
+			throw new ParseException("job control is not supported by " + shell.getClass().getName());
+		return ((AbstractShell) shell).getJobs();
+	}
+
+	/**
+	 * Returns the job of the shell
+	 * 
+	 * @throws ParseException
+	 * 			if there is no such job
+	 */
+	static Job jobOf(Shell shell, int id) throws ParseException {
+		Job job = jobsOf(shell).get(id);
+		if (job == null)
+			throw new ParseException("no such job: " + id);
+		return job;
+	}
+}
@@ -0,0 +1,31 @@
+package org.box.metadata.cli.shell.impl;
+
+import org.box.metadata.cli.annotation.Argument;
+import org.box.metadata.cli.exception.ParseException;
+import org.box.metadata.cli.shell.CommandHandler;
+import org.box.metadata.cli.shell.Shell;
+import org.box.metadata.cli.shell.exception.TerminatedException;
+
+/**
+ * Kills a background job, i.e. interrupts its thread.
+ * 
+ * @see Job#kill()
+ * 
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ * 
+ */
+public class KillCommand implements CommandHandler<DefaultConsoleConfiguration> {
+
+	@Argument(index = 1, name = "<id>", required = true)
+	public int id;
+
+	@Override
+	public void validate(DefaultConsoleConfiguration cfg, Shell shell) throws ParseException {
+		JobsCommand.jobOf(shell, cfg.killCommand.id);
+	}
+
+	@Override
+	public void process(DefaultConsoleConfiguration cfg, Shell shell) throws TerminatedException {
+		((AbstractShell) shell).getJobs().get(cfg.killCommand.id).kill();
+	}
+}
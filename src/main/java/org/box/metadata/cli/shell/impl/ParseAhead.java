@@ -0,0 +1,128 @@
+package org.box.metadata.cli.shell.impl;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.box.metadata.cli.shell.impl.AbstractShell.ParsedInput;
+
+/**
+ * <p>
+ * A stage reading and parsing commands of a script ahead on its own 
+ * thread while the shell executes the current one. The parsed commands 
+ * are passed through a bounded queue in the script's order, parse errors 
+ * are kept in them and reported by the shell at their turn.
+ * </p>
+ * 
+ * <p>
+ * The stage owns the script input and closes it when it stops.
+ * </p>
+ * 
+ * @see AbstractShell#setParseAhead(int)
+ * 
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ * 
+ */
+final class ParseAhead {
+
+	/** the end of the script mark */
+	private static final Object END = new Object();
+
+	private static final AtomicInteger stages = new AtomicInteger();
+
+	private final AbstractShell shell;
+
+	private final ScriptInput input;
+
+	private final BlockingQueue<Object> queue;
+
+	private final Thread thread;
+
+	private volatile boolean stopped;
+
+	private boolean end;
+
+	ParseAhead(AbstractShell shell, ScriptInput input, int depth) {
+		this.shell = shell;
+		this.input = input;
+		this.queue = new ArrayBlockingQueue<>(depth);
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				parse();
+			}
+		}, "shell-parser-" + stages.incrementAndGet());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Waits for the next command in the script's order
+	 * 
+	 * @return the parsed command, {@link ScriptInput#SKIPPED} for a skipped 
+	 * 			line, or <code>null</code> at the end
+	 * 
+	 * @throws IOException
+	 * 			if the script cannot be read
+	 */
+	Object take() throws IOException, InterruptedException {
+		if (end)
+			return null;
+		
+		Object o = queue.take();
+		if (o == END) {
+			end = true;
+			return null;
+		}
+		if (o instanceof IOException) {
+			end = true;
+			throw (IOException) o;
+		}
+		if (o instanceof RuntimeException) {
+			end = true;
+			throw (RuntimeException) o;
+		}
+		if (o instanceof Error) {
+			end = true;
+			throw (Error) o;
+		}
+		return o;
+	}
+
+	/**
+	 * Stops the stage, e.g. on exit in the middle of the script, and waits 
+	 * for it
+	 */
+	void stop() throws InterruptedException {
+		stopped = true;
+		thread.interrupt();
+		thread.join();
+	}
+
+	private void parse() {
+		try {
+			try {
+				String[] tokens;
+				while (!stopped && (tokens = input.next()) != null) {
+					if (tokens == ScriptInput.SKIPPED) {
+						queue.put(ScriptInput.SKIPPED);
+						continue;
+					}
+					ParsedInput parsed = shell.parseCommand(shell.commandInput(tokens));
+					parsed.line = input.getLineNumber();
+					queue.put(parsed);
+				}
+				queue.put(END);
+			} catch (InterruptedException e) {
+				throw e;
+			} catch (Throwable e) {
+				queue.put(e);
+			} finally {
+				input.close();
+			}
+		} catch (InterruptedException | IOException e) {
+			// stopped, or the script is read already
+		}
+	}
+}
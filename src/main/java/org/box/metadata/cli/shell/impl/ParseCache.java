@@ -0,0 +1,276 @@
+package org.box.metadata.cli.shell.impl;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.box.metadata.cli.annotation.Command;
+import org.box.metadata.cli.exception.InvalidConfigurationException;
+import org.box.metadata.cli.exception.ParseException;
+import org.box.metadata.cli.impl.BindingPlan;
+import org.box.metadata.cli.impl.BindingPlan.Instantiator;
+import org.box.metadata.cli.impl.CommandCompile;
+
+/**
+ * <p>
+ * A bounded LRU cache of parsed command inputs, keyed by the command and 
+ * the input tokens. A cached configuration is never passed to handlers, 
+ * each hit returns a copy: a new instance with the field values of the 
+ * cached one. The command's object (a field annotated by {@link Command})
+ * and arrays are copied too, other values are shared, so handlers must not 
+ * modify the objects the values refer to.
+ * </p>
+ * 
+ * <p>
+ * A {@link ParseException} of the input is cached as well. The cache is 
+ * thread-safe.
+ * </p>
+ * 
+ * @see AbstractShell#setParseCache(int)
+ * 
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ * 
+ */
+public final class ParseCache {
+
+	private static final class Key {
+
+		private final CommandCompile command;
+		private final String[] args;
+		private final int hash;
+
+		Key(CommandCompile command, String[] args) {
+			this.command = command;
+			this.args = args;
+			this.hash = 31 * System.identityHashCode(command) + Arrays.hashCode(args);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key k = (Key) obj;
+			return k.command == command && k.hash == hash && Arrays.equals(k.args, args);
+		}
+	}
+
+	/**
+	 * A cached parse result, one of the fields is set
+	 */
+	static final class Result {
+
+		final Object cfg;
+		final ParseException failure;
+
+		Result(Object cfg, ParseException failure) {
+			this.cfg = cfg;
+			this.failure = failure;
+		}
+	}
+
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+	private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	/**
+	 * Copies instances of a class field by field
+	 */
+	private static final class Copier {
+
+		private final Instantiator instantiator;
+		private final MethodHandle[] getters;
+		private final MethodHandle[] setters;
+		/** 0 - the value is shared, 1 - an array is cloned, 2 - a command is copied */
+		private final int[] modes;
+
+		Copier(Class<?> type) {
+			instantiator = BindingPlan.instantiator(type);
+			List<MethodHandle> getters = new ArrayList<>();
+			List<MethodHandle> setters = new ArrayList<>();
+			List<Integer> modes = new ArrayList<>();
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+				for (Field f : c.getDeclaredFields()) {
+					int m = f.getModifiers();
+					if (Modifier.isStatic(m) || Modifier.isFinal(m) || f.isSynthetic())
+						continue;
+					try {
+						f.setAccessible(true);
+						getters.add(lookup.unreflectGetter(f).asType(GETTER_TYPE));
+						setters.add(lookup.unreflectSetter(f).asType(SETTER_TYPE));
+					} catch (IllegalAccessException e) {
+						throw new InvalidConfigurationException(e);
+					}
+					modes.add(f.isAnnotationPresent(Command.class) ? 2 
+							: f.getType().isArray() ? 1 : 0);
+				}
+			}
+			this.getters = getters.toArray(new MethodHandle[getters.size()]);
+			this.setters = setters.toArray(new MethodHandle[setters.size()]);
+			this.modes = new int[modes.size()];
+			for (int i = 0; i < this.modes.length; i++)
+				this.modes[i] = modes.get(i);
+		}
+
+		Object copy(Object source) throws Throwable {
+			Object target = instantiator.newInstance();
+			for (int i = 0; i < getters.length; i++) {
+				Object value = (Object) getters[i].invokeExact(source);
+				if (value != null) {
+					if (modes[i] == 2)
+						value = ParseCache.copy(value, value.getClass());
+					else if (modes[i] == 1)
+						value = cloneArray(value);
+				}
+				setters[i].invokeExact(target, value);
+			}
+			return target;
+		}
+	}
+
+	private static final ClassValue<Copier> COPIERS = new ClassValue<Copier>() {
+		@Override
+		protected Copier computeValue(Class<?> type) {
+			return new Copier(type);
+		}
+	};
+
+	private final int capacity;
+
+	/** guarded by this */
+	private final LinkedHashMap<Key, Result> entries;
+
+	/** guarded by this */
+	private long hits, misses, evictions;
+
+	/**
+	 * @param capacity
+	 * 			- a maximal number of cached inputs
+	 */
+	public ParseCache(final int capacity) {
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<Key, Result>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Result> eldest) {
+				if (size() > ParseCache.this.capacity) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns a cached parse result of the input
+	 * 
+	 * @return a result with a copy of the cached configuration, or 
+	 * 			<code>null</code> if the input isn't cached
+	 */
+	Result get(CommandCompile command, String[] args) {
+		Result e;
+		synchronized (this) {
+			e = entries.get(new Key(command, args));
+			if (e == null) {
+				misses++;
+				return null;
+			}
+			hits++;
+		}
+		return e.failure != null ? e : new Result(copy(e.cfg), null);
+	}
+
+	/**
+	 * Caches a parsed configuration, a copy is kept
+	 */
+	void put(CommandCompile command, String[] args, Object cfg) {
+		put(command, args, new Result(copy(cfg), null));
+	}
+
+	/**
+	 * Caches a failure of the input
+	 */
+	void put(CommandCompile command, String[] args, ParseException failure) {
+		put(command, args, new Result(null, failure));
+	}
+
+	private synchronized void put(CommandCompile command, String[] args, Result e) {
+		entries.put(new Key(command, args.clone()), e);
+	}
+
+	/**
+	 * Drops all entries, e.g. when the commands are changed. The counters 
+	 * are kept.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public synchronized int getSize() {
+		return entries.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("ParseCache [size=%d/%d, hits=%d, misses=%d, evictions=%d]",
+				entries.size(), capacity, hits, misses, evictions);
+	}
+
+	/**
+	 * Returns a copy of a configuration
+	 * 
+	 * @throws InvalidConfigurationException
+	 * 			if the configuration cannot be copied
+	 */
+	static Object copy(Object cfg) {
+		return copy(cfg, cfg.getClass());
+	}
+
+	private static Object copy(Object cfg, Class<?> type) {
+		try {
+			return COPIERS.get(type).copy(cfg);
+		} catch (InvalidConfigurationException e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new InvalidConfigurationException(e);
+		}
+	}
+
+	private static Object cloneArray(Object array) {
+		int length = Array.getLength(array);
+		Object copy = Array.newInstance(array.getClass().getComponentType(), length);
+		System.arraycopy(array, 0, copy, 0, length);
+		return copy;
+	}
+}
@@ -0,0 +1,74 @@
+package org.box.metadata.cli.shell.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.box.metadata.cli.shell.impl.input.MappedLineReader;
+import org.box.metadata.cli.util.Tokens;
+
+/**
+ * Commands of a script: lines split into tokens, a line can be continued 
+ * by next lines within quotes. Blank lines and lines starting with 
+ * <code>#</code> are skipped. An instance is not thread-safe.
+ * 
+ * @see AbstractShell#runScript(java.io.File)
+ * 
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ * 
+ */
+final class ScriptInput implements Closeable {
+
+	/** the tokens of a skipped line */
+	static final String[] SKIPPED = new String[0];
+
+	private final MappedLineReader reader;
+
+	private final Tokens tokens;
+
+	private int lineNumber;
+
+	ScriptInput(MappedLineReader reader, Tokens tokens) {
+		this.reader = reader;
+		this.tokens = tokens;
+	}
+
+	/**
+	 * @return the tokens of a next command, {@link #SKIPPED} for a blank or
+	 * 			comment line, or <code>null</code> at the end of the script
+	 */
+	String[] next() throws IOException {
+		String line = reader.readLine();
+		if (line == null)
+			return null;
+		
+		lineNumber = reader.getLineNumber();
+		if (isComment(line))
+			return SKIPPED;
+		
+		tokens.tokenize(line);
+		while (tokens.isIncomplete() && (line = reader.readLine()) != null)
+			tokens.append(line);
+		return tokens.size() == 0 ? SKIPPED : tokens.toArray();
+	}
+
+	/**
+	 * @return the number of the first line of the last command
+	 */
+	int getLineNumber() {
+		return lineNumber;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	private static boolean isComment(String line) {
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c != ' ' && c != '\t')
+				return c == '#';
+		}
+		return true;
+	}
+}
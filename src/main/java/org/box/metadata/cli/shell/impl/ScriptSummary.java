@@ -0,0 +1,139 @@
+package org.box.metadata.cli.shell.impl;
+
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Outcomes of the lines of a script run by {@link AbstractShell#runScript(java.io.File)}.
+ * The lines of each {@link CommandStatus} are kept as a bit set by line number, 
+ * blank and comment lines are counted as skipped.
+ * </p>
+ * 
+ * <p>
+ * {@link #toString()} is a compact report: the counts, the time and the lines
+ * of unsuccessful commands as ranges.
+ * </p>
+ * 
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ * 
+ */
+public final class ScriptSummary {
+
+	/** a number of line ranges listed by status in the report */
+	private static final int REPORTED_RANGES = 10;
+
+	private final Map<CommandStatus, BitSet> lines = new EnumMap<>(CommandStatus.class);
+
+	private final int[] counts = new int[CommandStatus.values().length];
+
+	private int skipped;
+
+	private long nanos;
+
+	ScriptSummary() {
+		for (CommandStatus s : CommandStatus.values())
+			lines.put(s, new BitSet());
+	}
+
+	void add(int line, CommandStatus status) {
+		lines.get(status).set(line);
+		counts[status.ordinal()]++;
+	}
+
+	void skip() {
+		skipped++;
+	}
+
+	void finish(long nanos) {
+		this.nanos = nanos;
+	}
+
+	/**
+	 * @return the number of commands of the status
+	 */
+	public int getCount(CommandStatus status) {
+		return counts[status.ordinal()];
+	}
+
+	/**
+	 * @return the numbers of the lines of the status, starting with 1
+	 */
+	public BitSet getLines(CommandStatus status) {
+		return (BitSet) lines.get(status).clone();
+	}
+
+	/**
+	 * @return the number of executed commands
+	 */
+	public int getCommands() {
+		int n = 0;
+		for (int c : counts)
+			n += c;
+		return n;
+	}
+
+	/**
+	 * @return the number of blank and comment lines
+	 */
+	public int getSkipped() {
+		return skipped;
+	}
+
+	/**
+	 * @return true if all commands are done or started
+	 */
+	public boolean isSuccessful() {
+		return getCount(CommandStatus.INVALID) + getCount(CommandStatus.FAILED)
+				+ getCount(CommandStatus.NOT_FOUND) == 0;
+	}
+
+	/**
+	 * @return the time of the script run, in milliseconds
+	 */
+	public long getTime() {
+		return nanos / 1000000;
+	}
+
+	@Override
+	public String toString() {
+		int commands = getCommands();
+		StringBuilder sb = new StringBuilder();
+		sb.append(commands).append(" commands");
+		for (CommandStatus s : CommandStatus.values())
+			if (counts[s.ordinal()] > 0)
+				sb.append(", ").append(counts[s.ordinal()]).append(' ')
+						.append(s.name().toLowerCase().replace('_', ' '));
+		if (skipped > 0)
+			sb.append(", ").append(skipped).append(" skipped");
+		sb.append(String.format(" in %d ms", getTime()));
+		if (nanos > 0)
+			sb.append(String.format(" (%.0f lines/s)", (commands + skipped) * 1e9 / nanos));
+
+		for (CommandStatus s : new CommandStatus[] {
+				CommandStatus.INVALID, CommandStatus.FAILED, CommandStatus.NOT_FOUND })
+			if (counts[s.ordinal()] > 0)
+				ranges(sb.append(System.lineSeparator()).append(s.name().toLowerCase()
+						.replace('_', ' ')).append(" at "), lines.get(s));
+		return sb.toString();
+	}
+
+	/**
+	 * Appends the lines as "1-3, 7, ..."
+	 */
+	private static void ranges(StringBuilder sb, BitSet set) {
+		int ranges = 0;
+		for (int from = set.nextSetBit(0); from >= 0; ) {
+			if (ranges++ == REPORTED_RANGES) {
+				sb.append(", ...");
+				return;
+			}
+			int to = set.nextClearBit(from) - 1;
+			sb.append(ranges > 1 ? ", " : "").append(from);
+			if (to > from)
+				sb.append('-').append(to);
+			from = set.nextSetBit(to + 1);
+		}
+	}
+}
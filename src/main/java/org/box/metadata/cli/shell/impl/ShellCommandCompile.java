@@ -5,6 +5,8 @@ import java.lang.reflect.Field;
 import org.apache.commons.cli.Options;
 import org.box.metadata.cli.annotation.Argument;
 import org.box.metadata.cli.annotation.Command;
+import org.box.metadata.cli.impl.BindingPlan;
+import org.box.metadata.cli.impl.BindingPlan.FieldBinding;
 import org.box.metadata.cli.impl.CommandCompile;
 
 
@@ -21,8 +23,58 @@ public class ShellCommandCompile extends CommandCompile {
 			String argumentsSyntax,
 			String appName,
 			Class<?> cfgClass) {
+		this(orig, field, cliOptions, arguments, argumentsSyntax, 
+				appName, cfgClass, new BindingPlan(cfgClass));
+	}
+
+	public ShellCommandCompile(
+			Command orig, 
+			Field field, 
+			Options cliOptions, 
+			Argument[] arguments, 
+			String argumentsSyntax,
+			String appName,
+			Class<?> cfgClass,
+			BindingPlan cfgBinding) {
+		this(orig, field, cliOptions, arguments, argumentsSyntax, appName, cfgClass, 
+				cfgBinding, new BindingPlan(field.getType()), BindingPlan.commandBinding(field));
+	}
+
+	public ShellCommandCompile(
+			Command orig, 
+			Field field, 
+			Options cliOptions, 
+			Argument[] arguments, 
+			String argumentsSyntax,
+			String appName,
+			Class<?> cfgClass,
+			BindingPlan cfgBinding,
+			BindingPlan commandBinding,
+			FieldBinding commandField) {
+		
+		super(orig, field, cliOptions, arguments, argumentsSyntax, 
+				cfgBinding, commandBinding, commandField);
+		this.appName = appName;
+		this.cfgClass = cfgClass;
+		
+		if (appName != null && !appName.trim().isEmpty())
+			split = (appName + " " + orig.name()).trim().split("\\s+");
+	}
+	
+	/**
+	 * Constructs a lazy command
+	 * 
+	 * @see CommandCompile#CommandCompile(Command, Field, Options, BindingPlan)
+	 */
+	public ShellCommandCompile(
+			Command orig, 
+			Field field, 
+			Options rootOptions,
+			String appName,
+			Class<?> cfgClass,
+			BindingPlan cfgBinding) {
 		
-		super(orig, field, cliOptions, arguments, argumentsSyntax);
+		super(orig, field, rootOptions, cfgBinding);
 		this.appName = appName;
 		this.cfgClass = cfgClass;
 		
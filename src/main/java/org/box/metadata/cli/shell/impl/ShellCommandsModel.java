@@ -1,16 +1,113 @@
 package org.box.metadata.cli.shell.impl;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.box.metadata.cli.exception.InvalidConfigurationException;
 import org.box.metadata.cli.impl.CommandCompile;
 import org.box.metadata.cli.impl.DefaultConfigurationModel;
 import org.box.metadata.cli.util.CLIUtil;
 
+/**
+ * <p>
+ * A model of Shell's commands compiled from one or several configuration
+ * classes. 
+ * </p>
+ * 
+ * <p>
+ * Several classes are compiled in parallel, each into its own model, 
+ * the models are merged in the given order. So the order of commands 
+ * and the root options (of the last class) are the same as if the classes 
+ * were compiled one by one. All invalid classes are reported at once.
+ * </p>
+ * 
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ * 
+ */
 public class ShellCommandsModel extends DefaultConfigurationModel {
 
 	@SuppressWarnings("rawtypes")
 	public ShellCommandsModel(Class... cfgClasses) {
-		for (Class c : cfgClasses) {
-			CLIUtil.compileCommandsModel(this, c);
+		this(false, cfgClasses);
+	}
+
+	/**
+	 * @param lazy
+	 * 			- true to compile commands on demand, see 
+	 * 			{@link CLIUtil#compileCommandsModel(DefaultConfigurationModel, Class, boolean)}
+	 */
+	@SuppressWarnings("rawtypes")
+	public ShellCommandsModel(boolean lazy, Class... cfgClasses) {
+		if (cfgClasses.length == 1)
+			CLIUtil.compileCommandsModel(this, cfgClasses[0], lazy);
+		else if (cfgClasses.length > 1)
+			merge(compileAll(lazy, cfgClasses));
+	}
+
+	/**
+	 * Compiles each class into its own model in the common fork-join pool
+	 * 
+	 * @param lazy
+	 * 			- true to compile commands on demand
+	 * 
+	 * @return the models in the order of the classes
+	 * 
+	 * @throws InvalidConfigurationException
+	 * 			if any class is invalid, other invalid classes are suppressed 
+	 */
+	@SuppressWarnings("rawtypes")
+	public static List<ShellCommandsModel> compileAll(final boolean lazy, Class... cfgClasses) {
+		List<Callable<ShellCommandsModel>> tasks = new ArrayList<>(cfgClasses.length);
+		for (final Class c : cfgClasses)
+			tasks.add(new Callable<ShellCommandsModel>() {
+				@Override
+				public ShellCommandsModel call() {
+					return new ShellCommandsModel(lazy, c);
+				}
+			});
+
+		List<Future<ShellCommandsModel>> futures = ForkJoinPool.commonPool().invokeAll(tasks);
+
+		List<ShellCommandsModel> models = new ArrayList<>(cfgClasses.length);
+		InvalidConfigurationException invalid = null;
+		for (Future<ShellCommandsModel> f : futures) {
+			try {
+				models.add(f.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InvalidConfigurationException(e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (!(cause instanceof InvalidConfigurationException)) {
+					if (cause instanceof RuntimeException)
+						throw (RuntimeException) cause;
+					throw (Error) cause;
+				}
+				// the first one in order of the classes is thrown
+				if (invalid == null)
+					invalid = (InvalidConfigurationException) cause;
+				else
+					invalid.addSuppressed(cause);
+			}
 		}
+		if (invalid != null)
+			throw invalid;
+		return models;
+	}
+
+	private void merge(List<ShellCommandsModel> models) {
+		for (ShellCommandsModel m : models)
+			addCommands(m.getCommands());
+
+		ShellCommandsModel last = models.get(models.size() - 1);
+		setRootCLIOptions(last.getRootCLIOptions());
+		setRootArguments(last.getRootArguments());
+		setRootArgumentsSyntax(last.getRootArgumentsSyntax());
+		setRootBindingPlan(last.getRootBindingPlan());
 	}
 
 	@Override
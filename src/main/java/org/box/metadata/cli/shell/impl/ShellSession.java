@@ -0,0 +1,307 @@
+package org.box.metadata.cli.shell.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.box.metadata.cli.exception.ParseException;
+import org.box.metadata.cli.impl.CommandCompile;
+import org.box.metadata.cli.impl.ConfigurationModel;
+import org.box.metadata.cli.impl.MetaCommandLineParser.ParserType;
+import org.box.metadata.cli.shell.CommandHandlerListener;
+import org.box.metadata.cli.shell.Shell;
+import org.box.metadata.cli.shell.impl.output.OutputSink;
+import org.box.metadata.cli.util.Tokens;
+
+/**
+ * <p>
+ * A headless shell to embed commands into an application. Commands are 
+ * executed by {@link #execute(String)} and {@link #execute(String[])} on the
+ * calling thread, nothing is printed: the messages appended by handlers and
+ * the shell during an execution are returned in the {@link CommandResult}.
+ * </p>
+ * 
+ * <p>
+ * A session is thread-safe, many threads can execute commands at once. The 
+ * model is compiled once, by the constructor or by the caller, and shared by 
+ * all executions. Handlers get the session's {@link Shell}, they are kept 
+ * according to their {@link org.box.metadata.cli.annotation.HandlerScope HandlerScope}, 
+ * so a shared handler must be thread-safe.
+ * </p>
+ * 
+ * <p>
+ * The messages of background jobs are appended outside of an execution,
+ * they go to the sink set by {@link #setOutput(OutputSink)} and are dropped 
+ * by default.
+ * </p>
+ * 
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ * 
+ */
+public final class ShellSession implements AutoCloseable {
+
+	/**
+	 * Messages of an execution
+	 */
+	private static final class Capture {
+
+		final List<String> messages = new ArrayList<>();
+		final StringBuilder pending = new StringBuilder();
+		Throwable failure;
+
+		void append(String msg) {
+			if (pending.length() > 0) {
+				msg = pending.append(msg).toString();
+				pending.setLength(0);
+			}
+			messages.add(msg);
+		}
+
+		List<String> messages() {
+			if (pending.length() > 0) {
+				messages.add(pending.toString());
+				pending.setLength(0);
+			}
+			return messages;
+		}
+	}
+
+	/**
+	 * The shell passed to handlers, its messages go to the capture of 
+	 * the current thread
+	 */
+	private static final class HeadlessShell extends AbstractShell {
+
+		private final ThreadLocal<Capture> capture = new ThreadLocal<>();
+
+		HeadlessShell(ParserType parserType, ConfigurationModel model) {
+			super(parserType, model);
+		}
+
+		HeadlessShell(ParserType parserType, Class<?>... cfgClasses) {
+			super(parserType, cfgClasses);
+		}
+
+		@Override
+		public void appendMessage(String msg) {
+			Capture c = capture.get();
+			if (c != null)
+				c.append(msg);
+			else
+				getOutput().append(msg + System.lineSeparator());
+		}
+
+		@Override
+		public void appendMessageNoBr(String msg) {
+			Capture c = capture.get();
+			if (c != null)
+				c.pending.append(msg);
+			else
+				getOutput().append(msg);
+		}
+
+		@Override
+		protected void displayHelp(CommandCompile c, ParseException e) {
+			failed(e);
+			try {
+				super.displayHelp(c, e);
+			} catch (UnsupportedOperationException unsupported) {
+				// HelpFormatter cannot format the usage of a single command yet
+				appendMessage(e.getMessage());
+			}
+		}
+
+		@Override
+		protected void displayError(CommandCompile c, Throwable e) {
+			failed(e);
+			super.displayError(c, e);
+		}
+
+		private void failed(Throwable e) {
+			Capture c = capture.get();
+			if (c != null && c.failure == null)
+				c.failure = e;
+		}
+
+		@Override
+		protected OutputSink createOutput() {
+			return new OutputSink() {
+				@Override
+				public void append(String text) {
+				}
+
+				@Override
+				public void flush() {
+				}
+
+				@Override
+				public void close() {
+				}
+			};
+		}
+
+		/**
+		 * A session has no user input and it's closed by its owner: the 
+		 * arguments are executed as a command on the calling thread, 
+		 * nothing more is read and the shell is kept open.
+		 */
+		@Override
+		public void run(String[] args) {
+			handleUserInput(args);
+		}
+
+		/**
+		 * The same as {@link #run(String[])}, background jobs are left 
+		 * to the session
+		 */
+		@Override
+		public void runAndExit(String[] args) {
+			handleUserInput(args);
+		}
+
+		@Override
+		protected String[] getUserInput() {
+			// no input, the main loop isn't run
+			return new String[0];
+		}
+	}
+
+	private final HeadlessShell shell;
+
+	private final ThreadLocal<Tokens> tokens = new ThreadLocal<Tokens>() {
+		@Override
+		protected Tokens initialValue() {
+			return shell.createTokens();
+		}
+	};
+
+	/**
+	 * Creates a session of the configuration classes, their model is 
+	 * compiled once and cached
+	 */
+	public ShellSession(Class<?>... cfgClasses) {
+		this(ParserType.GNU_PARSER, cfgClasses);
+	}
+
+	public ShellSession(ParserType parserType, Class<?>... cfgClasses) {
+		shell = new HeadlessShell(parserType, cfgClasses);
+	}
+
+	/**
+	 * Creates a session of a compiled model, e.g. a {@link ShellCommandsModel}
+	 * shared with other sessions
+	 */
+	public ShellSession(ParserType parserType, ConfigurationModel model) {
+		shell = new HeadlessShell(parserType, model);
+	}
+
+	/**
+	 * Splits the line into tokens, the same way as the console does, and 
+	 * executes the command
+	 * 
+	 * @return the result of the command. A line with unclosed quotes is 
+	 * 			{@link CommandStatus#INVALID}, a blank line is 
+	 * 			{@link CommandStatus#NOT_FOUND}
+	 */
+	public CommandResult execute(String line) {
+		long start = System.nanoTime();
+		Tokens t = tokens.get();
+		t.tokenize(line);
+		String[] args = t.toArray();
+		long tokenized = System.nanoTime() - start;
+		
+		if (t.isIncomplete()) {
+			ParseException e = new ParseException("Unclosed quotes in '" + line + "'");
+			List<String> messages = new ArrayList<>();
+			messages.add(e.getMessage());
+			return new CommandResult(CommandStatus.INVALID, messages, e, 
+					new long[] {tokenized, 0, 0});
+		}
+		return execute(args, tokenized);
+	}
+
+	/**
+	 * Executes the command of the input
+	 * 
+	 * @return the result of the command
+	 */
+	public CommandResult execute(String[] args) {
+		return execute(args, 0);
+	}
+
+	private CommandResult execute(String[] args, long tokenized) {
+		if (args.length == 0)
+			return new CommandResult(CommandStatus.NOT_FOUND, new ArrayList<String>(), null, 
+					new long[] {tokenized, 0, 0});
+		
+		Capture c = new Capture();
+		Capture outer = shell.capture.get();
+		shell.capture.set(c);
+		try {
+			long start = System.nanoTime();
+			AbstractShell.ParsedInput parsed = shell.parseCommand(args);
+			long parsedAt = System.nanoTime();
+			CommandStatus status = shell.executeParsed(parsed);
+			long executed = System.nanoTime();
+			
+			return new CommandResult(status, c.messages(), c.failure, 
+					new long[] {tokenized, parsedAt - start, executed - parsedAt});
+		} finally {
+			if (outer != null)
+				shell.capture.set(outer);
+			else
+				shell.capture.remove();
+		}
+	}
+
+	/**
+	 * @return the shell passed to handlers. Its {@link Shell#run(String[])}
+	 * 			executes the arguments as a command and returns, the shell 
+	 * 			is closed by {@link #close()} only
+	 */
+	public Shell getShell() {
+		return shell;
+	}
+
+	public ConfigurationModel getModel() {
+		return shell.getModel();
+	}
+
+	/**
+	 * @see AbstractShell#setParseCache(int)
+	 */
+	public void setParseCache(int capacity) {
+		shell.setParseCache(capacity);
+	}
+
+	public ParseCache getParseCache() {
+		return shell.getParseCache();
+	}
+
+	/**
+	 * Sets a sink of messages appended outside of executions, e.g. by 
+	 * background jobs
+	 */
+	public void setOutput(OutputSink output) {
+		shell.setOutput(output);
+	}
+
+	public Jobs getJobs() {
+		return shell.getJobs();
+	}
+
+	public void addListener(CommandHandlerListener listener) {
+		shell.addListener(listener);
+	}
+
+	public void removeListener(CommandHandlerListener listener) {
+		shell.removeListener(listener);
+	}
+
+	/**
+	 * Kills the background jobs and closes the handlers kept by the session
+	 */
+	@Override
+	public void close() {
+		shell.dispose();
+	}
+}
@@ -0,0 +1,46 @@
+package org.box.metadata.cli.shell.impl;
+
+import org.box.metadata.cli.annotation.Argument;
+import org.box.metadata.cli.exception.ParseException;
+import org.box.metadata.cli.shell.CommandHandler;
+import org.box.metadata.cli.shell.Shell;
+import org.box.metadata.cli.shell.exception.TerminatedException;
+
+/**
+ * Waits for a background job or all of them.
+ * 
+ * @see Jobs
+ * 
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ * 
+ */
+public class WaitCommand implements CommandHandler<DefaultConsoleConfiguration> {
+
+	@Argument(index = 1, name = "<id>", required = false)
+	public Integer id;
+
+	@Override
+	public void validate(DefaultConsoleConfiguration cfg, Shell shell) throws ParseException {
+		if (cfg.waitCommand.id != null) {
+			if (JobsCommand.jobOf(shell, cfg.waitCommand.id) == Job.current())
+				throw new ParseException("a job cannot wait for itself");
+		} else
+			JobsCommand.jobsOf(shell);
+	}
+
+	@Override
+	public void process(DefaultConsoleConfiguration cfg, Shell shell) throws TerminatedException {
+		Jobs jobs = ((AbstractShell) shell).getJobs();
+		try {
+			if (cfg.waitCommand.id != null) {
+				// a finished job could be forgotten since the validation
+				Job job = jobs.get(cfg.waitCommand.id);
+				if (job != null)
+					job.waitFor();
+			} else
+				jobs.waitAll();
+		} catch (InterruptedException e) {
+			throw new TerminatedException(e);
+		}
+	}
+}
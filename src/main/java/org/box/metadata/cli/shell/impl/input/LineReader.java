@@ -0,0 +1,279 @@
+package org.box.metadata.cli.shell.impl.input;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Reads lines of a channel ahead on a dedicated daemon thread. The thread 
+ * reads the channel by large buffers and puts decoded lines into a bounded 
+ * queue, it waits while the queue is full. A line ends with 
+ * <code>'\n'</code>, <code>"\r\n"</code> is accepted too.
+ * </p>
+ * 
+ * <p>
+ * {@link #readLine()} waits for the queue, so unlike a blocking read of 
+ * the stream it's interrupted by {@link Thread#interrupt()}. The reader
+ * thread is started on the first call.
+ * </p>
+ * 
+ * <p>
+ * A reader created by {@link #onDemand(ReadableByteChannel, Charset)} doesn't 
+ * read ahead: a line is read from the channel only when it's requested by 
+ * {@link #readLine()}, byte by byte, so the rest of the input stays in 
+ * the channel for others, e.g. a command handler prompting the user.
+ * </p>
+ * 
+ * <p>
+ * <code>System.in</code> is one per process, its lines are read by the
+ * shared {@link #stdin()} reader, so a line read for a finished shell 
+ * is passed to a next one.
+ * </p>
+ * 
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public final class LineReader {
+
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	/** the end of input mark put into the queue, compared by identity */
+	private static final String EOF = new String();
+
+	private static final AtomicInteger readers = new AtomicInteger();
+
+	private static final class StdIn {
+		static final LineReader INSTANCE = System.console() != null
+				? onDemand(Channels.newChannel(System.in), Charset.defaultCharset())
+				: new LineReader(Channels.newChannel(System.in));
+	}
+
+	/** a size of buffers of the on demand reading, a byte is read at once */
+	private static final int ON_DEMAND_BUFFER_SIZE = 16;
+
+	private final ReadableByteChannel channel;
+
+	private final int bufferSize;
+
+	private final Charset charset;
+
+	private final BlockingQueue<String> lines;
+
+	private final boolean onDemand;
+
+	/** guarded by this */
+	private Thread reader;
+
+	/** a line is requested from the on demand reader, guarded by this */
+	private boolean requested;
+
+	private volatile boolean eof;
+
+	private volatile IOException failure;
+
+	/**
+	 * Creates a reader of the channel with the default charset, buffer 
+	 * size and queue capacity
+	 */
+	public LineReader(ReadableByteChannel channel) {
+		this(channel, Charset.defaultCharset(), DEFAULT_BUFFER_SIZE, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param channel
+	 * 			- a channel to read
+	 * @param charset
+	 * 			- a charset of the input
+	 * @param bufferSize
+	 * 			- a size of the read buffer, in bytes
+	 * @param capacity
+	 * 			- a number of lines read ahead
+	 */
+	public LineReader(ReadableByteChannel channel, Charset charset, int bufferSize, int capacity) {
+		this(channel, charset, bufferSize, capacity, false);
+	}
+
+	private LineReader(ReadableByteChannel channel, Charset charset, int bufferSize, 
+			int capacity, boolean onDemand) {
+		this.channel = channel;
+		this.charset = charset;
+		this.bufferSize = bufferSize;
+		this.lines = new ArrayBlockingQueue<>(capacity);
+		this.onDemand = onDemand;
+	}
+
+	/**
+	 * Creates a reader which reads a line of the channel only when it's 
+	 * requested, with no read ahead
+	 * 
+	 * @param channel
+	 * 			- a channel to read
+	 * @param charset
+	 * 			- a charset of the input
+	 */
+	public static LineReader onDemand(ReadableByteChannel channel, Charset charset) {
+		// a requested line and the end of the input at most
+		return new LineReader(channel, charset, ON_DEMAND_BUFFER_SIZE, 2, true);
+	}
+
+	/**
+	 * Returns the reader of <code>System.in</code>. The channel is taken 
+	 * on the first call, the later <code>System.setIn</code> is ignored.
+	 * The input of a console is read on demand, a redirected input is
+	 * read ahead.
+	 */
+	public static LineReader stdin() {
+		return StdIn.INSTANCE;
+	}
+
+	/**
+	 * Waits for a next line
+	 * 
+	 * @return the line without the line terminator, or <code>null</code>
+	 * 			at the end of the input
+	 * 
+	 * @throws IOException
+	 * 			if the input cannot be read, it's thrown once and the end 
+	 * 			of the input follows
+	 * @throws InterruptedException
+	 * 			if the waiting thread is interrupted
+	 */
+	public String readLine() throws IOException, InterruptedException {
+		if (eof)
+			return null;
+		start();
+		if (onDemand)
+			request();
+		
+		String line = lines.take();
+		if (line == EOF) {
+			eof = true;
+			IOException e = failure;
+			if (e != null) {
+				failure = null;
+				throw e;
+			}
+			return null;
+		}
+		return line;
+	}
+
+	/**
+	 * @return true if a line can be taken without waiting 
+	 */
+	public boolean ready() {
+		return eof || !lines.isEmpty();
+	}
+
+	private synchronized void start() {
+		if (reader == null) {
+			reader = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					read();
+				}
+			}, "shell-input-" + readers.incrementAndGet());
+			reader.setDaemon(true);
+			reader.start();
+		}
+	}
+
+	private synchronized void request() {
+		if (!requested && lines.isEmpty()) {
+			requested = true;
+			notifyAll();
+		}
+	}
+
+	private synchronized void awaitRequest() throws InterruptedException {
+		while (!requested)
+			wait();
+	}
+
+	private void put(String line) throws InterruptedException {
+		if (onDemand) {
+			// the queue has room for the requested line
+			synchronized (this) {
+				requested = false;
+				lines.put(line);
+			}
+		} else
+			lines.put(line);
+	}
+
+	private void read() {
+		CharsetDecoder decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		ByteBuffer bytes = ByteBuffer.allocate(bufferSize);
+		CharBuffer chars = CharBuffer.allocate(bufferSize);
+		StringBuilder line = new StringBuilder(128);
+		try {
+			try {
+				boolean end = false;
+				while (!end) {
+					if (onDemand) {
+						awaitRequest();
+						bytes.limit(bytes.position() + 1);
+					}
+					end = channel.read(bytes) < 0;
+					bytes.flip();
+					CoderResult result;
+					do {
+						result = decoder.decode(bytes, chars, end);
+						chars.flip();
+						split(chars, line);
+						chars.clear();
+					} while (result.isOverflow());
+					bytes.compact();
+				}
+				decoder.flush(chars);
+				chars.flip();
+				split(chars, line);
+				if (line.length() > 0)
+					put(line.toString());
+			} catch (IOException e) {
+				failure = e;
+			} finally {
+				put(EOF);
+			}
+		} catch (InterruptedException e) {
+			// nobody waits for the input
+		}
+	}
+
+	/**
+	 * Puts the finished lines of the chars into the queue, the rest 
+	 * is kept in the line buffer
+	 */
+	private void split(CharBuffer chars, StringBuilder line) throws InterruptedException {
+		char[] a = chars.array();
+		int from = chars.position();
+		int limit = chars.limit();
+		for (int i = from; i < limit; i++) {
+			if (a[i] == '\n') {
+				line.append(a, from, i - from);
+				int length = line.length();
+				// '\r' could be at the end of the previous chars
+				if (length > 0 && line.charAt(length - 1) == '\r')
+					line.setLength(length - 1);
+				put(line.toString());
+				line.setLength(0);
+				from = i + 1;
+			}
+		}
+		line.append(a, from, limit - from);
+	}
+}
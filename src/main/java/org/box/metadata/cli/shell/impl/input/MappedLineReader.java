@@ -0,0 +1,152 @@
+package org.box.metadata.cli.shell.impl.input;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+
+/**
+ * <p>
+ * Reads lines of a file mapped into memory, e.g. of a large script. The 
+ * file is mapped by windows, so a file of any size is read by a few
+ * mappings. A line ends with <code>'\n'</code>, <code>"\r\n"</code> is 
+ * accepted too.
+ * </p>
+ * 
+ * <p>
+ * Lines are split by bytes, so the charset must encode <code>'\n'</code> 
+ * and <code>'\r'</code> as single ASCII bytes, like UTF-8 and ISO-8859 
+ * charsets do. An instance is not thread-safe.
+ * </p>
+ * 
+ * @see LineReader
+ * 
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public final class MappedLineReader implements Closeable {
+
+	public static final int DEFAULT_WINDOW = 64 * 1024 * 1024;
+
+	private final RandomAccessFile file;
+
+	private final FileChannel channel;
+
+	private final Charset charset;
+
+	private final long size;
+
+	private int window;
+
+	private MappedByteBuffer buffer;
+
+	/** the file position of the buffer */
+	private long offset;
+
+	private byte[] line = new byte[256];
+
+	private int lineNumber;
+
+	/**
+	 * Opens the file with the default charset and window size
+	 */
+	public MappedLineReader(File file) throws IOException {
+		this(file, Charset.defaultCharset(), DEFAULT_WINDOW);
+	}
+
+	/**
+	 * @param file
+	 * 			- a file to read
+	 * @param charset
+	 * 			- a charset of the file
+	 * @param window
+	 * 			- a size of a mapped region, in bytes. It's grown for a 
+	 * 			longer line.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			if line terminators are not single bytes in the charset
+	 */
+	public MappedLineReader(File file, Charset charset, int window) throws IOException {
+		if (!"\r\n".equals(new String(new byte[] {'\r', '\n'}, charset)))
+			throw new IllegalArgumentException("Lines of " + charset + " cannot be split by bytes");
+		
+		this.file = new RandomAccessFile(file, "r");
+		this.channel = this.file.getChannel();
+		this.charset = charset;
+		this.window = window;
+		this.size = channel.size();
+		map(0);
+	}
+
+	/**
+	 * @return a next line without the line terminator, or <code>null</code>
+	 * 			at the end of the file
+	 */
+	public String readLine() throws IOException {
+		int start = buffer.position();
+		if (offset + start >= size)
+			return null;
+		
+		int end = find(start);
+		while (end < 0) {
+			if (offset + buffer.limit() >= size) {
+				// the last line without a terminator
+				end = buffer.limit();
+				break;
+			}
+			// the line continues beyond the window
+			if (start == 0)
+				window = (int) Math.min(Integer.MAX_VALUE - 8, window * 2L);
+			map(offset + start);
+			start = 0;
+			end = find(0);
+		}
+		
+		int length = end - start;
+		if (length > 0 && buffer.get(end - 1) == '\r')
+			length--;
+		
+		if (line.length < length)
+			line = new byte[Math.max(length, line.length * 2)];
+		buffer.position(start);
+		buffer.get(line, 0, length);
+		buffer.position(end < buffer.limit() ? end + 1 : end);
+		
+		lineNumber++;
+		return new String(line, 0, length, charset);
+	}
+
+	/**
+	 * @return the number of the last read line, starting with 1
+	 */
+	public int getLineNumber() {
+		return lineNumber;
+	}
+
+	@Override
+	public void close() throws IOException {
+		buffer = null;
+		file.close();
+	}
+
+	/**
+	 * @return the index of '\n' in the buffer, or -1
+	 */
+	private int find(int from) {
+		MappedByteBuffer b = buffer;
+		int limit = b.limit();
+		for (int i = from; i < limit; i++)
+			if (b.get(i) == '\n')
+				return i;
+		return -1;
+	}
+
+	private void map(long position) throws IOException {
+		offset = position;
+		buffer = channel.map(MapMode.READ_ONLY, position, Math.min(window, size - position));
+	}
+}
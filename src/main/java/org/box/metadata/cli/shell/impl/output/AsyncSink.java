@@ -0,0 +1,203 @@
+package org.box.metadata.cli.shell.impl.output;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * An {@link OutputSink} which passes texts to another sink on a writer 
+ * thread, so the appending thread, e.g. a command handler, never waits
+ * for terminal I/O. The writer flushes the sink when no text is appended 
+ * for the flush interval.
+ * </p>
+ * 
+ * <p>
+ * {@link #flush()} waits for the writer to print all texts appended
+ * before. A failure of the sink on the writer thread is thrown by the 
+ * next flush. The writer is a daemon thread stopped by {@link #close()}, 
+ * the closed sink can't be used.
+ * </p>
+ * 
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public class AsyncSink implements OutputSink {
+
+	public static final long DEFAULT_INTERVAL = 50;
+
+	/** how often a waiting flush checks the writer is alive, in milliseconds */
+	private static final long ALIVE_CHECK_INTERVAL = 100;
+
+	private static final AtomicInteger writers = new AtomicInteger();
+
+	/**
+	 * A request to flush put into the queue
+	 */
+	private static final class Flush {
+		final CountDownLatch done = new CountDownLatch(1);
+		final boolean close;
+		volatile Throwable failure;
+
+		Flush(boolean close) {
+			this.close = close;
+		}
+	}
+
+	private final OutputSink sink;
+
+	private final long interval;
+
+	private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+
+	private final Thread writer;
+
+	private volatile boolean closed;
+
+	/** a failure of the sink not reported yet, accessed by the writer only */
+	private Throwable failure;
+
+	/**
+	 * Creates a writer over a {@link BufferedSink} of <code>System.out</code>
+	 */
+	public AsyncSink() {
+		this(new BufferedSink(), DEFAULT_INTERVAL);
+	}
+
+	/**
+	 * @param sink
+	 * 			- a sink to pass texts to
+	 * @param interval
+	 * 			- an idle time to flush the sink after, in milliseconds
+	 */
+	public AsyncSink(OutputSink sink, long interval) {
+		this.sink = sink;
+		this.interval = interval;
+		writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				write();
+			}
+		}, "shell-output-" + writers.incrementAndGet());
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * @throws IllegalStateException
+	 * 			if the sink is closed
+	 */
+	@Override
+	public void append(String text) {
+		checkOpen();
+		queue.add(text);
+	}
+
+	/**
+	 * @throws IllegalStateException
+	 * 			if the sink is closed or failed to write the texts
+	 */
+	@Override
+	public void flush() {
+		checkOpen();
+		await(new Flush(false));
+	}
+
+	/**
+	 * @throws IllegalStateException
+	 * 			if the sink failed to write the last texts
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (closed)
+				return;
+			closed = true;
+		}
+		await(new Flush(true));
+	}
+
+	private void checkOpen() {
+		if (closed)
+			throw new IllegalStateException("the output is closed");
+	}
+
+	private void await(Flush flush) {
+		queue.add(flush);
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					if (flush.done.await(ALIVE_CHECK_INTERVAL, TimeUnit.MILLISECONDS))
+						break;
+					// the writer is stopped by a concurrent close
+					if (!writer.isAlive() && flush.done.getCount() > 0)
+						throw new IllegalStateException("the output is closed");
+				} catch (InterruptedException e) {
+					// the output is flushed anyway, e.g. for a killed job
+					interrupted = true;
+				}
+			}
+		} finally {
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+		if (flush.failure != null)
+			throw new IllegalStateException("cannot write the output", flush.failure);
+	}
+
+	private void write() {
+		boolean dirty = false;
+		while (true) {
+			Object o;
+			try {
+				o = dirty ? queue.poll(interval, TimeUnit.MILLISECONDS) : queue.take();
+			} catch (InterruptedException e) {
+				continue;
+			}
+
+			if (o == null) {
+				dirty = false;
+				try {
+					sink.flush();
+				} catch (Throwable e) {
+					failed(e);
+				}
+			} else if (o instanceof Flush) {
+				Flush flush = (Flush) o;
+				dirty = false;
+				try {
+					sink.flush();
+					if (flush.close)
+						sink.close();
+				} catch (Throwable e) {
+					failed(e);
+				}
+				flush.failure = failure;
+				failure = null;
+				flush.done.countDown();
+				if (flush.close)
+					return;
+			} else {
+				dirty = true;
+				try {
+					sink.append((String) o);
+				} catch (Throwable e) {
+					failed(e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Keeps a failure of the sink to the next flush, the writer goes on
+	 */
+	private void failed(Throwable e) {
+		if (failure == null)
+			failure = e;
+		else if (failure != e)
+			failure.addSuppressed(e);
+	}
+}
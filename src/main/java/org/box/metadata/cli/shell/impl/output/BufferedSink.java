@@ -0,0 +1,79 @@
+package org.box.metadata.cli.shell.impl.output;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * An {@link OutputSink} collecting texts into a buffer, so many small 
+ * texts are encoded and printed to the stream by one write. 
+ * </p>
+ * 
+ * <p>
+ * The buffer is flushed when it's full, when a text is appended later 
+ * than the delay after the first buffered one, or by {@link #flush()}, 
+ * e.g. at the end of a command. The delay is checked on appending only, 
+ * {@link AsyncSink} over the buffered one flushes it by time.
+ * </p>
+ * 
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public class BufferedSink extends StreamSink {
+
+	public static final int DEFAULT_SIZE = 8192;
+
+	public static final long DEFAULT_DELAY = 100;
+
+	private final int size;
+
+	private final long delay;
+
+	/** guarded by this */
+	private final StringBuilder buffer;
+
+	private long first;
+
+	/**
+	 * Creates a sink of the current <code>System.out</code> with the 
+	 * default buffer size and delay
+	 */
+	public BufferedSink() {
+		this(null, DEFAULT_SIZE, DEFAULT_DELAY);
+	}
+
+	/**
+	 * @param out
+	 * 			- a stream to print to, or <code>null</code> for the
+	 * 			current <code>System.out</code>
+	 * @param size
+	 * 			- a number of chars to flush the buffer at
+	 * @param delay
+	 * 			- a maximal delay of a buffered text, in milliseconds
+	 */
+	public BufferedSink(PrintStream out, int size, long delay) {
+		super(out);
+		this.size = size;
+		this.delay = TimeUnit.MILLISECONDS.toNanos(delay);
+		this.buffer = new StringBuilder(size);
+	}
+
+	@Override
+	public synchronized void append(String text) {
+		if (buffer.length() == 0)
+			first = System.nanoTime();
+		buffer.append(text);
+		if (buffer.length() >= size || System.nanoTime() - first >= delay)
+			flush();
+	}
+
+	@Override
+	public synchronized void flush() {
+		PrintStream out = stream();
+		if (buffer.length() > 0) {
+			out.print(buffer.toString());
+			buffer.setLength(0);
+		}
+		out.flush();
+	}
+}
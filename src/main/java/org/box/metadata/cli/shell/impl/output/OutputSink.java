@@ -0,0 +1,33 @@
+package org.box.metadata.cli.shell.impl.output;
+
+import org.box.metadata.cli.shell.Shell;
+
+/**
+ * Describes a destination of messages appended to the {@link Shell}.
+ * A sink can buffer the messages, they are written out on {@link #flush()}
+ * at the latest. Implementations are thread-safe.
+ * 
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public interface OutputSink {
+
+	/**
+	 * Appends a text to the output
+	 * 
+	 * @param text
+	 * 			- a text to append
+	 */
+	void append(String text);
+
+	/**
+	 * Writes out all appended text and returns when it's written
+	 */
+	void flush();
+
+	/**
+	 * Flushes the output and releases the sink's resources. The sink 
+	 * must not be used after.
+	 */
+	void close();
+}
@@ -0,0 +1,54 @@
+package org.box.metadata.cli.shell.impl.output;
+
+import java.io.PrintStream;
+
+/**
+ * An unbuffered {@link OutputSink}, each text is printed to the stream
+ * at once.
+ * 
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public class StreamSink implements OutputSink {
+
+	private final PrintStream out;
+
+	/**
+	 * Creates a sink of the current <code>System.out</code>
+	 */
+	public StreamSink() {
+		this(null);
+	}
+
+	/**
+	 * @param out
+	 * 			- a stream to print to, or <code>null</code> for the
+	 * 			current <code>System.out</code>
+	 */
+	public StreamSink(PrintStream out) {
+		this.out = out;
+	}
+
+	@Override
+	public void append(String text) {
+		stream().print(text);
+	}
+
+	@Override
+	public void flush() {
+		stream().flush();
+	}
+
+	@Override
+	public void close() {
+		flush();
+	}
+
+	/**
+	 * Returns the stream to print to. <code>System.out</code> is 
+	 * taken on each call since it can be replaced.
+	 */
+	protected PrintStream stream() {
+		return out != null ? out : System.out;
+	}
+}
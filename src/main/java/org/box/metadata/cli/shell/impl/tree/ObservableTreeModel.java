@@ -0,0 +1,23 @@
+package org.box.metadata.cli.shell.impl.tree;
+
+/**
+ * <p>
+ * A {@link TraversableTreeModel} which notifies about changes of its 
+ * content. {@link TraversableShell} caches the commands of folders only
+ * for such a model, since it knows when the cache is stale.
+ * </p>
+ *
+ * @see TraversableTreeListener
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public interface ObservableTreeModel extends TraversableTreeModel {
+
+	/**
+	 * Registers a listener to be notified about changes of the tree
+	 */
+	void addTreeListener(TraversableTreeListener listener);
+
+	void removeTreeListener(TraversableTreeListener listener);
+}
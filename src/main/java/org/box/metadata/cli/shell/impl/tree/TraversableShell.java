@@ -1,62 +1,144 @@
 package org.box.metadata.cli.shell.impl.tree;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.box.metadata.cli.impl.CommandCompile;
 import org.box.metadata.cli.impl.ConfigurationModel;
 import org.box.metadata.cli.impl.DefaultConfigurationModel;
 import org.box.metadata.cli.impl.MetaCommandLineParser.ParserType;
+import org.box.metadata.cli.impl.ModelSnapshot;
 import org.box.metadata.cli.shell.impl.AbstractShell;
 import org.box.metadata.cli.shell.impl.ShellCommandsModel;
 import org.box.metadata.cli.util.StrTokenizer;
+import org.box.metadata.cli.util.Tokens;
 
 public class TraversableShell extends AbstractShell {
+
+	/**
+	 * The Shell's model which switches the commands to the ones 
+	 * of the addressed folder. The root options and arguments 
+	 * are of the embedded commands model.
+	 */
+	private static final class FolderCommandsModel extends DefaultConfigurationModel {
+
+		private volatile ConfigurationModel commands;
+
+		FolderCommandsModel(ConfigurationModel embeddedCommandsModel) {
+			super(embeddedCommandsModel);
+			commands = embeddedCommandsModel;
+		}
+
+		void use(ConfigurationModel commands) {
+			this.commands = commands;
+		}
+
+		@Override
+		public List<CommandCompile> getCommands() {
+			return commands.getCommands();
+		}
+
+		@Override
+		public CommandCompile findCommandForInput(String[] args) {
+			return commands.findCommandForInput(args);
+		}
+	}
 	
-	BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
+	private final Tokens tokens = createTokens();
 
 	private final TraversableTreeModel treeModel;
 
 	private final ConfigurationModel embeddedCommandsModel;
 
+	private final FolderCommandsModel model;
+
+	/** 
+	 * snapshots of folders' commands by path, kept only for an 
+	 * {@link ObservableTreeModel} while the shell listens to it
+	 */
+	private final ConcurrentHashMap<String, ConfigurationModel> folders = new ConcurrentHashMap<>();
+
+	private final TraversableTreeListener treeListener = new TraversableTreeListener() {
+		@Override
+		public void folderChanged(String path) {
+			invalidateFolder(path);
+		}
+
+		@Override
+		public void treeChanged() {
+			invalidateFolder(null);
+		}
+	};
+
+	private volatile boolean listening;
+
 	public TraversableShell(ParserType parserType, 
 			ConfigurationModel embeddedCommandsModel, 
 			TraversableTreeModel treeModel) {
-		super(parserType, new DefaultConfigurationModel(embeddedCommandsModel));
+		this(parserType, new FolderCommandsModel(embeddedCommandsModel), 
+				embeddedCommandsModel, treeModel);
+	}
+
+	private TraversableShell(ParserType parserType, FolderCommandsModel model,
+			ConfigurationModel embeddedCommandsModel, 
+			TraversableTreeModel treeModel) {
+		super(parserType, model);
+		this.model = model;
 		this.treeModel = treeModel;
 		this.embeddedCommandsModel = embeddedCommandsModel;
 	}
-	
 
 	/*
 	 * (non-Javadoc)
-	 * @see org.box.metadata.cli.shell.Shell#appendMessage(java.lang.String)
+	 * @see org.box.metadata.cli.shell.impl.AbstractShell#createTokens()
 	 */
 	@Override
-	public void appendMessage(String msg) {
-		System.out.println(msg);
+	protected Tokens createTokens() {
+		Tokens tokens = new Tokens();
+		// slash ('/') cannot be escaped so all escapes are removed, 
+		// but quotes are kept
+		tokens.setUnquoting(false);
+		return tokens;
 	}
-	
+
 	/*
 	 * (non-Javadoc)
-	 * @see org.box.metadata.cli.shell.Shell#appendMessageNoBr(java.lang.String)
+	 * @see org.box.metadata.cli.shell.impl.AbstractShell#commandInput(java.lang.String[])
 	 */
 	@Override
-	public void appendMessageNoBr(String msg) {
-		System.out.print(msg);
+	protected String[] commandInput(String[] tokens) {
+		return processCommandPath(tokens);
+	}
+
+	/**
+	 * A command is resolved against the current folder which is changed by 
+	 * the commands before, so the commands aren't parsed ahead
+	 */
+	@Override
+	protected boolean canParseAhead() {
+		return false;
 	}
+	
 
 	/*
 	 * (non-Javadoc)
-	 * @see org.box.metadata.cli.shell.Shell#exit()
+	 * @see org.box.metadata.cli.shell.Shell#appendMessage(java.lang.String)
 	 */
 	@Override
-	public void exit() {
-		this.doExit = true;
-		// TODO: interrupt 'System.in' waiting
+	public void appendMessage(String msg) {
+		getOutput().append(msg + System.lineSeparator());
 	}
 	
+	/*
+	 * (non-Javadoc)
+	 * @see org.box.metadata.cli.shell.Shell#appendMessageNoBr(java.lang.String)
+	 */
+	@Override
+	public void appendMessageNoBr(String msg) {
+		getOutput().append(msg);
+	}
+
 	@Override
 	public void runAndExit(String[] args) {
 		super.runAndExit(processCommandPath(args));
@@ -65,36 +147,31 @@ public class TraversableShell extends AbstractShell {
 	@Override
 	protected String[] getUserInput() {
 		System.out.print(treeModel.currentFolder() + ">");
-		try {
-			StrTokenizer tokenizer;
-			String lines = "";
-			ArrayList<String> args = new ArrayList<>(); 
-			do {
-				lines = lines.length() > 0 ? lines + "\n" + br.readLine() : br.readLine();
-				tokenizer = new StrTokenizer(lines.replace('\t', ' '), ' ');
-				tokenizer.setUnescaping(StrTokenizer.UNESCAPING_ALL); // slash ('/') cannot be escaped
-				 													  // so, remove all escapes
-				args.clear();
-				String element = null;
-				while ((element = tokenizer.nextToken()) != null) 
-					args.add(element);
-			
-				if (tokenizer.isStringIncomplete()) 
-					System.out.print(">");
-				if (args.size() == 0)
-					System.out.print(treeModel.currentFolder() + ">");
-			} while (args.size() == 0 || tokenizer.isStringIncomplete());
-			
-			return processCommandPath(args.toArray(new String[args.size()]));
-			
-		} catch (IOException e) {
-			throw new RuntimeException(e);
+		String line = readLine();
+		if (line == null)
+			return new String[0];
+		
+		tokens.tokenize(line);
+		while (tokens.size() == 0 || tokens.isIncomplete()) {
+			if (tokens.isIncomplete()) {
+				// continues the open quotes, the tokens before are kept
+				System.out.print(">");
+				if ((line = readLine()) == null)
+					return new String[0];
+				tokens.append(line);
+			} else {
+				System.out.print(treeModel.currentFolder() + ">");
+				if ((line = readLine()) == null)
+					return new String[0];
+				tokens.tokenize(line);
+			}
 		}
+		
+		return commandInput(tokens.toArray());
 	}
 
 
 	protected String[] processCommandPath(String[] args) {
-		DefaultConfigurationModel model = (DefaultConfigurationModel) getModel();
 		String first = args[0];
 		
 		if (first.indexOf('/') != -1) {
@@ -113,25 +190,110 @@ public class TraversableShell extends AbstractShell {
 				path += pathpart.get(i) + "/";
 			}
 			
-			model.clearCommands();
-			Object[] list = treeModel.list(path);
+			model.use(folderCommands(path));
+			args[0] = pathpart.get(pathpart.size() -1);
+			
+		} else {
+			model.use(embeddedCommandsModel);
+		}
+		return args;
+	}
+
+	/**
+	 * Returns the commands of the folder, collected into a snapshot. 
+	 * If the tree model notifies about changes the snapshot is cached 
+	 * until the model reports a change, otherwise the folder is listed 
+	 * on each call.
+	 */
+	private ConfigurationModel folderCommands(String path) {
+		if (!listenTree())
+			return listCommands(path);
+
+		// a relative path is resolved by the tree model against the current folder
+		String key = path.charAt(0) == '/' ? path : treeModel.currentFolder() + '\0' + path;
+		
+		ConfigurationModel commands = folders.get(key);
+		if (commands == null) {
+			ConfigurationModel folder = listCommands(path);
+			ConfigurationModel prev = folders.putIfAbsent(key, folder);
+			commands = prev != null ? prev : folder;
+		}
+		return commands;
+	}
+
+	private ConfigurationModel listCommands(String path) {
+		ModelSnapshot folder = ModelSnapshot.EMPTY;
+		Object[] list = treeModel.list(path);
+		if (list != null)
 			for (Object o : list)
 				if (o instanceof ConfigurationModel) {
 					// could be improved to check the last pathpart element
 					// is equal to ConfigurationModel's name
 					if (o instanceof ShellCommandsModel) {
-						model.addCommands(((ConfigurationModel) o).getCommands());
+						folder = folder.withCommands(((ConfigurationModel) o).getCommands());
 					} else
 						throw new UnsupportedOperationException(
 								"ConfigurationModel is not ShellCommandsModel. Only ShellCommandsModel is currently supported");
 				}
-			args[0] = pathpart.get(pathpart.size() -1);
-			
-		} else {
-			model.clearCommands();
-			model.addCommands(embeddedCommandsModel.getCommands());
+		return folder;
+	}
+
+	/**
+	 * Starts listening to the tree model if it notifies about changes
+	 * 
+	 * @return <code>true</code> if the folders can be cached
+	 */
+	private boolean listenTree() {
+		if (!(treeModel instanceof ObservableTreeModel))
+			return false;
+		
+		if (!listening) {
+			synchronized (treeListener) {
+				if (!listening) {
+					((ObservableTreeModel) treeModel).addTreeListener(treeListener);
+					listening = true;
+				}
+			}
 		}
-		return args;
+		return true;
+	}
+
+	/**
+	 * Stops listening to the tree model, so the model doesn't keep 
+	 * the shell, and drops the cached folders
+	 */
+	@Override
+	protected void dispose() {
+		try {
+			super.dispose();
+		} finally {
+			synchronized (treeListener) {
+				if (listening) {
+					((ObservableTreeModel) treeModel).removeTreeListener(treeListener);
+					listening = false;
+				}
+				folders.clear();
+			}
+		}
+	}
+
+	/**
+	 * Drops the cached commands of the folder. Cached relative paths 
+	 * are dropped too since they could be resolved to the folder.
+	 * 
+	 * @param path
+	 * 			- a path of the folder, or <code>null</code> to drop all
+	 */
+	protected void invalidateFolder(String path) {
+		if (path == null) {
+			folders.clear();
+			return;
+		}
+		
+		String folder = path.endsWith("/") ? path : path + "/";
+		for (String key : folders.keySet())
+			if (key.equals(folder) || key.indexOf('\0') != -1)
+				folders.remove(key);
 	}
 	
 	public TraversableTreeModel getTreeModel() {
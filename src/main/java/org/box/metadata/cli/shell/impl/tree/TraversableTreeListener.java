@@ -0,0 +1,30 @@
+package org.box.metadata.cli.shell.impl.tree;
+
+/**
+ * <p>
+ * Receives notifications about changes of a {@link TraversableTreeModel}
+ * content, e.g. to drop the data cached per folder.
+ * </p>
+ *
+ * @see ObservableTreeModel#addTreeListener(TraversableTreeListener)
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public interface TraversableTreeListener {
+
+	/**
+	 * The content of the folder has changed
+	 *
+	 * @param path
+	 * 			- a path of the folder as the model accepts it in
+	 * 			{@link TraversableTreeModel#list(String)}
+	 */
+	void folderChanged(String path);
+
+	/**
+	 * Anything in the tree might have changed
+	 */
+	void treeChanged();
+
+}
@@ -1,6 +1,7 @@
 package org.box.metadata.cli.util;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -16,8 +17,13 @@ import org.box.metadata.cli.annotation.Command;
 import org.box.metadata.cli.annotation.Option;
 import org.box.metadata.cli.exception.InvalidConfigurationException;
 import org.box.metadata.cli.exception.ParseException;
+import org.box.metadata.cli.impl.BindingPlan;
+import org.box.metadata.cli.impl.BindingPlan.FieldBinding;
 import org.box.metadata.cli.impl.CommandCompile;
 import org.box.metadata.cli.impl.DefaultConfigurationModel;
+import org.box.metadata.cli.impl.LayeredOptions;
+import org.box.metadata.cli.impl.ModelCompiler;
+import org.box.metadata.cli.impl.ValueConverter;
 import org.box.metadata.cli.shell.impl.ShellCommandCompile;
 import org.box.metadata.cli.shell.impl.ShellCommandsModel;
 
@@ -40,11 +46,88 @@ public class CLIUtil {
 	
 	@SuppressWarnings("rawtypes")
 	private static final Class[] ARG_TYPES_ARRAY = {
-		String.class, int.class, float.class, boolean.class,
-		Integer.class, Float.class, Boolean.class};
-	
-	@SuppressWarnings("rawtypes")
-	private static final List<Class> ARG_TYPES = Arrays.asList(ARG_TYPES_ARRAY);
+		String.class, boolean.class, byte.class, short.class, int.class, 
+		long.class, float.class, double.class, Boolean.class, Byte.class, 
+		Short.class, Integer.class, Long.class, Float.class, Double.class};
+
+	private static final ModelCompiler NO_GENERATED_COMPILER = new ModelCompiler() {
+		@Override
+		public void compile(DefaultConfigurationModel model) {
+			throw new IllegalStateException();
+		}
+	};
+
+	/**
+	 * Compilers generated by the CLIConfigurationProcessor, 
+	 * or {@link #NO_GENERATED_COMPILER} if no one
+	 */
+	private static final ClassValue<ModelCompiler> GENERATED_COMPILERS = 
+			new ClassValue<ModelCompiler>() {
+				@Override
+				protected ModelCompiler computeValue(Class<?> cfgClass) {
+					try {
+						Class<?> c = Class.forName(generatedCompilerName(cfgClass.getName()), 
+								true, cfgClass.getClassLoader());
+						if (ModelCompiler.class.isAssignableFrom(c))
+							return (ModelCompiler) c.getDeclaredConstructor().newInstance();
+					} catch (ClassNotFoundException e) {
+						// the processor hasn't been run for the class, it's an 
+						// expected case, so the model is compiled by the reflection
+					} catch (InvocationTargetException e) {
+						throw new InvalidConfigurationException(e.getCause());
+					} catch (ReflectiveOperationException e) {
+						throw new InvalidConfigurationException(e);
+					} catch (LinkageError e) {
+						// a stale or broken generated class, use the reflection instead
+					}
+					return NO_GENERATED_COMPILER;
+				}
+			};
+
+	/**
+	 * Validates a name of a command
+	 * 
+	 * @param name
+	 * 			- a trimmed name of the command
+	 * 
+	 * @return an error message or <code>null</code> if the name is valid
+	 */
+	public static String validateCommandName(String name) {
+		if (COMMAND_VALIDTION_PATTERN.matcher(name).matches())
+			return null;
+		return "inappropriate command format: " + name 
+				+ "; allowed is: " + COMMAND_VALIDTION_PATTERN.pattern();
+	}
+
+	/**
+	 * Validates a short name of an option
+	 * 
+	 * @param name
+	 * 			- the short name of the option
+	 * 
+	 * @return an error message or <code>null</code> if the name is valid
+	 */
+	public static String validateOptionShortName(String name) {
+		if (OPTION_SHORNAME_VALIDTION_PATTERN.matcher(name.trim()).matches())
+			return null;
+		return String.format("invalid shortName of options: %s; pattern: %s", 
+				name, OPTION_SHORNAME_VALIDTION_PATTERN.pattern());
+	}
+
+	/**
+	 * Validates a full name of an option
+	 * 
+	 * @param name
+	 * 			- the full name of the option
+	 * 
+	 * @return an error message or <code>null</code> if the name is valid
+	 */
+	public static String validateOptionFullName(String name) {
+		if (OPTION_LONGNAME_VALIDTION_PATTERN.matcher(name.trim()).matches())
+			return null;
+		return String.format("invalid fullName of options: %s; pattern: %s", 
+				name, OPTION_LONGNAME_VALIDTION_PATTERN.pattern());
+	}
 
 	/**
 	 * Creates a Options list from the given configuration classes;
@@ -68,15 +151,13 @@ public class CLIUtil {
 			if (f.isAnnotationPresent(Option.class)) {
 				Option o = f.getAnnotation(Option.class);
 
-				if (!OPTION_SHORNAME_VALIDTION_PATTERN.matcher(o.shortName().trim()).matches())
-					throw new InvalidConfigurationException(
-							String.format("invalid shortName of options: %s; pattern: %s", 
-									o.shortName(), OPTION_SHORNAME_VALIDTION_PATTERN.pattern()));
+				String error = validateOptionShortName(o.shortName());
+				if (error != null)
+					throw new InvalidConfigurationException(error);
 				
-				if (!OPTION_LONGNAME_VALIDTION_PATTERN.matcher(o.fullName().trim()).matches())
-					throw new InvalidConfigurationException(
-							String.format("invalid fullName of options: %s; pattern: %s", 
-									o.fullName(), OPTION_LONGNAME_VALIDTION_PATTERN.pattern()));
+				error = validateOptionFullName(o.fullName());
+				if (error != null)
+					throw new InvalidConfigurationException(error);
 				
 				if (!o.hasArguments()
 						&& boolean.class != f.getType() 
@@ -85,8 +166,7 @@ public class CLIUtil {
 							String.format(OPTION_FIELD_TYPE_INVALID_BOOL, 
 									f.getName()));
 				} else if (o.hasArguments() 
-						&& ARG_TYPES.indexOf(f.getType()) == -1
-						&& !f.getType().isEnum())
+						&& !ValueConverter.isSupported(f.getType()))
 					throw new InvalidConfigurationException(
 							String.format(OPTION_FIELD_TYPE_INVALID, 
 									f.getName(), Arrays.toString(ARG_TYPES_ARRAY)));
@@ -115,8 +195,7 @@ public class CLIUtil {
 		for (Field f : cfgClass.getDeclaredFields()) {
 			if (f.isAnnotationPresent(Argument.class)) {
 				Argument a = f.getAnnotation(Argument.class);
-				if (ARG_TYPES.indexOf(f.getType()) == -1
-						&& !f.getType().isEnum())
+				if (!ValueConverter.isSupported(f.getType()))
 					throw new InvalidConfigurationException(
 							String.format(ARGUMENT_FIELD_TYPE_INVALID, 
 									f.getName(), Arrays.toString(ARG_TYPES_ARRAY)));
@@ -170,7 +249,40 @@ public class CLIUtil {
 	 */
 	public static void compileCommandsModel(DefaultConfigurationModel model, Class<?> cfgClass) 
 			throws InvalidConfigurationException {
+		compileCommandsModel(model, cfgClass, false);
+	}
+
+	/**
+	 * Creates a list of compiled commands from the given class and
+	 * puts them into the model. 
+	 * 
+	 * <p>
+	 * In the lazy mode only the command names are validated and indexed, 
+	 * options, arguments and bindings of a command are compiled when the 
+	 * command is used first (see {@link CommandCompile#isCompiled()}). 
+	 * So an invalid command type is reported on its first use. Compilers 
+	 * generated by the CLIConfigurationProcessor don't reflect and are 
+	 * always eager.
+	 * </p>
+	 * 
+	 * @param model
+	 * 			- a model to compile in
+	 * @param cfgClazz 
+	 * 			- the class to process
+	 * @param lazy
+	 * 			- true to compile the commands on demand
+	 * 
+	 * @throws InvalidConfigurationException 
+	 * 			- see {@link #compileCommandsModel(DefaultConfigurationModel, Class)}
+	 */
+	public static void compileCommandsModel(DefaultConfigurationModel model, Class<?> cfgClass, 
+			boolean lazy) throws InvalidConfigurationException {
 
+		ModelCompiler generated = GENERATED_COMPILERS.get(cfgClass);
+		if (generated != NO_GENERATED_COMPILER) {
+			generated.compile(model);
+			return;
+		}
 		
 		if (!cfgClass.isAnnotationPresent(CLIConfiguration.class)) {
 			throw new InvalidConfigurationException(
@@ -180,6 +292,11 @@ public class CLIUtil {
 		CLIConfiguration a = cfgClass.getAnnotation(CLIConfiguration.class);
 		
 		boolean shell = model instanceof ShellCommandsModel;
+		BindingPlan cfgBinding = new BindingPlan(cfgClass);
+		
+		// the application options are compiled once and shared by commands
+		org.apache.commons.cli.Options rootOptions = new Options();
+		createCLIOptions(rootOptions, cfgClass);
 
 		for (Field f : cfgClass.getDeclaredFields()) {
 			if (f.isAnnotationPresent(Command.class)) {
@@ -189,39 +306,94 @@ public class CLIUtil {
 				boolean defaultCommand = "".equals(cmdName);
 				if (defaultCommand && "".equals(a.name().trim()))
 					throw new InvalidConfigurationException("default command (command name == \"\") cannot be embedded (app name ==\"\")");
-				if (defaultCommand || COMMAND_VALIDTION_PATTERN.matcher(cmdName).matches()) {
-					org.apache.commons.cli.Options options = new Options();
-					createCLIOptions(options, cfgClass);
+				if (!defaultCommand && validateCommandName(cmdName) != null) {
+					throw new InvalidConfigurationException(validateCommandName(cmdName));
+				} else if (lazy) {
+					// the command type is compiled on demand
+					if (shell)
+						model.addCommand(new ShellCommandCompile(cmd, f, rootOptions, 
+								a.name(), cfgClass, cfgBinding));
+					else
+						model.addCommand(new CommandCompile(cmd, f, rootOptions, cfgBinding));
+				} else {
+					org.apache.commons.cli.Options options = new LayeredOptions(rootOptions);
 					createCLIOptions(options, f.getType()); // command options overrides app. options
 					if (shell) {
 						ShellCommandCompile scc = new ShellCommandCompile(cmd, f, 
 								options, 
 								collectArguments(f.getType()),
 								findArgumentsSyntax(f.getType()), 
-								a.name(), cfgClass);
+								a.name(), cfgClass, cfgBinding);
 						model.addCommand(scc);
 					} else {
 						CommandCompile cc = new CommandCompile(cmd, f, 
 								options, 
 								collectArguments(f.getType()),
-								findArgumentsSyntax(f.getType()));
+								findArgumentsSyntax(f.getType()), 
+								cfgBinding);
 						model.addCommand(cc);
 					}
-				} else
-					throw new InvalidConfigurationException(
-							"inappropriate command format: " + cmdName 
-							+ "; allowed is: " + COMMAND_VALIDTION_PATTERN.pattern());
+				}
 			}
 		}
 
-		org.apache.commons.cli.Options options = new Options();
-		createCLIOptions(options, cfgClass);
-		
-		model.setRootCLIOptions(options);
+		model.setRootCLIOptions(rootOptions);
 		model.setRootArgumentsSyntax(findArgumentsSyntax(cfgClass));
 		model.setRootArguments(collectArguments(cfgClass));
+		model.setRootBindingPlan(cfgBinding);
 	}
 	
+	/**
+	 * Returns a binary name of the compiler generated for the given 
+	 * configuration class. Nested class names are flattened, e.g. 
+	 * <code>a.App$Cfg</code> gives <code>a.App_Cfg_CLIModel</code>.
+	 * 
+	 * @param cfgClassName
+	 * 			- a binary name of the configuration class
+	 * 
+	 * @return a binary name of the generated {@link ModelCompiler}
+	 */
+	public static String generatedCompilerName(String cfgClassName) {
+		return cfgClassName.replace('$', '_') + "_CLIModel";
+	}
+
+	/**
+	 * Adds a compiled command into the model. Creates {@link ShellCommandCompile}
+	 * if the model is a {@link ShellCommandsModel}, and {@link CommandCompile} 
+	 * otherwise. Used by generated compilers.
+	 */
+	public static void addCompiledCommand(DefaultConfigurationModel model, 
+			Command cmd, Options options, Argument[] arguments, String argumentsSyntax,
+			String appName, Class<?> cfgClass, BindingPlan cfgBinding, 
+			BindingPlan commandBinding, FieldBinding commandField) {
+		
+		if (model instanceof ShellCommandsModel) {
+			model.addCommand(new ShellCommandCompile(cmd, null, options, arguments, 
+					argumentsSyntax, appName, cfgClass, cfgBinding, commandBinding, commandField));
+		} else {
+			model.addCommand(new CommandCompile(cmd, null, options, arguments, 
+					argumentsSyntax, cfgBinding, commandBinding, commandField));
+		}
+	}
+
+	/**
+	 * Checks the given type is allowed for {@link Argument} fields 
+	 * and {@link Option} fields with arguments. Enums are allowed too.
+	 * 
+	 * @param canonicalName
+	 * 			- a canonical name of the type
+	 * 
+	 * @return true if the type is one of the supported value types
+	 */
+	@SuppressWarnings("rawtypes")
+	public static boolean isValueType(String canonicalName) {
+		for (Class c : ARG_TYPES_ARRAY) {
+			if (c.getCanonicalName().equals(canonicalName))
+				return true;
+		}
+		return false;
+	}
+
 	/**
 	 * Checks that <code>array</code> starts with <code>subArray</code>. 
 	 * 
@@ -246,14 +418,13 @@ public class CLIUtil {
 		return true;
 	}
 
+	/**
+	 * Finds a constant of the enum by name ignoring case
+	 * 
+	 * @see EnumTable
+	 */
 	public static Object findEnumConst(Class<?> type, String optionValue) {
-		for (Object c : type.getEnumConstants()){
-			Enum<?> e = (Enum<?>) c;
-			if(e.name().equalsIgnoreCase(optionValue)){
-				return c;
-			};
-		}
-		return null;
+		return EnumTable.of(type).get(optionValue);
 	}
 	
 	/**
@@ -283,89 +454,32 @@ public class CLIUtil {
 	public static Object autoCast(
 			Field f, String value, String option, String argument) 
 					throws ParseException {
-		
-		if (f.getType().isEnum()) {
-			Object val = CLIUtil.findEnumConst(f.getType(), value);
-			if (val == null) {
-				if (option != null)
-					throw new ParseException(
-							String.format("Option '%s' expected one of the: [%s] but was: '%s'", 
-									option, 
-									Arrays.toString(f.getType().getEnumConstants()), 
-									value));
-				else if (argument != null)
-					throw new ParseException(
-							String.format("Argument '%s' expected one of the: [%s] but was: '%s'", 
-									argument, 
-									Arrays.toString(f.getType().getEnumConstants()), 
-									value));
-				else
-					throw new IllegalStateException();
-			} else
-				return val;
-		} else {
+		return autoCast(f.getType(), value, option, argument);
+	}
 
-				if (f.getType() == int.class 
-						|| f.getType() == Integer.class ) {
-					try {
-						return Integer.parseInt(value);
-					} catch (NumberFormatException e) {
-						if (option != null)
-							throw new ParseException(
-								String.format("Option '%s' expected integer value but was: '%s'", 
-										option, 
-										value));
-						else if (argument != null)
-							throw new ParseException(
-								String.format("Argument '%s' expected integer value but was: '%s'", 
-										argument, 
-										value));
-						else
-							throw new IllegalStateException();
-					}
-				} else if (f.getType() == float.class 
-						|| f.getType() == Float.class) {
-					try {
-						return Float.parseFloat(value);
-					} catch (NumberFormatException e) {
-						if (option != null)
-							throw new ParseException(
-								String.format("Option '%s' expected float value but was: '%s'", 
-										option, 
-										value));
-						else if (argument != null)
-							throw new ParseException(
-								String.format("Argument '%s' expected float value but was: '%s'", 
-										argument, 
-										value));
-						else
-							throw new IllegalStateException();
-					}
-				} else if (f.getType() == boolean.class
-						|| f.getType() == Boolean.class) {
-					if ("true".equalsIgnoreCase(value) 
-							|| "1".equalsIgnoreCase(value))
-						return true;
-					else if ("false".equalsIgnoreCase(value) 
-							|| "0".equalsIgnoreCase(value))
-						return false;
-					
-					if (option != null)
-						throw new ParseException(
-							String.format("Option '%s' expected boolean value but was: '%s'", 
-									option, 
-									value));
-					else if (argument != null)
-						throw new ParseException(
-							String.format("Argument '%s' expected boolean value but was: '%s'", 
-									argument, 
-									value));
-					else
-						throw new IllegalStateException();
-				} else
-					return value;
-			
-		}
+	/**
+	 * Converts a string value to the given type
+	 * 
+	 * @param type
+	 * 			- a field type
+	 * @param value
+	 * 			- a value from the Command Line
+	 * @param option
+	 * 			- a key of the option having the value, or <code>null</code>
+	 * @param argument
+	 * 			- a name of the argument having the value, or <code>null</code>
+	 * 
+	 * @return a converted value, or the given one if the type is not supported
+	 * 
+	 * @throws ParseException
+	 * 			if the value doesn't fit the type
+	 * 
+	 * @see ValueConverter
+	 */
+	public static Object autoCast(
+			Class<?> type, String value, String option, String argument) 
+					throws ParseException {
+		return ValueConverter.of(type).convert(value, option, argument);
 	}
 
 	public static Class<?>[] appendCfg(Class<?>[] cfgClass, Class<?> append) {
@@ -375,15 +489,16 @@ public class CLIUtil {
 		return newArray;
 	}
 
+	/**
+	 * Splits a line of the user's input into arguments. Tokens are separated
+	 * by spaces and tabs, quoted and escaped separators don't split.
+	 * 
+	 * @see Tokens
+	 */
 	public static String[] smartSplit(String line) {
-		List<String> res = new ArrayList<>();
-
-		StrTokenizer tokenizer = new StrTokenizer(line.replace('\t', ' '), ' ');
-		String token = null;
-		while ((token = tokenizer.nextTokenUnquoted()) != null) {
-			res.add(token);
-		}
-		return res.toArray(new String[res.size()]);
+		Tokens tokens = new Tokens();
+		tokens.tokenize(line);
+		return tokens.toArray();
 	}
 
 }
@@ -0,0 +1,108 @@
+package org.box.metadata.cli.util;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A case insensitive lookup table of enum constants by name. The table
+ * is built once per enum class and cached, a lookup is a single probe
+ * of an open addressing hash table and allocates nothing.
+ * </p>
+ *
+ * <p>
+ * Names are compared like {@link String#equalsIgnoreCase(String)} does.
+ * If several constants differ only by case, the first declared wins.
+ * </p>
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public final class EnumTable {
+
+	private static final ClassValue<EnumTable> TABLES = new ClassValue<EnumTable>() {
+		@Override
+		protected EnumTable computeValue(Class<?> type) {
+			if (!type.isEnum())
+				throw new IllegalArgumentException("Not an enum: " + type.getName());
+			return new EnumTable(type.getEnumConstants());
+		}
+	};
+
+	private final Enum<?>[] slots;
+
+	private final int mask;
+
+	private final String constants;
+
+	private EnumTable(Object[] values) {
+		int size = Integer.highestOneBit(Math.max(values.length, 1) * 2 - 1) << 1;
+		slots = new Enum<?>[size];
+		mask = size - 1;
+		constants = Arrays.toString(values);
+
+		for (Object v : values) {
+			Enum<?> e = (Enum<?>) v;
+			int i = hash(e.name()) & mask;
+			while (slots[i] != null && !slots[i].name().equalsIgnoreCase(e.name()))
+				i = (i + 1) & mask;
+			if (slots[i] == null)
+				slots[i] = e;
+		}
+	}
+
+	/**
+	 * Returns a table of the enum class
+	 *
+	 * @param type
+	 * 			- an enum class
+	 *
+	 * @return a shared table
+	 *
+	 * @throws IllegalArgumentException
+	 * 			if the type is not an enum
+	 */
+	public static EnumTable of(Class<?> type) {
+		return TABLES.get(type);
+	}
+
+	/**
+	 * Finds a constant by name ignoring case
+	 *
+	 * @param name
+	 * 			- a name of the constant
+	 *
+	 * @return a constant or <code>null</code> if no such
+	 */
+	public Enum<?> get(String name) {
+		if (name == null)
+			return null;
+
+		int i = hash(name) & mask;
+		Enum<?> e;
+		while ((e = slots[i]) != null) {
+			if (e.name().equalsIgnoreCase(name))
+				return e;
+			i = (i + 1) & mask;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns all constants formatted for messages, like
+	 * {@link Arrays#toString(Object[])}
+	 */
+	public String getConstants() {
+		return constants;
+	}
+
+	/**
+	 * A hash of the name folded the same way as
+	 * {@link String#equalsIgnoreCase(String)} compares characters
+	 */
+	private static int hash(String name) {
+		int h = 0;
+		for (int i = 0; i < name.length(); i++)
+			h = 31 * h + Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+		return h ^ (h >>> 16);
+	}
+}
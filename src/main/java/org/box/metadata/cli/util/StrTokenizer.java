@@ -1,6 +1,25 @@
 package org.box.metadata.cli.util;
 
-
+/**
+ * <p>
+ * Splits a string into tokens by a separator. Separators within single 
+ * or double quotes and escaped by a backslash don't split. Backslashes 
+ * are removed from tokens according to the unescaping mode:
+ * <li>{@link #UNESCAPING_OFF} - tokens are returned as is
+ * <li>{@link #UNESCAPING_ALL} - a backslash escapes any character
+ * <li>{@link #UNESCAPING_SPEC} - a backslash escapes only quotes, 
+ * the separator and a backslash
+ * </p>
+ * 
+ * <p>
+ * The string is scanned once forward, the escape state is carried 
+ * from a character to the next one, so tokenizing takes linear time 
+ * regardless of how many backslashes the string has.
+ * </p>
+ * 
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
 public class StrTokenizer {
 
 	public static final byte UNESCAPING_OFF = 0;
@@ -13,6 +32,8 @@ public class StrTokenizer {
 	private int token_start = 0;
 	private boolean skipping = true;
 	private boolean quoting1, quoting2;
+	/** the next character is escaped by a backslash */
+	private boolean escaping;
 	private byte unescaping = UNESCAPING_ALL;
 
 	public StrTokenizer(String string, char separator) {
@@ -26,10 +47,12 @@ public class StrTokenizer {
 		
 		while (idx < string.length()) {
 			char c = string.charAt(idx);
-			if (c == separator && !quoting1 && !quoting2 && !escaped(c, idx)) {
+			boolean escaped = escaping;
+			escaping = c == '\\' && !escaped;
+			
+			if (c == separator && !quoting1 && !quoting2 && !escaped) {
 				if (!skipping) {
-					String token = removeEscapes(
-									string.substring(token_start, idx));
+					String token = removeEscapes(token_start, idx);
 					token_start = ++idx;
 					skipping = true;
 					return token;
@@ -39,15 +62,14 @@ public class StrTokenizer {
 				}
 			} else {
 				skipping = false;
-				if (c == '\'' && !quoting2 && !escaped(c, idx)) 
+				if (c == '\'' && !quoting2 && !escaped) 
 					quoting1 = !quoting1;
-				else if (c == '"' && !quoting1 && !escaped(c, idx))
+				else if (c == '"' && !quoting1 && !escaped)
 					quoting2 = !quoting2;
 				idx++;
 			}
 		}
-		return skipping ? null : removeEscapes(
-						string.substring(token_start, idx++));
+		return skipping ? null : removeEscapes(token_start, idx++);
 	}
 
 	public String nextTokenUnquoted() {
@@ -87,51 +109,36 @@ public class StrTokenizer {
 	}
 
 
-	private String removeEscapes(String token) {
-		if (unescaping != UNESCAPING_OFF && token.indexOf('\\') != -1) {
-			int len = token.length();
-			char[] buffer = new char[len];
-			token.getChars(0, token.length(), buffer, 0);
-			if (unescaping == UNESCAPING_SPEC) {
-				for (int i = buffer.length-1; i >= 0; i--) {
-					char c = buffer[i];
-					if ((c == '\'' || c == '"' || c == separator || c == '\\') 
-							&& escaped(buffer, c, i)) {
-						remove(buffer, --i, len--);
-					}
-				} 
-			} else {
-				// unescaping == UNESCAPING_ALL
-				for (int i = buffer.length-1; i >= 0; i--) {
-					char c = buffer[i];
-					if (escaped(buffer, c, i)) {
-						remove(buffer, --i, len--);
-					}
-				}
-			}
-		    return new String(buffer, 0, len);
-		} else
-			return token;
-	}
-
-	private boolean escaped(char c, int idx) {
-		if (idx-- < 1)
-			return false;
+	/**
+	 * Returns a token of the string between the given indexes 
+	 * with escapes removed
+	 */
+	private String removeEscapes(int from, int to) {
+		if (unescaping == UNESCAPING_OFF)
+			return string.substring(from, to);
 		
-		return string.charAt(idx) == '\\' && !escaped(c, idx);
-	}
-	
-	private static boolean escaped(char[] buffer, char c, int idx) {
-		if (idx-- < 1)
-			return false;
+		int i = from;
+		while (i < to && string.charAt(i) != '\\')
+			i++;
+		if (i == to)
+			return string.substring(from, to);
 		
-		return buffer[idx] == '\\' && !escaped(buffer, c, idx);
-	}
-
-	private static void remove(char[] buffer, int idx, int len) {
-		for (int i = idx; i < len-1; i++) {
-			buffer[i] = buffer[i+1];
+		char[] buffer = new char[to - from];
+		int len = i - from;
+		string.getChars(from, i, buffer, 0);
+		for (; i < to; i++) {
+			char c = string.charAt(i);
+			if (c == '\\' && i + 1 < to) {
+				char n = string.charAt(i + 1);
+				if (unescaping == UNESCAPING_ALL 
+						|| n == '\'' || n == '"' || n == separator || n == '\\') {
+					buffer[len++] = n;
+					i++;
+					continue;
+				}
+			}
+			buffer[len++] = c;
 		}
-		buffer[len-1] = 0;
+		return new String(buffer, 0, len);
 	}
 }
@@ -0,0 +1,294 @@
+package org.box.metadata.cli.util;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A reusable buffer of tokens of a line. {@link #tokenize(String)} scans
+ * the line once and writes start and end offsets and flags of every token
+ * into an <code>int[]</code> which is kept between calls, so tokenizing
+ * doesn't allocate per token. Strings are materialized on
+ * {@link #get(int)} only, for the tokens a caller actually needs.
+ * </p>
+ *
+ * <p>
+ * The tokens are split the same way as by {@link CLIUtil#smartSplit(String)}:
+ * spaces and tabs separate tokens unless quoted or escaped, backslashes
+ * escape any character ({@link StrTokenizer#UNESCAPING_ALL}) and matching
+ * quotes around a token are removed.
+ * </p>
+ *
+ * <p>
+ * A line ending within quotes can be continued by {@link #append(String)}.
+ * The scanning state (open quotes, a pending escape and the unfinished 
+ * token) is kept, so only the new line is scanned and the tokens already 
+ * finished are left as is.
+ * </p>
+ *
+ * <p>
+ * An instance is not thread-safe, keep one per reading thread.
+ * </p>
+ *
+ * @see StrTokenizer
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public final class Tokens {
+
+	/** the token contains backslashes to be removed */
+	public static final int ESCAPED = 1;
+
+	/** the token starts with a quote and can be quoted entirely */
+	public static final int QUOTED = 2;
+
+	private static final int SLOTS = 3;
+
+	private static final String[] NO_TOKENS = new String[0];
+
+	/** the tokenized line, or {@link #buffer} if lines were appended */
+	private CharSequence line;
+
+	private StringBuilder buffer;
+
+	/** start, end, flags of each token */
+	private int[] offsets = new int[SLOTS * 8];
+
+	private String[] strings = new String[8];
+
+	private int count;
+
+	private boolean unquoting = true;
+
+	// the scanning state
+	private boolean quoting1, quoting2, escaping;
+	private int start, flags;
+
+	/** the last token is unfinished, a continuation reopens it */
+	private boolean open;
+
+	/**
+	 * Splits the line into tokens replacing the previous ones
+	 *
+	 * @param line
+	 * 			- a line to split
+	 *
+	 * @return the number of tokens
+	 */
+	public int tokenize(String line) {
+		Arrays.fill(strings, 0, count, null);
+		this.line = line;
+		count = 0;
+		quoting1 = quoting2 = escaping = false;
+		start = -1;
+		open = false;
+		scan(0);
+		return count;
+	}
+
+	/**
+	 * Continues the tokenized text with a new line. The lines are joined
+	 * by <code>'\n'</code> which is a part of a token, not a separator.
+	 *
+	 * @param next
+	 * 			- a line to continue with
+	 *
+	 * @return the number of tokens
+	 */
+	public int append(String next) {
+		if (line != buffer) {
+			if (buffer == null)
+				buffer = new StringBuilder(line.length() + next.length() + 1);
+			buffer.setLength(0);
+			buffer.append(line);
+			line = buffer;
+		}
+
+		int from = buffer.length();
+		buffer.append('\n').append(next);
+		scan(from);
+		return count;
+	}
+
+	private void scan(int from) {
+		if (open) {
+			strings[--count] = null;
+			open = false;
+		}
+
+		CharSequence line = this.line;
+		int len = line.length();
+		for (int i = from; i < len; i++) {
+			char c = line.charAt(i);
+			boolean escaped = escaping;
+			escaping = c == '\\' && !escaped;
+
+			if ((c == ' ' || c == '\t') && !quoting1 && !quoting2 && !escaped) {
+				if (start != -1) {
+					add(start, i, flags);
+					start = -1;
+				}
+				continue;
+			}
+
+			if (start == -1) {
+				start = i;
+				flags = c == '\'' || c == '"' ? QUOTED : 0;
+			}
+			if (c == '\\')
+				flags |= ESCAPED;
+			else if (c == '\'' && !quoting2 && !escaped)
+				quoting1 = !quoting1;
+			else if (c == '"' && !quoting1 && !escaped)
+				quoting2 = !quoting2;
+		}
+
+		if (start != -1) {
+			add(start, len, flags);
+			open = true;
+		}
+	}
+
+	private void add(int start, int end, int flags) {
+		int i = count * SLOTS;
+		if (i + SLOTS > offsets.length) {
+			offsets = Arrays.copyOf(offsets, offsets.length * 2);
+			strings = Arrays.copyOf(strings, strings.length * 2);
+		}
+		offsets[i] = start;
+		offsets[i + 1] = end;
+		offsets[i + 2] = flags;
+		count++;
+	}
+
+	/**
+	 * The number of tokens
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * The offset of the token's first character in the line
+	 */
+	public int start(int token) {
+		return offsets[check(token) * SLOTS];
+	}
+
+	/**
+	 * The offset after the token's last character in the line
+	 */
+	public int end(int token) {
+		return offsets[check(token) * SLOTS + 1];
+	}
+
+	/**
+	 * The token's flags
+	 *
+	 * @see #ESCAPED
+	 * @see #QUOTED
+	 */
+	public int flags(int token) {
+		return offsets[check(token) * SLOTS + 2];
+	}
+
+	/**
+	 * Returns true if the line ends within quotes
+	 */
+	public boolean isIncomplete() {
+		return quoting1 || quoting2;
+	}
+
+	/**
+	 * Enables removing of quotes around tokens, it's on by default
+	 */
+	public void setUnquoting(boolean unquoting) {
+		Arrays.fill(strings, 0, count, null);
+		this.unquoting = unquoting;
+	}
+
+	/**
+	 * The tokenized line, including appended ones
+	 */
+	public String getLine() {
+		return line.toString();
+	}
+
+	/**
+	 * Checks the raw token is equal to the given string ignoring case,
+	 * without materializing the token
+	 */
+	public boolean equalsIgnoreCase(int token, String s) {
+		int start = start(token);
+		int len = end(token) - start;
+		if (len != s.length())
+			return false;
+		for (int i = 0; i < len; i++) {
+			char c1 = line.charAt(start + i), c2 = s.charAt(i);
+			if (c1 != c2 && Character.toLowerCase(Character.toUpperCase(c1)) 
+					!= Character.toLowerCase(Character.toUpperCase(c2)))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the token unescaped and unquoted. The string is created
+	 * on the first call only.
+	 *
+	 * @param token
+	 * 			- an index of the token
+	 *
+	 * @return a string of the token
+	 */
+	public String get(int token) {
+		String s = strings[check(token)];
+		if (s == null)
+			strings[token] = s = materialize(token);
+		return s;
+	}
+
+	/**
+	 * Returns all tokens as strings
+	 */
+	public String[] toArray() {
+		if (count == 0)
+			return NO_TOKENS;
+
+		String[] array = new String[count];
+		for (int i = 0; i < count; i++)
+			array[i] = get(i);
+		return array;
+	}
+
+	private String materialize(int token) {
+		int i = token * SLOTS;
+		int start = offsets[i], end = offsets[i + 1], flags = offsets[i + 2];
+
+		if ((flags & ESCAPED) == 0) {
+			if (unquoting && (flags & QUOTED) != 0 && end - start > 1 
+					&& line.charAt(end - 1) == line.charAt(start))
+				return line.subSequence(start + 1, end - 1).toString();
+			return line.subSequence(start, end).toString();
+		}
+
+		char[] buffer = new char[end - start];
+		int len = 0;
+		for (int j = start; j < end; j++) {
+			char c = line.charAt(j);
+			if (c == '\\' && j + 1 < end)
+				c = line.charAt(++j);
+			buffer[len++] = c;
+		}
+
+		if (unquoting && len > 1 && (buffer[0] == '\'' || buffer[0] == '"') && buffer[len - 1] == buffer[0])
+			return new String(buffer, 1, len - 2);
+		return new String(buffer, 0, len);
+	}
+
+	private int check(int token) {
+		if (token < 0 || token >= count)
+			throw new IndexOutOfBoundsException("Token: " + token + ", size: " + count);
+		return token;
+	}
+}
@@ -7,6 +7,8 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.Arrays;
+
 import org.box.metadata.cli.exception.InvalidConfigurationException;
 import org.box.metadata.cli.exception.ParseException;
 import org.box.metadata.cli.impl.MetaCommandLineParser;
@@ -27,12 +29,21 @@ public class CommandLineParserTest {
 	
 	@Test
 	public void noCommandTest() {
+		noCommandTest(ParserType.GNU_PARSER);
+	}
+
+	@Test
+	public void nativeNoCommandTest() {
+		noCommandTest(ParserType.NATIVE);
+	}
+
+	private void noCommandTest(ParserType parserType) {
 
 		String[] args = new String[] { "-k1", "-key2", "-kv1=test",
 				"infile.txt", "outfile.txt", "keyword1" };
 		try {
 			
-			DummyConfiguration cfg = MetaCli.parse(DummyConfiguration.class, args);
+			DummyConfiguration cfg = MetaCli.parse(DummyConfiguration.class, args, parserType);
 
 			assertTrue(cfg.key1);
 			assertTrue(cfg.isKey2());
@@ -51,12 +62,21 @@ public class CommandLineParserTest {
 
 	@Test
 	public void commandsTest() {
+		commandsTest(ParserType.GNU_PARSER);
+	}
+
+	@Test
+	public void nativeCommandsTest() {
+		commandsTest(ParserType.NATIVE);
+	}
+
+	private void commandsTest(ParserType parserType) {
 
 		try {
 			String[] args = new String[] { "create", "-k2", "-eof", "file.txt" };
 
 			DummyConfigurationCommands cfg = MetaCli.parse(
-					DummyConfigurationCommands.class, args, ParserType.GNU_PARSER);
+					DummyConfigurationCommands.class, args, parserType);
 
 			assertTrue(cfg.create.key2);
 			assertTrue(cfg.exitOnFinifh);
@@ -70,12 +90,21 @@ public class CommandLineParserTest {
 
 	@Test
 	public void enumOptionTest() {
+		enumOptionTest(ParserType.GNU_PARSER);
+	}
+
+	@Test
+	public void nativeEnumOptionTest() {
+		enumOptionTest(ParserType.NATIVE);
+	}
+
+	private void enumOptionTest(ParserType parserType) {
 		// success
 		try {
 			String[] args = new String[] { "-kv1=value1"};
 
 			DummyConfigurationEnum cfg = MetaCli.parse(
-					DummyConfigurationEnum.class, args);
+					DummyConfigurationEnum.class, args, parserType);
 
 			assertNotNull(cfg.keyValue1);
 			assertEquals(DummyConfigurationEnum.OptionEnum.value1, cfg.keyValue1);
@@ -88,11 +117,58 @@ public class CommandLineParserTest {
 		try {
 			String[] args = new String[] { "-kv1=value3"};
 
-			MetaCli.parse(DummyConfigurationEnum.class, args);
+			MetaCli.parse(DummyConfigurationEnum.class, args, parserType);
 
 			fail("No validation exeption");
 		} catch (ParseException e) {
 		}
 
 	}
+
+	@Test
+	public void nativeSyntaxTest() throws ParseException {
+		String[] args = new String[] { "--key1", "-kv1", "test", "--", 
+				"-infile.txt", "-" };
+
+		DummyConfiguration cfg = MetaCli.parse(DummyConfiguration.class, 
+				args, ParserType.NATIVE);
+
+		assertTrue(cfg.key1);
+		assertEquals("test", cfg.keyValue1);
+		assertEquals("-infile.txt", cfg.infile);
+		assertEquals("-", cfg.oufile);
+	}
+
+	@Test
+	public void nativeFailureTest() {
+		String[][] failures = new String[][] {
+				{ "-unknown", "infile.txt" },	// unrecognized option
+				{ "infile.txt", "-kv1" },		// missing option's value
+				{ "-kv1", "-k1", "infile.txt" },// option instead of value
+				{ "-k1" }						// required argument
+		};
+
+		for (String[] args : failures) {
+			try {
+				MetaCli.parse(DummyConfiguration.class, args, ParserType.NATIVE);
+				fail("No parse exception for: " + Arrays.toString(args));
+			} catch (ParseException e) {
+			}
+		}
+	}
+
+	@Test
+	public void repeatedOptionTest() throws ParseException {
+		String[] args = new String[] { "-kv1", "first", "--keyValue1=second", 
+				"-kv1", "third", "infile.txt" };
+
+		DummyConfiguration gnu = MetaCli.parse(DummyConfiguration.class, 
+				args, ParserType.GNU_PARSER);
+		DummyConfiguration nat = MetaCli.parse(DummyConfiguration.class, 
+				args, ParserType.NATIVE);
+
+		assertEquals("first", gnu.keyValue1);
+		assertEquals(gnu.keyValue1, nat.keyValue1);
+		assertEquals(gnu.infile, nat.infile);
+	}
 }
@@ -0,0 +1,145 @@
+package org.box.metadata.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.box.metadata.cli.exception.ParseException;
+import org.box.metadata.cli.impl.DefaultConfigurationModel;
+import org.box.metadata.cli.impl.MetaCommandLineParser;
+import org.box.metadata.cli.impl.MetaCommandLineParser.ParserType;
+import org.junit.Test;
+
+/**
+ * Stress tests of a single {@link MetaCommandLineParser} instance shared 
+ * by many threads.
+ * 
+ * @see MetaCommandLineParser
+ * 
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ * 
+ */
+public class ConcurrentParserTest {
+
+	private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+	
+	private static final int ITERATIONS = 20000;
+
+	@Test
+	public void sharedParserTest() throws Throwable {
+		sharedParserTest(ParserType.GNU_PARSER);
+		sharedParserTest(ParserType.POSIX_PARSER);
+		sharedParserTest(ParserType.NATIVE);
+	}
+
+	private void sharedParserTest(ParserType parserType) throws Throwable {
+		final MetaCommandLineParser<DummyConfiguration> parser = 
+				new MetaCommandLineParser<>(DummyConfiguration.class, parserType);
+
+		runConcurrently(new Worker() {
+			@Override
+			public void run(int thread, int i) throws ParseException {
+				String value = thread + ":" + i;
+				boolean key = (i & 1) == 0;
+				String[] args = key 
+						? new String[] { "-k1", "-kv1", value, "in" + value }
+						: new String[] { "-kv1", value, "in" + value, "out" + value };
+
+				DummyConfiguration cfg = parser.parse(args);
+
+				assertEquals(key, cfg.key1);
+				assertEquals(value, cfg.keyValue1);
+				assertEquals("in" + value, cfg.infile);
+				assertEquals(key ? null : "out" + value, cfg.oufile);
+			}
+		}, null);
+	}
+
+	@Test
+	public void modelModificationTest() throws Throwable {
+		final DefaultConfigurationModel model = 
+				new DefaultConfigurationModel(DummyConfigurationCommands.class);
+		final DefaultConfigurationModel append = 
+				new DefaultConfigurationModel(DummyConfigurationCommands.class);
+
+		final MetaCommandLineParser<DummyConfigurationCommands> parser = 
+				new MetaCommandLineParser<DummyConfigurationCommands>(model, ParserType.GNU_PARSER) {};
+
+		runConcurrently(new Worker() {
+			@Override
+			public void run(int thread, int i) throws ParseException {
+				String file = thread + ":" + i;
+				DummyConfigurationCommands cfg = parser.parse(
+						new String[] { "create", "-k2", file });
+
+				assertTrue(cfg.create.key2);
+				assertEquals(file, cfg.create.infile);
+				assertNull(cfg.delete);
+			}
+		}, new Runnable() {
+			@Override
+			public void run() {
+				model.addCommands(append.getCommands());
+			}
+		});
+	}
+
+	private interface Worker {
+		void run(int thread, int iteration) throws Exception;
+	}
+
+	private static void runConcurrently(final Worker worker, final Runnable writer) throws Throwable {
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(THREADS);
+		final AtomicReference<Throwable> error = new AtomicReference<>();
+		final AtomicBoolean running = new AtomicBoolean(true);
+
+		for (int t = 0; t < THREADS; t++) {
+			final int thread = t;
+			new Thread("parser-" + t) {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						for (int i = 0; i < ITERATIONS && error.get() == null; i++)
+							worker.run(thread, i);
+					} catch (Throwable e) {
+						error.compareAndSet(null, e);
+					} finally {
+						done.countDown();
+					}
+				}
+			}.start();
+		}
+
+		Thread w = null;
+		if (writer != null) {
+			w = new Thread("writer") {
+				@Override
+				public void run() {
+					for (int i = 0; i < 1000 && running.get(); i++) {
+						writer.run();
+						Thread.yield();
+					}
+				}
+			};
+			w.start();
+		}
+
+		start.countDown();
+		done.await();
+		running.set(false);
+		if (w != null)
+			w.join();
+
+		if (error.get() != null) {
+			error.get().printStackTrace();
+			fail(String.valueOf(error.get()));
+		}
+	}
+}
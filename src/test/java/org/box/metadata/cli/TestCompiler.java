@@ -0,0 +1,96 @@
+package org.box.metadata.cli;
+
+import static org.junit.Assert.assertNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles configuration classes from sources at test time by the
+ * system java compiler.
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public final class TestCompiler {
+
+	private TestCompiler() {
+	}
+
+	/**
+	 * Creates a new empty temporary directory
+	 */
+	public static File createTempDir(String prefix) throws IOException {
+		File dir = File.createTempFile(prefix, "");
+		dir.delete();
+		dir.mkdirs();
+		return dir;
+	}
+
+	/**
+	 * Compiles the source against the test class path
+	 *
+	 * @param out
+	 * 			- a directory of the class files
+	 * @param className
+	 * 			- a full name of the class in the source
+	 * @param source
+	 * 			- the source code
+	 * @param options
+	 * 			- additional javac options, e.g. <code>-proc:none</code>
+	 *
+	 * @return messages of the compilation errors
+	 */
+	public static List<String> compile(File out, String className, final String source,
+			String... options) {
+		JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+		assertNotNull("no system java compiler", javac);
+
+		JavaFileObject file = new SimpleJavaFileObject(
+				URI.create("string:///" + className.replace('.', '/') + ".java"), JavaFileObject.Kind.SOURCE) {
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+				return source;
+			}
+		};
+
+		List<String> args = new ArrayList<>(Arrays.asList(
+				"-classpath", System.getProperty("java.class.path"),
+				"-d", out.getPath()));
+		args.addAll(Arrays.asList(options));
+
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		javac.getTask(null, null, diagnostics, args, null, Arrays.asList(file)).call();
+
+		List<String> errors = new ArrayList<>();
+		for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+			if (d.getKind() == Diagnostic.Kind.ERROR)
+				errors.add(d.getMessage(Locale.ENGLISH));
+		}
+		return errors;
+	}
+
+	/**
+	 * Deletes the file or the directory with its content
+	 */
+	public static void delete(File f) {
+		File[] children = f.listFiles();
+		if (children != null) {
+			for (File c : children)
+				delete(c);
+		}
+		f.delete();
+	}
+}
@@ -0,0 +1,92 @@
+package org.box.metadata.cli.bench;
+
+import java.lang.reflect.Field;
+
+import org.box.metadata.cli.annotation.Argument;
+import org.box.metadata.cli.impl.BindingPlan;
+import org.box.metadata.cli.impl.ValueConverter;
+
+/**
+ * Compares value injection through precompiled {@link ValueConverter}s
+ * with the former per-value type dispatch over reflective
+ * <code>Field.set</code>. Not a unit test, run it manually:
+ *
+ * <pre>
+ * java -cp ... org.box.metadata.cli.bench.ConverterBenchmark [iterations]
+ * </pre>
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public class ConverterBenchmark {
+
+	public static class Values {
+
+		@Argument(index = 1, name = "i")
+		public int i;
+
+		@Argument(index = 2, name = "f")
+		public float f;
+
+		@Argument(index = 3, name = "b")
+		public boolean b;
+
+		@Argument(index = 4, name = "s")
+		public String s;
+	}
+
+	private static final String[] ARGS = new String[] { "12345", "1.5", "true", "text" };
+
+	public static void main(String[] args) throws Exception {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+
+		BindingPlan plan = new BindingPlan(Values.class);
+		Field[] fields = new Field[] {
+				Values.class.getField("i"), Values.class.getField("f"),
+				Values.class.getField("b"), Values.class.getField("s") };
+
+		for (int round = 0; round < 3; round++) {
+			report("reflection", reflection(fields, iterations), iterations);
+			report("converters", converters(plan, iterations), iterations);
+		}
+	}
+
+	private static long converters(BindingPlan plan, int iterations) throws Exception {
+		Values v = new Values();
+		long start = System.nanoTime();
+		for (int n = 0; n < iterations; n++)
+			plan.injectArguments(v, ARGS);
+		return System.nanoTime() - start;
+	}
+
+	private static long reflection(Field[] fields, int iterations) throws Exception {
+		Values v = new Values();
+		long start = System.nanoTime();
+		for (int n = 0; n < iterations; n++) {
+			for (int i = 0; i < fields.length; i++)
+				fields[i].set(v, cast(fields[i].getType(), ARGS[i]));
+		}
+		return System.nanoTime() - start;
+	}
+
+	/**
+	 * The type dispatch formerly done by CLIUtil.autoCast on every value
+	 */
+	private static Object cast(Class<?> type, String value) {
+		if (type.isEnum())
+			throw new UnsupportedOperationException();
+		else if (type == int.class || type == Integer.class)
+			return Integer.parseInt(value);
+		else if (type == float.class || type == Float.class)
+			return Float.parseFloat(value);
+		else if (type == boolean.class || type == Boolean.class)
+			return "true".equalsIgnoreCase(value) || "1".equalsIgnoreCase(value);
+		else
+			return value;
+	}
+
+	private static void report(String name, long nanos, int iterations) {
+		System.out.println(String.format("%-20s %,12.0f ops/s", name,
+				iterations * 1e9 / nanos));
+	}
+}
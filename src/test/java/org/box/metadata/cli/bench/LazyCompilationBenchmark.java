@@ -0,0 +1,114 @@
+package org.box.metadata.cli.bench;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.box.metadata.cli.impl.DefaultConfigurationModel;
+import org.box.metadata.cli.impl.MetaCommandLineParser;
+import org.box.metadata.cli.impl.MetaCommandLineParser.ParserType;
+
+/**
+ * Cold start of a configuration of many commands compiled eagerly and
+ * lazily: the model compilation plus parsing of one command. Each run
+ * loads the configuration by a new class loader, so no reflection data
+ * is cached. Not a unit test, run it manually:
+ *
+ * <pre>
+ * java -cp ... org.box.metadata.cli.bench.LazyCompilationBenchmark [commands]
+ * </pre>
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public class LazyCompilationBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int commands = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+
+		File out = File.createTempFile("cli-lazy", "");
+		out.delete();
+		out.mkdirs();
+		compile(out, "gen.Large", source(commands));
+		URL[] classpath = new URL[] { out.toURI().toURL() };
+
+		String[] input = new String[] { "command" + (commands / 2), "-a", "-c", "5", "in.txt" };
+		for (int round = 0; round < 5; round++) {
+			for (boolean lazy : new boolean[] { false, true }) {
+				try (URLClassLoader loader = new URLClassLoader(classpath,
+						LazyCompilationBenchmark.class.getClassLoader())) {
+					Class<?> cfgClass = loader.loadClass("gen.Large");
+
+					long start = System.nanoTime();
+					DefaultConfigurationModel model = new DefaultConfigurationModel(cfgClass, lazy);
+					long compiled = System.nanoTime();
+					new MetaCommandLineParser<Object>(model, ParserType.GNU_PARSER).parse(input);
+					long parsed = System.nanoTime();
+
+					System.out.println(String.format("%-6s compile %8.2f ms, first parse %6.2f ms",
+							lazy ? "lazy" : "eager", (compiled - start) / 1e6, (parsed - compiled) / 1e6));
+				}
+			}
+		}
+		delete(out);
+	}
+
+	private static String source(int commands) {
+		StringBuilder b = new StringBuilder();
+		b.append("package gen;\n");
+		b.append("import org.box.metadata.cli.annotation.*;\n");
+		b.append("@CLIConfiguration(version = \"1\", name = \"large\")\n");
+		b.append("public class Large {\n");
+		for (int o = 0; o < 10; o++) {
+			b.append("	@Option(shortName = \"o").append(o).append("\", fullName = \"option").append(o)
+					.append("\", description = \"option\")\n");
+			b.append("	public boolean o").append(o).append(";\n");
+		}
+		for (int i = 0; i < commands; i++) {
+			b.append("	public static class Cmd").append(i).append(" {\n");
+			b.append("		@Option(shortName = \"a\", fullName = \"all\", description = \"all\")\n");
+			b.append("		public boolean all;\n");
+			b.append("		@Option(shortName = \"c\", fullName = \"count\", hasArguments = true, description = \"count\")\n");
+			b.append("		public int count;\n");
+			b.append("		@Argument(index = 1, name = \"in\")\n");
+			b.append("		public String in;\n");
+			b.append("	}\n");
+			b.append("	@Command(name = \"command").append(i).append("\", description = \"\")\n");
+			b.append("	public Cmd").append(i).append(" c").append(i).append(";\n");
+		}
+		b.append("}\n");
+		return b.toString();
+	}
+
+	private static void compile(File out, String className, final String source) {
+		JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+		JavaFileObject file = new SimpleJavaFileObject(
+				URI.create("string:///" + className.replace('.', '/') + ".java"), JavaFileObject.Kind.SOURCE) {
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+				return source;
+			}
+		};
+
+		if (!javac.getTask(null, null, null, Arrays.asList(
+				"-classpath", System.getProperty("java.class.path"),
+				"-d", out.getPath(), "-proc:none"), null, Arrays.asList(file)).call())
+			throw new IllegalStateException("cannot compile " + className);
+	}
+
+	private static void delete(File f) {
+		File[] children = f.listFiles();
+		if (children != null) {
+			for (File c : children)
+				delete(c);
+		}
+		f.delete();
+	}
+}
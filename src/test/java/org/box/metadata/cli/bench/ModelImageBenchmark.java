@@ -0,0 +1,142 @@
+package org.box.metadata.cli.bench;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.box.metadata.cli.impl.DefaultConfigurationModel;
+import org.box.metadata.cli.impl.MetaCommandLineParser;
+import org.box.metadata.cli.impl.MetaCommandLineParser.ParserType;
+import org.box.metadata.cli.impl.ModelImage;
+import org.box.metadata.cli.util.CLIUtil;
+
+/**
+ * Cold start of a configuration of many commands compiled by
+ * {@link CLIUtil#compileCommandsModel(DefaultConfigurationModel, Class)}
+ * and loaded from a {@link ModelImage}: getting the model plus parsing 
+ * of one command. Each run loads the configuration by a new class loader, 
+ * so no reflection data is cached. Each run is a new JVM. Not a unit test, 
+ * run it manually:
+ *
+ * <pre>
+ * java -cp ... org.box.metadata.cli.bench.ModelImageBenchmark [commands]
+ * </pre>
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public class ModelImageBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length == 3) {
+			run(new File(args[0]), Integer.parseInt(args[1]), Boolean.parseBoolean(args[2]));
+			return;
+		}
+		int commands = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+
+		File out = File.createTempFile("cli-image", "");
+		out.delete();
+		out.mkdirs();
+		compile(out, "gen.Large", source(commands));
+		try (URLClassLoader loader = new URLClassLoader(new URL[] { out.toURI().toURL() },
+				ModelImageBenchmark.class.getClassLoader())) {
+			ModelImage.load(new File(out, "large.img"), loader.loadClass("gen.Large"));
+		}
+
+		// each run is a new JVM, as an application starts
+		String java = new File(System.getProperty("java.home"), "bin/java").getPath();
+		for (int round = 0; round < 5; round++) {
+			for (boolean image : new boolean[] { false, true }) {
+				Process p = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+						ModelImageBenchmark.class.getName(), out.getPath(), 
+						String.valueOf(commands), String.valueOf(image)).inheritIO().start();
+				p.waitFor();
+			}
+		}
+		delete(out);
+	}
+
+	private static void run(File out, int commands, boolean image) throws Exception {
+		File file = new File(out, "large.img");
+		String[] input = new String[] { "command" + (commands / 2), "-a", "-c", "5", "in.txt" };
+		try (URLClassLoader loader = new URLClassLoader(new URL[] { out.toURI().toURL() },
+				ModelImageBenchmark.class.getClassLoader())) {
+			Class<?> cfgClass = loader.loadClass("gen.Large");
+
+			long start = System.nanoTime();
+			DefaultConfigurationModel model;
+			if (image) {
+				model = ModelImage.read(file, false, cfgClass);
+			} else {
+				model = new DefaultConfigurationModel();
+				CLIUtil.compileCommandsModel(model, cfgClass);
+			}
+			long loaded = System.nanoTime();
+			new MetaCommandLineParser<Object>(model, ParserType.GNU_PARSER).parse(input);
+			long parsed = System.nanoTime();
+
+			System.out.println(String.format("%-7s model %8.2f ms, first parse %6.2f ms, image %d bytes",
+					image ? "image" : "compile", (loaded - start) / 1e6, (parsed - loaded) / 1e6, 
+					file.length()));
+		}
+	}
+
+	private static String source(int commands) {
+		StringBuilder b = new StringBuilder();
+		b.append("package gen;\n");
+		b.append("import org.box.metadata.cli.annotation.*;\n");
+		b.append("@CLIConfiguration(version = \"1\", name = \"large\")\n");
+		b.append("public class Large {\n");
+		for (int o = 0; o < 10; o++) {
+			b.append("	@Option(shortName = \"o").append(o).append("\", fullName = \"option").append(o)
+					.append("\", description = \"option\")\n");
+			b.append("	public boolean o").append(o).append(";\n");
+		}
+		for (int i = 0; i < commands; i++) {
+			b.append("	public static class Cmd").append(i).append(" {\n");
+			b.append("		@Option(shortName = \"a\", fullName = \"all\", description = \"all\")\n");
+			b.append("		public boolean all;\n");
+			b.append("		@Option(shortName = \"c\", fullName = \"count\", hasArguments = true, description = \"count\")\n");
+			b.append("		public int count;\n");
+			b.append("		@Argument(index = 1, name = \"in\")\n");
+			b.append("		public String in;\n");
+			b.append("	}\n");
+			b.append("	@Command(name = \"command").append(i).append("\", description = \"\")\n");
+			b.append("	public Cmd").append(i).append(" c").append(i).append(";\n");
+		}
+		b.append("}\n");
+		return b.toString();
+	}
+
+	private static void compile(File out, String className, final String source) {
+		JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+		JavaFileObject file = new SimpleJavaFileObject(
+				URI.create("string:///" + className.replace('.', '/') + ".java"), JavaFileObject.Kind.SOURCE) {
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+				return source;
+			}
+		};
+
+		if (!javac.getTask(null, null, null, Arrays.asList(
+				"-classpath", System.getProperty("java.class.path"),
+				"-d", out.getPath(), "-proc:none"), null, Arrays.asList(file)).call())
+			throw new IllegalStateException("cannot compile " + className);
+	}
+
+	private static void delete(File f) {
+		File[] children = f.listFiles();
+		if (children != null) {
+			for (File c : children)
+				delete(c);
+		}
+		f.delete();
+	}
+}
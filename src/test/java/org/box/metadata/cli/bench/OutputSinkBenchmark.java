@@ -0,0 +1,59 @@
+package org.box.metadata.cli.bench;
+
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+
+import org.box.metadata.cli.shell.impl.output.AsyncSink;
+import org.box.metadata.cli.shell.impl.output.BufferedSink;
+import org.box.metadata.cli.shell.impl.output.OutputSink;
+import org.box.metadata.cli.shell.impl.output.StreamSink;
+
+/**
+ * Compares the output sinks on a listing of many small entries, like 
+ * <code>ls</code> of a large folder does by <code>appendMessageNoBr</code>.
+ * The output goes to an unbuffered <code>/dev/null</code> stream, so each 
+ * write is a system call as for a terminal. Not a unit test, run it manually:
+ *
+ * <pre>
+ * java -cp ... org.box.metadata.cli.bench.OutputSinkBenchmark [entries]
+ * </pre>
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public class OutputSinkBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int entries = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+
+		PrintStream out = new PrintStream(new FileOutputStream("/dev/null"), false);
+
+		for (int round = 0; round < 3; round++) {
+			list("stream", new StreamSink(out), entries);
+			list("buffered", new BufferedSink(out, BufferedSink.DEFAULT_SIZE,
+					BufferedSink.DEFAULT_DELAY), entries);
+			list("async", new AsyncSink(new BufferedSink(out, BufferedSink.DEFAULT_SIZE,
+					BufferedSink.DEFAULT_DELAY), AsyncSink.DEFAULT_INTERVAL), entries);
+		}
+	}
+
+	/**
+	 * Reports the time the appending thread is busy and the time till 
+	 * the listing is written out
+	 */
+	private static void list(String name, OutputSink sink, int entries) {
+		long start = System.nanoTime();
+		for (int n = 0; n < entries; n++) {
+			sink.append("node-" + n);
+			sink.append("\t");
+		}
+		long append = System.nanoTime() - start;
+		sink.close();
+		report(name, append, System.nanoTime() - start, entries);
+	}
+
+	private static void report(String name, long append, long total, int entries) {
+		System.out.println(String.format("%-12s append %,8.1f ms, total %,8.1f ms for %,d entries",
+				name, append / 1e6, total / 1e6, entries));
+	}
+}
@@ -0,0 +1,63 @@
+package org.box.metadata.cli.bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.PrintStream;
+
+import org.box.metadata.cli.shell.impl.AbstractShell;
+import org.box.metadata.cli.shell.impl.ConsoleShell;
+import org.box.metadata.cli.shell.impl.ParseCache;
+import org.box.metadata.cli.shell.impl.ScriptSummary;
+
+/**
+ * A script repeating a few hundred distinct command lines, run with and 
+ * without {@link AbstractShell#setParseCache(int)}. The output goes to 
+ * <code>/dev/null</code>. Not a unit test, run it manually:
+ *
+ * <pre>
+ * java -cp ... org.box.metadata.cli.bench.ParseCacheBenchmark [lines] [distinct]
+ * </pre>
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public class ParseCacheBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int lines = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int distinct = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+
+		File script = File.createTempFile("bench", ".script");
+		script.deleteOnExit();
+		try (BufferedWriter w = new BufferedWriter(new FileWriter(script))) {
+			for (int i = 0; i < lines; i++)
+				w.append("bench count ").append(String.valueOf(i % distinct)).append('\n');
+		}
+
+		PrintStream origOut = System.out;
+		System.setOut(new PrintStream(new FileOutputStream("/dev/null"), false));
+		try {
+			for (int round = 0; round < 3; round++) {
+				long start = System.nanoTime();
+				ScriptSummary summary = new ConsoleShell(ScriptBenchmark.Bench.class).runScript(script);
+				report(origOut, "parsed", summary.getCommands(), System.nanoTime() - start, null);
+
+				start = System.nanoTime();
+				ConsoleShell shell = new ConsoleShell(ScriptBenchmark.Bench.class);
+				shell.setParseCache(1024);
+				summary = shell.runScript(script);
+				report(origOut, "cached", summary.getCommands(), System.nanoTime() - start, 
+						shell.getParseCache());
+			}
+		} finally {
+			System.setOut(origOut);
+		}
+	}
+
+	private static void report(PrintStream out, String name, int lines, long nanos, ParseCache cache) {
+		out.println(String.format("%-8s %,12.0f lines/s%s", name, lines * 1e9 / nanos,
+				cache != null ? " " + cache : ""));
+	}
+}
@@ -0,0 +1,58 @@
+package org.box.metadata.cli.bench;
+
+import org.box.metadata.cli.DummyConfiguration;
+import org.box.metadata.cli.DummyConfigurationCommands;
+import org.box.metadata.cli.exception.ParseException;
+import org.box.metadata.cli.impl.MetaCommandLineParser;
+import org.box.metadata.cli.impl.MetaCommandLineParser.ParserType;
+
+/**
+ * Throughput comparison of {@link ParserType}s. Not a unit test, run it 
+ * manually:
+ * 
+ * <pre>
+ * java -cp ... org.box.metadata.cli.bench.ParserThroughputBenchmark [iterations]
+ * </pre>
+ * 
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public class ParserThroughputBenchmark {
+
+	private static final String[] ROOT_ARGS = new String[] { "-k1", "-key2", 
+		"-kv1=test", "infile.txt", "outfile.txt", "keyword1" };
+	
+	private static final String[] COMMAND_ARGS = new String[] { "create", 
+		"-k2", "-eof", "file.txt" };
+
+	public static void main(String[] args) throws ParseException {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+		for (ParserType type : new ParserType[] { ParserType.GNU_PARSER, ParserType.NATIVE }) {
+			MetaCommandLineParser<DummyConfiguration> root = 
+					new MetaCommandLineParser<>(DummyConfiguration.class, type);
+			MetaCommandLineParser<DummyConfigurationCommands> commands = 
+					new MetaCommandLineParser<>(DummyConfigurationCommands.class, type);
+
+			// warm up
+			run(root, ROOT_ARGS, iterations / 10);
+			run(commands, COMMAND_ARGS, iterations / 10);
+
+			report(type + " root", run(root, ROOT_ARGS, iterations), iterations);
+			report(type + " command", run(commands, COMMAND_ARGS, iterations), iterations);
+		}
+	}
+
+	private static long run(MetaCommandLineParser<?> parser, String[] args, 
+			int iterations) throws ParseException {
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++)
+			parser.parse(args);
+		return System.nanoTime() - start;
+	}
+
+	private static void report(String name, long nanos, int iterations) {
+		System.out.println(String.format("%-20s %,12.0f ops/s", name, 
+				iterations * 1e9 / nanos));
+	}
+}
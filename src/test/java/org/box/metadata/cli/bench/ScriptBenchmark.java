@@ -0,0 +1,104 @@
+package org.box.metadata.cli.bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+
+import org.box.metadata.cli.annotation.Argument;
+import org.box.metadata.cli.annotation.CLIConfiguration;
+import org.box.metadata.cli.annotation.Command;
+import org.box.metadata.cli.shell.CommandHandler;
+import org.box.metadata.cli.shell.Shell;
+import org.box.metadata.cli.shell.impl.AbstractShell;
+import org.box.metadata.cli.shell.impl.ConsoleShell;
+import org.box.metadata.cli.shell.impl.ScriptSummary;
+import org.box.metadata.cli.shell.impl.input.LineReader;
+
+/**
+ * Lines per second of a generated script run by 
+ * {@link AbstractShell#runScript(File)}, with commands parsed ahead by
+ * {@link AbstractShell#setParseAhead(int)}, and piped into the interactive 
+ * main loop of {@link ConsoleShell}. The output goes to <code>/dev/null</code>.
+ * Not a unit test, run it manually:
+ *
+ * <pre>
+ * java -cp ... org.box.metadata.cli.bench.ScriptBenchmark [lines]
+ * </pre>
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public class ScriptBenchmark {
+
+	public static class Args {
+		@Argument(index = 1, name = "n")
+		public int n;
+	}
+
+	public static class Count implements CommandHandler<Object> {
+
+		static long sum;
+
+		@Override
+		public void validate(Object cfg, Shell shell) {
+		}
+
+		@Override
+		public void process(Object cfg, Shell shell) {
+			sum += ((Bench) cfg).count.n;
+		}
+	}
+
+	@CLIConfiguration(version = "1", name = "bench")
+	public static class Bench {
+		@Command(name = "count", description = "", handlers = Count.class)
+		public Args count;
+	}
+
+	public static void main(String[] args) throws Exception {
+		int lines = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+		File script = File.createTempFile("bench", ".script");
+		script.deleteOnExit();
+		try (BufferedWriter w = new BufferedWriter(new FileWriter(script))) {
+			for (int i = 0; i < lines; i++)
+				w.append("bench count ").append(String.valueOf(i)).append('\n');
+			w.append("exit\n");
+		}
+
+		PrintStream origOut = System.out;
+		System.setOut(new PrintStream(new FileOutputStream("/dev/null"), false));
+		try {
+			for (int round = 0; round < 3; round++) {
+				long start = System.nanoTime();
+				ScriptSummary summary = new ConsoleShell(Bench.class).runScript(script);
+				report(origOut, "script", summary.getCommands(), System.nanoTime() - start);
+
+				start = System.nanoTime();
+				ConsoleShell shell = new ConsoleShell(Bench.class);
+				shell.setParseAhead(1024);
+				summary = shell.runScript(script);
+				report(origOut, "parse-ahead", summary.getCommands(), System.nanoTime() - start);
+
+				start = System.nanoTime();
+				try (FileInputStream in = new FileInputStream(script)) {
+					shell = new ConsoleShell(Bench.class);
+					shell.setInput(new LineReader(Channels.newChannel(in)));
+					shell.run(new String[0]);
+				}
+				report(origOut, "interactive", lines + 1, System.nanoTime() - start);
+			}
+		} finally {
+			System.setOut(origOut);
+		}
+	}
+
+	private static void report(PrintStream out, String name, int lines, long nanos) {
+		out.println(String.format("%-12s %,12.0f lines/s (%,d lines in %,d ms)", name,
+				lines * 1e9 / nanos, lines, nanos / 1000000));
+	}
+}
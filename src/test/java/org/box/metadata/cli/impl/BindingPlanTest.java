@@ -0,0 +1,75 @@
+package org.box.metadata.cli.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.box.metadata.cli.DummyConfiguration;
+import org.box.metadata.cli.DummyConfigurationCommands;
+import org.box.metadata.cli.exception.ParseException;
+import org.box.metadata.cli.impl.BindingPlan.Kind;
+import org.box.metadata.cli.impl.MetaCommandLineParser.ParserType;
+import org.junit.Test;
+
+/**
+ * {@link BindingPlan} compilation and execution tests.
+ * 
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ * 
+ */
+public class BindingPlanTest {
+
+	@Test
+	public void compileTest() {
+		BindingPlan plan = new BindingPlan(DummyConfiguration.class);
+
+		assertEquals(3, plan.getOptions().size());
+		assertEquals(3, plan.getArguments().size());
+		assertEquals(Kind.FLAG, plan.getOptions().get(0).getKind());
+		assertEquals(Kind.OPTION, plan.getOptions().get(2).getKind());
+		assertEquals("kv1", plan.getOptions().get(2).getShortName());
+	}
+
+	@Test
+	public void reuseTest() throws ParseException {
+		MetaCommandLineParser<DummyConfiguration> parser = 
+				new MetaCommandLineParser<>(DummyConfiguration.class);
+
+		for (int i = 0; i < 100; i++) {
+			DummyConfiguration cfg = parser.parse(new String[] { "-k2", 
+					"-kv1=v" + i, "in" + i });
+
+			assertTrue(cfg.isKey2()); // private field
+			assertEquals("v" + i, cfg.keyValue1);
+			assertEquals("in" + i, cfg.infile);
+		}
+	}
+
+	@Test
+	public void commandTest() throws ParseException {
+		MetaCommandLineParser<DummyConfigurationCommands> parser = 
+				new MetaCommandLineParser<>(DummyConfigurationCommands.class);
+		
+		DummyConfigurationCommands cfg = parser.parse(new String[] { "delete", "-eof", "f.txt" });
+		assertTrue(cfg.exitOnFinifh);
+		assertEquals("f.txt", cfg.delete.infile);
+		assertEquals(null, cfg.create);
+	}
+
+	@Test
+	public void noRootPlanTest() throws ParseException {
+		ConfigurationModel model = new DefaultConfigurationModel(DummyConfigurationCommands.class) {
+			@Override
+			public BindingPlan getRootBindingPlan() {
+				return null;
+			}
+		};
+
+		for (ParserType type : new ParserType[] {ParserType.GNU_PARSER, ParserType.NATIVE}) {
+			MetaCommandLineParser<DummyConfigurationCommands> parser = 
+					new MetaCommandLineParser<>(model, type);
+
+			DummyConfigurationCommands cfg = parser.parse(new String[] { "-eof" });
+			assertTrue(type.name(), cfg.exitOnFinifh);
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package org.box.metadata.cli.impl;
+
+import static org.box.metadata.cli.impl.TestCommands.args;
+import static org.box.metadata.cli.impl.TestCommands.command;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * {@link CommandIndex} tests.
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public class CommandIndexTest {
+
+	@Test
+	public void longestMatchTest() {
+		DefaultConfigurationModel model = new DefaultConfigurationModel();
+		CommandCompile create = command("create");
+		CommandCompile createDb = command("create db");
+		CommandCompile createDbIndex = command("create  db index");
+		model.addCommand(createDbIndex);
+		model.addCommand(create);
+		model.addCommand(createDb);
+
+		assertSame(create, model.findCommandForInput(args("create")));
+		assertSame(create, model.findCommandForInput(args("create table t1")));
+		assertSame(createDb, model.findCommandForInput(args("create db")));
+		assertSame(createDb, model.findCommandForInput(args("create db -f index")));
+		assertSame(createDbIndex, model.findCommandForInput(args("create db index i1")));
+		assertNull(model.findCommandForInput(args("drop db")));
+		assertNull(model.findCommandForInput(new String[0]));
+	}
+
+	@Test
+	public void caseInsensitiveTest() {
+		DefaultConfigurationModel model = new DefaultConfigurationModel();
+		CommandCompile first = command("Show Status");
+		model.addCommand(first);
+		model.addCommand(command("show status"));
+
+		assertSame(first, model.findCommandForInput(args("SHOW status -v")));
+		assertSame(first, model.findCommandForInput(args("show STATUS")));
+	}
+
+	@Test
+	public void modificationTest() {
+		DefaultConfigurationModel model = new DefaultConfigurationModel();
+		CommandCompile a = command("a");
+		model.addCommand(a);
+		assertSame(a, model.findCommandForInput(args("a b")));
+
+		CommandCompile ab = command("a b");
+		model.addCommand(ab);
+		assertSame(ab, model.findCommandForInput(args("a b")));
+
+		model.clearCommands();
+		assertNull(model.findCommandForInput(args("a b")));
+	}
+}
@@ -0,0 +1,124 @@
+package org.box.metadata.cli.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.box.metadata.cli.TestCompiler;
+import org.junit.Test;
+
+/**
+ * {@link LayeredOptions} tests.
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public class LayeredOptionsTest {
+
+	private static final int COMMANDS = 800;
+
+	private static final int ROOT_OPTIONS = 60;
+
+	@Test
+	public void layerTest() {
+		Options root = new Options();
+		Option verbose = new Option("v", "verbose", false, "verbose");
+		Option size = new Option("s", "size", true, "size");
+		root.addOption(verbose);
+		root.addOption(size);
+		root.addOption(new Option("x", "extra", false, "extra"));
+
+		LayeredOptions options = new LayeredOptions(root);
+		Option sort = new Option("s", "sort", false, "sort");
+		Option sorted = new Option("o", "sorted", false, "sorted");
+		options.addOption(sort);
+		options.addOption(sorted);
+
+		assertSame(verbose, options.getOption("verbose"));
+		assertSame(sort, options.getOption("s"));
+		assertSame(size, options.getOption("size"));
+		assertTrue(options.hasOption("-x"));
+		assertTrue(options.hasLongOption("extra"));
+		assertFalse(options.hasShortOption("y"));
+
+		assertEquals(Arrays.asList("sort"), options.getMatchingOptions("--sort"));
+		assertEquals(Arrays.asList("size"), options.getMatchingOptions("size"));
+		assertEquals(new HashSet<>(Arrays.asList("sort", "sorted", "size")),
+				new HashSet<>(options.getMatchingOptions("s")));
+
+		// the overridden root option is hidden
+		assertEquals(4, options.getOptions().size());
+		assertFalse(options.getOptions().contains(size));
+		assertEquals(3, root.getOptions().size());
+		assertEquals(Collections.emptyList(), options.getRequiredOptions());
+	}
+
+	@Test
+	public void footprintTest() throws Exception {
+		File out = TestCompiler.createTempDir("cli-footprint");
+		URLClassLoader loader = null;
+		try {
+			assertTrue(TestCompiler.compile(out, "gen.Large", largeConfig(), "-proc:none").isEmpty());
+			loader = new URLClassLoader(new URL[] {out.toURI().toURL()}, getClass().getClassLoader());
+			Class<?> large = loader.loadClass("gen.Large");
+
+			DefaultConfigurationModel model = new DefaultConfigurationModel(large);
+			Options root = model.getRootCLIOptions();
+
+			IdentityHashMap<Option, Boolean> distinct = new IdentityHashMap<>();
+			for (CommandCompile cc : model.getCommands()) {
+				// a command keeps its own options only, the root ones are shared
+				LayeredOptions options = (LayeredOptions) cc.getCLIOptions();
+				assertSame(root, options.getBase());
+				assertEquals(1, options.getOwnOptions().size());
+				assertSame(root.getOption("o0"), options.getOption("o0"));
+
+				for (Option o : options.getOptions())
+					distinct.put(o, Boolean.TRUE);
+			}
+
+			assertEquals(COMMANDS, model.getCommands().size());
+			assertEquals(ROOT_OPTIONS, root.getOptions().size());
+			assertEquals(ROOT_OPTIONS + 1, model.getCommands().get(0).getCLIOptions().getOptions().size());
+			assertEquals("root options are shared", ROOT_OPTIONS + COMMANDS, distinct.size());
+		} finally {
+			if (loader != null)
+				loader.close();
+			TestCompiler.delete(out);
+		}
+	}
+
+	private static String largeConfig() {
+		StringBuilder b = new StringBuilder();
+		b.append("package gen;\n");
+		b.append("import org.box.metadata.cli.annotation.*;\n");
+		b.append("@CLIConfiguration(version = \"1\", name = \"large\")\n");
+		b.append("public class Large {\n");
+		b.append("	public static class Cmd {\n");
+		b.append("		@Option(shortName = \"q\", fullName = \"quiet\", description = \"quiet\")\n");
+		b.append("		public boolean quiet;\n");
+		b.append("	}\n");
+		for (int o = 0; o < ROOT_OPTIONS; o++) {
+			b.append("	@Option(shortName = \"o").append(o).append("\", fullName = \"option").append(o)
+					.append("\", description = \"option ").append(o).append("\")\n");
+			b.append("	public boolean o").append(o).append(";\n");
+		}
+		for (int i = 0; i < COMMANDS; i++) {
+			b.append("	@Command(name = \"command").append(i).append("\", description = \"\")\n");
+			b.append("	public Cmd c").append(i).append(";\n");
+		}
+		b.append("}\n");
+		return b.toString();
+	}
+}
@@ -0,0 +1,91 @@
+package org.box.metadata.cli.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.box.metadata.cli.annotation.Argument;
+import org.box.metadata.cli.annotation.CLIConfiguration;
+import org.box.metadata.cli.annotation.Command;
+import org.box.metadata.cli.annotation.Option;
+import org.box.metadata.cli.exception.InvalidConfigurationException;
+import org.box.metadata.cli.impl.MetaCommandLineParser.ParserType;
+import org.box.metadata.cli.shell.impl.ShellCommandsModel;
+import org.junit.Test;
+
+/**
+ * Tests of the lazy compilation of commands.
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public class LazyCompilationTest {
+
+	@CLIConfiguration(version = "1", name = "app")
+	public static class Lazy {
+
+		public static class Good {
+			@Option(shortName = "f", fullName = "force", description = "force")
+			public boolean force;
+
+			@Argument(index = 1, name = "file")
+			public String file;
+		}
+
+		public static class Bad {
+			@Option(shortName = "x", fullName = "xx", description = "not a flag")
+			public int x;
+		}
+
+		@Command(name = "good", description = "good")
+		public Good good;
+
+		@Command(name = "bad", description = "bad")
+		public Bad bad;
+
+		@Option(shortName = "v", fullName = "verbose", description = "verbose")
+		public boolean verbose;
+	}
+
+	@Test
+	public void lazyTest() throws Exception {
+		try {
+			new DefaultConfigurationModel(Lazy.class);
+			fail("an eager model reports the bad command");
+		} catch (InvalidConfigurationException e) {
+		}
+
+		DefaultConfigurationModel model = new DefaultConfigurationModel(Lazy.class, true);
+		CommandCompile good = model.getCommands().get(0);
+		CommandCompile bad = model.getCommands().get(1);
+		assertFalse(good.isCompiled());
+		assertFalse(bad.isCompiled());
+
+		for (ParserType type : new ParserType[] {ParserType.GNU_PARSER, ParserType.NATIVE}) {
+			Lazy cfg = new MetaCommandLineParser<Lazy>(model, type)
+					.parse(new String[] {"good", "-f", "-v", "a.txt"});
+			assertTrue(cfg.verbose);
+			assertTrue(cfg.good.force);
+			assertEquals("a.txt", cfg.good.file);
+		}
+		assertTrue(good.isCompiled());
+		assertFalse(bad.isCompiled());
+		assertTrue(good.getCLIOptions().hasOption("verbose"));
+
+		try {
+			bad.getCLIOptions();
+			fail();
+		} catch (InvalidConfigurationException e) {
+		}
+	}
+
+	@Test
+	public void shellTest() {
+		ShellCommandsModel model = new ShellCommandsModel(true, Lazy.class);
+		CommandCompile good = model.findCommandForInput(new String[] {"app", "good"});
+		assertFalse(good.isCompiled());
+		assertEquals(1, good.getArguments().length);
+		assertTrue(good.isCompiled());
+	}
+}
@@ -0,0 +1,70 @@
+package org.box.metadata.cli.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.box.metadata.cli.DummyConfiguration;
+import org.box.metadata.cli.DummyConfigurationCommands;
+import org.box.metadata.cli.shell.impl.DefaultConsoleConfiguration;
+import org.box.metadata.cli.shell.impl.ShellCommandsModel;
+import org.junit.Test;
+
+/**
+ * {@link ModelCache} tests.
+ * 
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ * 
+ */
+public class ModelCacheTest {
+
+	@Test
+	public void cacheTest() {
+		DefaultConfigurationModel model = ModelCache.getModel(DummyConfiguration.class);
+
+		assertTrue(model.isSealed());
+		assertSame(model, ModelCache.getModel(DummyConfiguration.class));
+
+		ModelCache.evict(DummyConfiguration.class);
+		assertNotSame(model, ModelCache.getModel(DummyConfiguration.class));
+	}
+
+	@Test
+	public void preloadTest() {
+		ModelCache.evict(DummyConfigurationCommands.class);
+		ModelCache.preloadShell(DummyConfigurationCommands.class);
+
+		ShellCommandsModel model = ModelCache.getShellModel(DummyConfigurationCommands.class);
+		assertSame(model, ModelCache.getShellModel(DummyConfigurationCommands.class));
+		assertNotSame(model, ModelCache.getModel(DummyConfigurationCommands.class));
+	}
+
+	@Test
+	public void mergeTest() {
+		ShellCommandsModel model = ModelCache.getShellModel(
+				DummyConfigurationCommands.class, DefaultConsoleConfiguration.class);
+		
+		ShellCommandsModel compiled = new ShellCommandsModel(
+				DummyConfigurationCommands.class, DefaultConsoleConfiguration.class);
+
+		assertEquals(compiled.getCommands().size(), model.getCommands().size());
+		for (int i = 0; i < compiled.getCommands().size(); i++)
+			assertEquals(compiled.getCommands().get(i).getFullAndShortName(), 
+					model.getCommands().get(i).getFullAndShortName());
+		assertSame(compiled.getRootArgumentsSyntax(), model.getRootArgumentsSyntax());
+		assertNotSame(model, ModelCache.getShellModel(
+				DummyConfigurationCommands.class, DefaultConsoleConfiguration.class));
+	}
+
+	@Test
+	public void sealedTest() {
+		DefaultConfigurationModel model = ModelCache.getModel(DummyConfigurationCommands.class);
+		try {
+			model.addCommands(model.getCommands());
+			fail("sealed model is modified");
+		} catch (UnsupportedOperationException e) {
+		}
+	}
+}
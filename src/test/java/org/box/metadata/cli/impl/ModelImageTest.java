@@ -0,0 +1,198 @@
+package org.box.metadata.cli.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.cli.Option;
+import org.box.metadata.cli.DummyConfiguration;
+import org.box.metadata.cli.DummyConfigurationCommands;
+import org.box.metadata.cli.TestCompiler;
+import org.box.metadata.cli.impl.MetaCommandLineParser.ParserType;
+import org.box.metadata.cli.shell.impl.DefaultConsoleConfiguration;
+import org.box.metadata.cli.shell.impl.ShellCommandCompile;
+import org.box.metadata.cli.shell.impl.ShellCommandsModel;
+import org.box.metadata.cli.shell.impl.ShellTestCfgs2;
+import org.junit.Test;
+
+/**
+ * {@link ModelImage} tests.
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public class ModelImageTest {
+
+	@Test
+	public void roundTripTest() throws Exception {
+		File file = File.createTempFile("cli-model", ".img");
+		try {
+			DefaultConfigurationModel compiled = new DefaultConfigurationModel(DummyConfigurationCommands.class);
+			ModelImage.write(compiled, file, DummyConfigurationCommands.class);
+
+			DefaultConfigurationModel loaded = ModelImage.read(file, false, DummyConfigurationCommands.class);
+			assertNotNull(loaded);
+			assertNull("not a shell image", ModelImage.read(file, true, DummyConfigurationCommands.class));
+			assertNull("other classes", ModelImage.read(file, false, DummyConfiguration.class));
+
+			assertModelEquals(compiled, loaded);
+			CommandCompile create = loaded.getCommands().get(0);
+			assertSame(loaded.getRootCLIOptions(), ((LayeredOptions) create.getCLIOptions()).getBase());
+			assertSame(loaded.getRootBindingPlan(), create.getCfgBinding());
+
+			for (ParserType type : new ParserType[] {ParserType.GNU_PARSER, ParserType.NATIVE}) {
+				DummyConfigurationCommands cfg = new MetaCommandLineParser<DummyConfigurationCommands>(loaded, type)
+						.parse(new String[] {"create", "-k2", "-h", "a.txt"});
+				assertTrue(cfg.help);
+				assertTrue(cfg.create.key2);
+				assertEquals("a.txt", cfg.create.infile);
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void shellTest() throws Exception {
+		File file = File.createTempFile("cli-shell", ".img");
+		file.delete();
+		try {
+			Class<?>[] classes = new Class<?>[] {DummyConfigurationCommands.class,
+					DefaultConsoleConfiguration.class, ShellTestCfgs2.class};
+			ShellCommandsModel compiled = ModelImage.loadShell(file, classes);
+			assertTrue(file.isFile());
+
+			ShellCommandsModel loaded = ModelImage.loadShell(file, classes);
+			assertModelEquals(compiled, loaded);
+			for (int i = 0; i < compiled.getCommands().size(); i++) {
+				ShellCommandCompile c = (ShellCommandCompile) compiled.getCommands().get(i);
+				ShellCommandCompile l = (ShellCommandCompile) loaded.getCommands().get(i);
+				assertEquals(c.getAppName(), l.getAppName());
+				assertSame(c.getCfgClass(), l.getCfgClass());
+			}
+			assertEquals(compiled.findCommandForInput(new String[] {"dummy", "create"}).getOrig().name(),
+					loaded.findCommandForInput(new String[] {"dummy", "create"}).getOrig().name());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void staleTest() throws Exception {
+		File dir = TestCompiler.createTempDir("cli-image");
+		File file = new File(dir, "app.img");
+		try {
+			assertTrue(TestCompiler.compile(dir, "gen.App", source("verbose"), "-proc:none").isEmpty());
+			try (URLClassLoader loader = new URLClassLoader(new URL[] {dir.toURI().toURL()},
+					getClass().getClassLoader())) {
+				Class<?> app = loader.loadClass("gen.App");
+				ModelImage.load(file, app);
+				assertNotNull(ModelImage.read(file, false, app));
+			}
+
+			// the class is changed, so the image is stale
+			assertTrue(TestCompiler.compile(dir, "gen.App", source("quiet"), "-proc:none").isEmpty());
+			try (URLClassLoader loader = new URLClassLoader(new URL[] {dir.toURI().toURL()},
+					getClass().getClassLoader())) {
+				Class<?> app = loader.loadClass("gen.App");
+				assertNull(ModelImage.read(file, false, app));
+
+				DefaultConfigurationModel model = ModelImage.load(file, app);
+				assertTrue(model.getRootCLIOptions().hasLongOption("quiet"));
+				DefaultConfigurationModel loaded = ModelImage.read(file, false, app);
+				assertNotNull(loaded);
+				assertTrue(loaded.getCommands().get(0).getCLIOptions().hasLongOption("quiet"));
+			}
+		} finally {
+			TestCompiler.delete(dir);
+		}
+	}
+
+	@Test
+	public void corruptedTest() throws Exception {
+		File file = File.createTempFile("cli-corrupted", ".img");
+		try {
+			ModelImage.write(new DefaultConfigurationModel(DummyConfigurationCommands.class), 
+					file, DummyConfigurationCommands.class);
+			byte[] image = Files.readAllBytes(file.toPath());
+			assertNotNull(ModelImage.decode(ByteBuffer.wrap(image), false, DummyConfigurationCommands.class));
+
+			for (int i = 0; i < image.length; i++) {
+				// a truncated image
+				assertNull("truncated at " + i, ModelImage.decode(ByteBuffer.wrap(image, 0, i).slice(), 
+						false, DummyConfigurationCommands.class));
+
+				// a huge or negative length, a wrong index and so on
+				byte[] corrupted = image.clone();
+				corrupted[i] = (byte) 0xff;
+				ModelImage.decode(ByteBuffer.wrap(corrupted), false, DummyConfigurationCommands.class);
+			}
+
+			// the corrupted image is compiled and written again
+			Files.write(file.toPath(), Arrays.copyOf(image, image.length / 2));
+			assertNull(ModelImage.read(file, false, DummyConfigurationCommands.class));
+			DefaultConfigurationModel model = ModelImage.load(file, DummyConfigurationCommands.class);
+			assertEquals(2, model.getCommands().size());
+			assertTrue(Arrays.equals(image, Files.readAllBytes(file.toPath())));
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static void assertModelEquals(ConfigurationModel expected, ConfigurationModel actual) {
+		assertEquals(names(expected.getRootCLIOptions().getOptions()),
+				names(actual.getRootCLIOptions().getOptions()));
+		assertArrayEquals(expected.getRootArguments(), actual.getRootArguments());
+		assertEquals(expected.getRootArgumentsSyntax(), actual.getRootArgumentsSyntax());
+		assertSame(expected.getRootBindingPlan().getType(), actual.getRootBindingPlan().getType());
+
+		List<CommandCompile> e = expected.getCommands();
+		List<CommandCompile> a = actual.getCommands();
+		assertEquals(e.size(), a.size());
+		for (int i = 0; i < e.size(); i++) {
+			assertEquals(e.get(i).getOrig(), a.get(i).getOrig());
+			assertEquals(e.get(i).getFullAndShortName(), a.get(i).getFullAndShortName());
+			assertEquals(names(e.get(i).getCLIOptions().getOptions()),
+					names(a.get(i).getCLIOptions().getOptions()));
+			assertArrayEquals(e.get(i).getArguments(), a.get(i).getArguments());
+			assertEquals(e.get(i).getArgumentsSyntax(), a.get(i).getArgumentsSyntax());
+			assertEquals(e.get(i).getCommandBinding().toString(), a.get(i).getCommandBinding().toString());
+			assertEquals(e.get(i).getFeild(), a.get(i).getFeild());
+		}
+	}
+
+	private static String names(java.util.Collection<Option> options) {
+		StringBuilder b = new StringBuilder();
+		for (Option o : options)
+			b.append(o.getOpt()).append('/').append(o.getLongOpt()).append('/')
+					.append(o.hasArg()).append('/').append(o.getDescription()).append(' ');
+		return b.toString();
+	}
+
+	private static String source(String option) {
+		return "package gen;\n"
+				+ "import org.box.metadata.cli.annotation.*;\n"
+				+ "@CLIConfiguration(version = \"1\", name = \"app\")\n"
+				+ "public class App {\n"
+				+ "	public static class Cmd {\n"
+				+ "		@Argument(index = 1, name = \"in\")\n"
+				+ "		public String in;\n"
+				+ "	}\n"
+				+ "	@Option(shortName = \"o\", fullName = \"" + option + "\", description = \"\")\n"
+				+ "	public boolean o;\n"
+				+ "	@Command(name = \"run\", description = \"\")\n"
+				+ "	public Cmd run;\n"
+				+ "}\n";
+	}
+}
@@ -0,0 +1,81 @@
+package org.box.metadata.cli.impl;
+
+import static org.box.metadata.cli.impl.TestCommands.args;
+import static org.box.metadata.cli.impl.TestCommands.command;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.commons.cli.Options;
+import org.junit.Test;
+
+/**
+ * {@link ModelSnapshot} tests.
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public class ModelSnapshotTest {
+
+	@Test
+	public void deriveTest() {
+		CommandCompile create = command("create");
+		CommandCompile createDb = command("create db");
+		CommandCompile drop = command("drop");
+
+		ModelSnapshot s1 = ModelSnapshot.EMPTY.withCommands(Arrays.asList(create, drop));
+		assertSame(create, s1.findCommandForInput(args("create db")));
+
+		ModelSnapshot s2 = s1.withCommand(createDb);
+		assertSame(createDb, s2.findCommandForInput(args("create db")));
+		assertSame(drop, s2.findCommandForInput(args("drop")));
+		assertEquals(Arrays.asList(create, drop, createDb), s2.getCommands());
+
+		// the origin is unchanged
+		assertSame(create, s1.findCommandForInput(args("create db")));
+		assertEquals(Arrays.asList(create, drop), s1.getCommands());
+
+		ModelSnapshot s3 = s2.withoutCommands(Collections.singleton(create));
+		assertNull(s3.findCommandForInput(args("create")));
+		assertSame(createDb, s3.findCommandForInput(args("create db")));
+		assertEquals(Arrays.asList(drop, createDb), s3.getCommands());
+		assertSame(create, s2.findCommandForInput(args("create")));
+
+		assertSame(s3, s3.withoutCommands(Collections.singleton(create)));
+		assertEquals(0, s3.withoutCommands().getCommands().size());
+		assertNull(ModelSnapshot.EMPTY.findCommandForInput(args("create")));
+	}
+
+	@Test
+	public void firstAddedTest() {
+		CommandCompile first = command("Show Status");
+		ModelSnapshot s = ModelSnapshot.EMPTY.withCommand(first);
+		s.findCommandForInput(args("show"));
+
+		s = s.withCommand(command("show status"));
+		assertSame(first, s.findCommandForInput(args("SHOW status")));
+	}
+
+	@Test
+	public void modelTest() {
+		Options options = new Options();
+		DefaultConfigurationModel model = new DefaultConfigurationModel();
+		model.setRootCLIOptions(options);
+		model.addCommand(command("a"));
+
+		ModelSnapshot before = model.snapshot();
+		DefaultConfigurationModel copy = new DefaultConfigurationModel(model);
+		assertSame(before, copy.snapshot());
+
+		model.addCommand(command("b"));
+		model.clearCommands();
+		assertSame(options, model.getRootCLIOptions());
+		assertEquals(0, model.getCommands().size());
+		assertEquals(1, copy.getCommands().size());
+		assertEquals(1, before.getCommands().size());
+		assertSame(before, ModelSnapshot.of(copy));
+	}
+}
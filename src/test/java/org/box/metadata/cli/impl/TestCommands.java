@@ -0,0 +1,32 @@
+package org.box.metadata.cli.impl;
+
+import org.box.metadata.cli.annotation.Argument;
+
+/**
+ * Fixtures of the model tests: bare commands without a configuration
+ * class behind them.
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+final class TestCommands {
+
+	private TestCommands() {
+	}
+
+	/**
+	 * Splits the line into the command line arguments
+	 */
+	static String[] args(String line) {
+		return line.split(" ");
+	}
+
+	/**
+	 * Creates a command with the given name and no options or arguments
+	 */
+	static CommandCompile command(String name) {
+		return new CommandCompile(
+				Annotations.command(name, name, Annotations.handlers()),
+				null, null, new Argument[0], null, null, null, null);
+	}
+}
@@ -0,0 +1,107 @@
+package org.box.metadata.cli.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.box.metadata.cli.annotation.Argument;
+import org.box.metadata.cli.exception.ParseException;
+import org.junit.Test;
+
+/**
+ * {@link ValueConverter} tests.
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public class ValueConverterTest {
+
+	public enum Level {
+		LOW, HIGH
+	}
+
+	public static class Values {
+
+		@Argument(index = 1, name = "b")
+		public byte b;
+
+		@Argument(index = 2, name = "s")
+		public short s;
+
+		@Argument(index = 3, name = "i")
+		public int i;
+
+		@Argument(index = 4, name = "l")
+		public long l;
+
+		@Argument(index = 5, name = "f")
+		public float f;
+
+		@Argument(index = 6, name = "d")
+		public double d;
+
+		@Argument(index = 7, name = "bool")
+		public boolean bool;
+
+		@Argument(index = 8, name = "boxed")
+		public Long boxed;
+
+		@Argument(index = 9, name = "level")
+		public Level level;
+	}
+
+	@Test
+	public void primitiveTest() throws ParseException {
+		Values v = new Values();
+		new BindingPlan(Values.class).injectArguments(v, new String[] {
+				"-8", "300", "70000", "5000000000", "1.5", "2.25", "1", "-7", "high"});
+
+		assertEquals(-8, v.b);
+		assertEquals(300, v.s);
+		assertEquals(70000, v.i);
+		assertEquals(5000000000L, v.l);
+		assertEquals(1.5, v.f, 0);
+		assertEquals(2.25, v.d, 0);
+		assertTrue(v.bool);
+		assertEquals(Long.valueOf(-7), v.boxed);
+		assertEquals(Level.HIGH, v.level);
+	}
+
+	@Test
+	public void supportedTest() throws ParseException {
+		for (Class<?> c : new Class<?>[] {String.class, byte.class, Short.class,
+				long.class, Double.class, boolean.class, Level.class})
+			assertTrue(c.getName(), ValueConverter.isSupported(c));
+
+		assertFalse(ValueConverter.isSupported(char.class));
+		assertFalse(ValueConverter.isSupported(Object.class));
+		assertEquals("x", ValueConverter.of(Object.class).convert("x", "o", null));
+	}
+
+	@Test
+	public void mismatchTest() {
+		try {
+			ValueConverter.of(byte.class).convert("300", "b", null);
+			fail();
+		} catch (ParseException e) {
+			assertEquals("Option 'b' expected byte value but was: '300'", e.getMessage());
+		}
+
+		try {
+			new BindingPlan(Values.class).injectArguments(new Values(),
+					new String[] {"1", "1", "1", "1L"});
+			fail();
+		} catch (ParseException e) {
+			assertEquals("Argument 'l' expected long value but was: '1L'", e.getMessage());
+		}
+
+		try {
+			ValueConverter.of(Level.class).convert("mid", null, "level");
+			fail();
+		} catch (ParseException e) {
+			assertEquals("Argument 'level' expected one of the: [[LOW, HIGH]] but was: 'mid'",
+					e.getMessage());
+		}
+	}
+}
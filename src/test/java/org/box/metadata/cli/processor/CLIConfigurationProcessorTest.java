@@ -0,0 +1,177 @@
+package org.box.metadata.cli.processor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+
+import org.box.metadata.cli.DummyConfigurationCommands;
+import org.box.metadata.cli.MetaCli;
+import org.box.metadata.cli.TestCompiler;
+import org.box.metadata.cli.annotation.Argument;
+import org.box.metadata.cli.annotation.Command;
+import org.box.metadata.cli.impl.Annotations;
+import org.box.metadata.cli.impl.CommandCompile;
+import org.box.metadata.cli.impl.DefaultConfigurationModel;
+import org.box.metadata.cli.impl.MetaCommandLineParser.ParserType;
+import org.box.metadata.cli.shell.impl.DymmyCreateHandler;
+import org.box.metadata.cli.util.CLIUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link CLIConfigurationProcessor} tests. Sources are compiled by the system
+ * java compiler with the processor and the result is parsed by {@link MetaCli}.
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public class CLIConfigurationProcessorTest {
+
+	private static final String PROCESSOR = CLIConfigurationProcessor.class.getName();
+
+	private static final String APP =
+			"package gen;\n" +
+			"import org.box.metadata.cli.annotation.*;\n" +
+			"@CLIConfiguration(version = \"1\", name = \"app\")\n" +
+			"public class App {\n" +
+			"	public enum Mode { FAST, SLOW }\n" +
+			"	public static class Copy {\n" +
+			"		@Option(shortName = \"f\", fullName = \"force\", description = \"force\")\n" +
+			"		public boolean force;\n" +
+			"		@Option(shortName = \"m\", fullName = \"mode\", hasArguments = true, description = \"mode\")\n" +
+			"		public Mode mode;\n" +
+			"		@Argument(index = 1, name = \"from\", required = true)\n" +
+			"		String from;\n" +
+			"		@Argument(index = 2, name = \"to\")\n" +
+			"		private String to;\n" +
+			"	}\n" +
+			"	@Command(name = \"copy\", description = \"copy \\\"files\\\"\")\n" +
+			"	public Copy copy;\n" +
+			"	@Option(shortName = \"v\", fullName = \"verbose\", description = \"verbose\")\n" +
+			"	boolean verbose;\n" +
+			"	@Option(shortName = \"n\", fullName = \"count\", hasArguments = true, description = \"count\")\n" +
+			"	private int count;\n" +
+			"	@Option(shortName = \"s\", fullName = \"size\", hasArguments = true, description = \"size\")\n" +
+			"	long size;\n" +
+			"	@Option(shortName = \"r\", fullName = \"ratio\", hasArguments = true, description = \"ratio\")\n" +
+			"	public double ratio;\n" +
+			"	@Arguments(syntax = \"[files]\")\n" +
+			"	public String[] files;\n" +
+			"}\n";
+
+	private static final String INVALID =
+			"package gen;\n" +
+			"import org.box.metadata.cli.annotation.*;\n" +
+			"@CLIConfiguration(version = \"1\", name = \"\")\n" +
+			"public class Invalid {\n" +
+			"	public static class Cmd {\n" +
+			"		@Argument(index = 1, name = \"list\")\n" +
+			"		public java.util.List<String> list;\n" +
+			"	}\n" +
+			"	@Command(name = \"\", description = \"default\")\n" +
+			"	public Cmd def;\n" +
+			"	@Command(name = \"Bad!\", description = \"bad\")\n" +
+			"	public Cmd bad;\n" +
+			"	@Option(shortName = \"x\", fullName = \"xx\", description = \"not a flag\")\n" +
+			"	public int x;\n" +
+			"}\n";
+
+	private File out;
+
+	private URLClassLoader loader;
+
+	@Before
+	public void setUp() throws Exception {
+		out = TestCompiler.createTempDir("cli-processor");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (loader != null)
+			loader.close();
+		TestCompiler.delete(out);
+	}
+
+	@Test
+	public void generatedModelTest() throws Exception {
+		assertTrue(TestCompiler.compile(out, "gen.App", APP, "-processor", PROCESSOR).isEmpty());
+		assertTrue(new File(out, "gen/App_CLIModel.class").exists());
+
+		loader = new URLClassLoader(new URL[] {out.toURI().toURL()}, getClass().getClassLoader());
+		Class<?> app = loader.loadClass("gen.App");
+
+		DefaultConfigurationModel model = new DefaultConfigurationModel(app);
+		CommandCompile cmd = model.getCommands().get(0);
+		assertNull("not a generated command", cmd.getFeild());
+		assertEquals("copy \"files\"", cmd.getOrig().description());
+		assertEquals(2, cmd.getArguments().length);
+		assertTrue(cmd.getCLIOptions().hasOption("verbose"));
+		assertTrue(cmd.getCLIOptions().hasOption("mode"));
+
+		for (ParserType type : new ParserType[] {ParserType.GNU_PARSER, ParserType.NATIVE}) {
+			Object cfg = MetaCli.parse(app, new String[] {"copy", "-f", "--mode", "slow", "a", "b"}, type);
+			Object copy = get(cfg, "copy");
+			assertEquals(true, get(copy, "force"));
+			assertEquals("SLOW", String.valueOf(get(copy, "mode")));
+			assertEquals("a", get(copy, "from"));
+			assertEquals("b", get(copy, "to"));
+
+			cfg = MetaCli.parse(app, new String[] {"-v", "-n", "3", "-s", "5000000000", "-r", "0.5", "x", "y"}, type);
+			assertEquals(true, get(cfg, "verbose"));
+			assertEquals(3, get(cfg, "count"));
+			assertEquals(5000000000L, get(cfg, "size"));
+			assertEquals(0.5, get(cfg, "ratio"));
+			assertArrayEquals(new String[] {"x", "y"}, (String[]) get(cfg, "files"));
+			assertNull(get(cfg, "copy"));
+		}
+	}
+
+	@Test
+	public void validationTest() throws Exception {
+		List<String> errors = TestCompiler.compile(out, "gen.Invalid", INVALID, "-processor", PROCESSOR);
+
+		String all = errors.toString();
+		assertEquals(all, 4, errors.size());
+		assertTrue(all, all.contains("@Option Field 'x'"));
+		assertTrue(all, all.contains("@Argument Field 'list'"));
+		assertTrue(all, all.contains("default command"));
+		assertTrue(all, all.contains("inappropriate command format: Bad!"));
+		assertFalse(new File(out, "gen/" + CLIUtil.generatedCompilerName("Invalid") + ".class").exists());
+	}
+
+	@Test
+	public void annotationsTest() throws Exception {
+		Command real = DummyConfigurationCommands.class.getField("create")
+				.getAnnotation(Command.class);
+		Command made = Annotations.command(real.name(), real.description(),
+				Annotations.handlers(DymmyCreateHandler.class));
+
+		assertEquals(made, real);
+		assertEquals(real, made);
+		assertEquals(real.hashCode(), made.hashCode());
+		assertFalse(made.equals(Annotations.command("delete", real.description(),
+				Annotations.handlers(DymmyCreateHandler.class))));
+
+		Argument arg = DummyConfigurationCommands.DummyCommand.class.getField("infile")
+				.getAnnotation(Argument.class);
+		Argument madeArg = Annotations.argument(arg.index(), arg.name(), arg.required());
+
+		assertEquals(madeArg, arg);
+		assertEquals(arg, madeArg);
+		assertEquals(arg.hashCode(), madeArg.hashCode());
+	}
+
+	private static Object get(Object target, String field) throws Exception {
+		java.lang.reflect.Field f = target.getClass().getDeclaredField(field);
+		f.setAccessible(true);
+		return f.get(target);
+	}
+}
@@ -8,6 +8,7 @@ import java.io.PrintStream;
 import org.box.metadata.cli.DummyConfigurationCommands;
 import org.box.metadata.cli.annotation.CLIConfiguration;
 import org.box.metadata.cli.annotation.Command;
+import org.box.metadata.cli.impl.MetaCommandLineParser.ParserType;
 import org.box.metadata.cli.shell.CommandHandler;
 import org.box.metadata.cli.shell.Shell;
 import org.box.metadata.cli.shell.impl.ConsoleShell;
@@ -61,6 +62,23 @@ public class ConsoleShellTest {
 
 	}
 	
+	@Test
+	public void nativeHandlerTest() {
+		
+		ConsoleShell shell = new ConsoleShell(ParserType.NATIVE, DummyConfigurationCommands.class);
+		
+		String[] args = new String[]{"dummy", "create", "-k2", "file.txt"};
+		shell.runAndExit(args);
+		
+		String[] splite = "validation: key = true; file = file.txt\nprocess: key = true; file = file.txt\n".split("\n");
+		String[] splita = assertOut.toString().split("\n");
+		
+		assertEquals(splite.length, splita.length);
+		assertEquals(splite[0].trim(), splita[0].trim());
+		assertEquals(splite[1].trim(), splita[1].trim());
+
+	}
+	
 	@Test
 	public void handlerTest2() {
 
@@ -0,0 +1,181 @@
+package org.box.metadata.cli.shell.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.box.metadata.cli.annotation.CLIConfiguration;
+import org.box.metadata.cli.annotation.Command;
+import org.box.metadata.cli.annotation.HandlerScope;
+import org.box.metadata.cli.annotation.HandlerScope.Scope;
+import org.box.metadata.cli.exception.InvalidConfigurationException;
+import org.box.metadata.cli.shell.CommandHandler;
+import org.box.metadata.cli.shell.Shell;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link HandlerScopes} tests.
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public class HandlerScopesTest {
+
+	static final AtomicInteger created = new AtomicInteger();
+	static final AtomicInteger processed = new AtomicInteger();
+	static final AtomicInteger closed = new AtomicInteger();
+
+	public abstract static class Counting implements CommandHandler<Object>, AutoCloseable {
+
+		Counting() {
+			created.incrementAndGet();
+		}
+
+		@Override
+		public void validate(Object cfg, Shell shell) {
+		}
+
+		@Override
+		public void process(Object cfg, Shell shell) {
+			processed.incrementAndGet();
+		}
+
+		@Override
+		public void close() {
+			closed.incrementAndGet();
+		}
+	}
+
+	public static class PerExecution extends Counting {
+	}
+
+	@HandlerScope(Scope.SHELL)
+	public static class Single extends Counting {
+	}
+
+	@HandlerScope(value = Scope.POOLED, poolSize = 1)
+	public static class Pooled extends Counting {
+	}
+
+	public static class Failing extends Counting {
+
+		@Override
+		public void process(Object cfg, Shell shell) {
+			throw new IllegalArgumentException("process");
+		}
+
+		@Override
+		public void close() {
+			super.close();
+			throw new IllegalStateException("close");
+		}
+	}
+
+	public static class Unconstructible extends Counting {
+
+		public Unconstructible() {
+			throw new IllegalStateException("constructor");
+		}
+	}
+
+	@CLIConfiguration(version = "1", name = "scopes")
+	public static class ScopesCfg {
+		@Command(name = "each", description = "", handlers = PerExecution.class)
+		public Object each;
+
+		@Command(name = "single", description = "", handlers = Single.class)
+		public Object single;
+
+		@Command(name = "failing", description = "", handlers = Failing.class)
+		public Object failing;
+	}
+
+	@Before
+	public void before() {
+		created.set(0);
+		processed.set(0);
+		closed.set(0);
+	}
+
+	@Test
+	public void executionTest() {
+		ConsoleShell shell = new ConsoleShell(ScopesCfg.class);
+		for (int i = 0; i < 3; i++)
+			shell.executeCommand(new String[] {"scopes", "each"});
+		assertEquals(3, processed.get());
+		assertEquals(3, created.get());
+		assertEquals(3, closed.get());
+	}
+
+	@Test
+	public void shellTest() {
+		ConsoleShell shell = new ConsoleShell(ScopesCfg.class);
+		for (int i = 0; i < 3; i++)
+			shell.executeCommand(new String[] {"scopes", "single"});
+		assertEquals(3, processed.get());
+		assertEquals(1, created.get());
+		assertEquals(0, closed.get());
+
+		shell.disposeHandlers();
+		assertEquals(1, closed.get());
+
+		shell.runAndExit(new String[] {"scopes", "single"});
+		assertEquals(2, created.get());
+		assertEquals(2, closed.get());
+	}
+
+	@Test
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	public void pooledTest() throws Exception {
+		HandlerScopes scopes = new HandlerScopes();
+		Class type = Pooled.class;
+
+		CommandHandler<?> a = scopes.acquire(type);
+		CommandHandler<?> b = scopes.acquire(type);
+		assertNotSame(a, b);
+		scopes.release(type, a);
+		scopes.release(type, b);
+		assertEquals("an extra instance is closed", 1, closed.get());
+
+		assertSame(a, scopes.acquire(type));
+		scopes.release(type, a);
+		assertEquals(2, created.get());
+
+		scopes.dispose();
+		assertEquals(2, closed.get());
+		assertNotSame(a, scopes.acquire(type));
+	}
+
+	@Test
+	public void closeFailureTest() throws Exception {
+		ConsoleShell shell = new ConsoleShell(ScopesCfg.class);
+		Command failing = ScopesCfg.class.getField("failing").getAnnotation(Command.class);
+		try {
+			shell.runHandlers(failing, new ScopesCfg());
+			fail("no failure of the handler");
+		} catch (IllegalArgumentException e) {
+			// the failure of the handler is not hidden by the one of closing
+			assertEquals("process", e.getMessage());
+			assertEquals(1, e.getSuppressed().length);
+			assertEquals("close", e.getSuppressed()[0].getMessage());
+		}
+		assertEquals(1, closed.get());
+	}
+
+	@Test
+	public void createFailureTest() {
+		try {
+			new HandlerScopes().acquire(Unconstructible.class);
+			fail("the handler is created");
+		} catch (InvalidConfigurationException e) {
+			// the failure of the constructor is kept
+			assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof IllegalStateException);
+			assertEquals("constructor", e.getCause().getMessage());
+		}
+	}
+}
@@ -0,0 +1,204 @@
+package org.box.metadata.cli.shell.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.box.metadata.cli.annotation.CLIConfiguration;
+import org.box.metadata.cli.annotation.Command;
+import org.box.metadata.cli.shell.CommandHandler;
+import org.box.metadata.cli.shell.CommandHandlerListener;
+import org.box.metadata.cli.shell.Shell;
+import org.box.metadata.cli.shell.exception.TerminatedException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Background jobs of {@link AbstractShell} tests.
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public class JobsTest {
+
+	static volatile CountDownLatch started;
+
+	public static class Block implements CommandHandler<Object> {
+
+		@Override
+		public void validate(Object cfg, Shell shell) {
+		}
+
+		@Override
+		public void process(Object cfg, Shell shell) throws TerminatedException {
+			started.countDown();
+			try {
+				Thread.sleep(60000);
+			} catch (InterruptedException e) {
+				throw new TerminatedException(e);
+			}
+		}
+	}
+
+	public static class Quick implements CommandHandler<Object> {
+
+		@Override
+		public void validate(Object cfg, Shell shell) {
+		}
+
+		@Override
+		public void process(Object cfg, Shell shell) {
+			shell.appendMessage("quick done");
+		}
+	}
+
+	@CLIConfiguration(version = "1", name = "jobcfg")
+	public static class JobCfg {
+		@Command(name = "block", description = "", handlers = Block.class)
+		public Object block;
+
+		@Command(name = "quick", description = "", handlers = Quick.class)
+		public Object quick;
+	}
+
+	private final List<String> events = new CopyOnWriteArrayList<>();
+
+	private PrintStream origOut;
+	private ByteArrayOutputStream out;
+
+	@Before
+	public void before() {
+		origOut = System.out;
+		out = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(out, true));
+		started = new CountDownLatch(1);
+	}
+
+	@After
+	public void after() {
+		System.setOut(origOut);
+	}
+
+	@Test
+	public void killTest() throws Exception {
+		ConsoleShell shell = shell();
+		shell.executeCommand(new String[] {"jobcfg", "block", "&"});
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+
+		Job job = shell.getJobs().get(1);
+		assertEquals(Job.State.RUNNING, job.getState());
+		assertEquals("jobcfg block", job.getCommandLine());
+
+		shell.executeCommand(new String[] {"kill", "1"});
+		assertTrue(job.waitFor(10, TimeUnit.SECONDS));
+		assertEquals(Job.State.KILLED, job.getState());
+		assertTrue(job.getFailure() instanceof TerminatedException);
+
+		List<String> jobEvents = jobEvents();
+		assertEquals(2, jobEvents.size());
+		assertTrue(jobEvents.get(0), jobEvents.get(0).startsWith("start "));
+		assertTrue(jobEvents.get(1), jobEvents.get(1).startsWith("failure "));
+		assertTrue(out.toString(), out.toString().contains("[1] killed: jobcfg block"));
+	}
+
+	@Test
+	public void waitTest() throws Exception {
+		ConsoleShell shell = shell();
+		shell.executeCommand(new String[] {"jobcfg", "quick", "&"});
+		shell.executeCommand(new String[] {"jobcfg", "quick", "&"});
+		shell.executeCommand(new String[] {"wait"});
+
+		for (Job job : shell.getJobs().list())
+			assertEquals(Job.State.DONE, job.getState());
+		assertEquals(4, jobEvents().size());
+
+		shell.executeCommand(new String[] {"jobs"});
+		assertTrue(out.toString().contains("[2] DONE jobcfg quick"));
+		assertTrue("finished jobs are printed once", shell.getJobs().list().isEmpty());
+	}
+
+	@Test
+	public void backgroundWaitTest() throws Exception {
+		ConsoleShell shell = shell();
+		shell.executeCommand(new String[] {"jobcfg", "quick", "&"});
+		// background waits don't wait for themselves or each other
+		shell.executeCommand(new String[] {"wait", "&"});
+		shell.executeCommand(new String[] {"wait", "&"});
+
+		for (Job job : shell.getJobs().list()) {
+			assertTrue(job.toString(), job.waitFor(10, TimeUnit.SECONDS));
+			assertEquals(Job.State.DONE, job.getState());
+		}
+		assertEquals(3, shell.getJobs().list().size());
+	}
+
+	@Test
+	public void finishedCapacityTest() throws Exception {
+		ConsoleShell shell = shell();
+		for (int i = 0; i < Jobs.FINISHED_CAPACITY + 20; i++) {
+			shell.executeCommand(new String[] {"jobcfg", "quick", "&"});
+			shell.executeCommand(new String[] {"wait"});
+		}
+		shell.executeCommand(new String[] {"jobcfg", "quick", "&"});
+		shell.executeCommand(new String[] {"wait"});
+
+		List<Job> jobs = shell.getJobs().list();
+		assertTrue(String.valueOf(jobs.size()), jobs.size() <= Jobs.FINISHED_CAPACITY + 1);
+		assertEquals("the newest are kept", Jobs.FINISHED_CAPACITY + 21, 
+				jobs.get(jobs.size() - 1).getId());
+	}
+
+	@Test
+	public void exitTest() throws Exception {
+		ConsoleShell shell = shell();
+		shell.executeCommand(new String[] {"jobcfg", "block", "&"});
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		Job job = shell.getJobs().get(1);
+
+		shell.stopJobs();
+		assertTrue(job.isDone());
+		assertEquals(Job.State.KILLED, job.getState());
+		assertEquals("start and failure", 2, jobEvents().size());
+		assertTrue(out.toString(), out.toString().contains("[1] killed: jobcfg block"));
+	}
+
+	/**
+	 * The events fired by the job threads
+	 */
+	private List<String> jobEvents() {
+		List<String> jobEvents = new ArrayList<>();
+		for (String e : events)
+			if (e.contains(" shell-job-"))
+				jobEvents.add(e);
+		return jobEvents;
+	}
+
+	private ConsoleShell shell() {
+		ConsoleShell shell = new ConsoleShell(JobCfg.class);
+		shell.addListener(new CommandHandlerListener() {
+			@Override
+			public void onHandlerStart(CommandHandler<?> handler, Command c, Object cfg) {
+				events.add("start " + Thread.currentThread().getName());
+			}
+
+			@Override
+			public void onHandlerSuccess(CommandHandler<?> handler, Command c, Object cfg) {
+				events.add("success " + Thread.currentThread().getName());
+			}
+
+			@Override
+			public void onHandlerFailure(CommandHandler<?> handler, Command c, Object cfg) {
+				events.add("failure " + Thread.currentThread().getName());
+			}
+		});
+		return shell;
+	}
+}
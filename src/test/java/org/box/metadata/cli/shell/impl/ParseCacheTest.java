@@ -0,0 +1,133 @@
+package org.box.metadata.cli.shell.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.box.metadata.cli.annotation.Argument;
+import org.box.metadata.cli.annotation.CLIConfiguration;
+import org.box.metadata.cli.annotation.Command;
+import org.box.metadata.cli.annotation.Option;
+import org.box.metadata.cli.shell.CommandHandler;
+import org.box.metadata.cli.shell.Shell;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link ParseCache} tests.
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public class ParseCacheTest {
+
+	public static class Put {
+		@Option(shortName = "f", fullName = "force", description = "")
+		public boolean force;
+
+		public String[] tags;
+
+		@Argument(index = 1, name = "key", required = true)
+		public String key;
+	}
+
+	/** corrupts the configuration it gets */
+	public static class Corrupt implements CommandHandler<CacheCfg> {
+
+		@Override
+		public void validate(CacheCfg cfg, Shell shell) {
+		}
+
+		@Override
+		public void process(CacheCfg cfg, Shell shell) {
+			seen.add(cfg.put.key);
+			cfg.put.key = "corrupted";
+			cfg.put = null;
+		}
+	}
+
+	@CLIConfiguration(version = "1", name = "cache")
+	public static class CacheCfg {
+		@Command(name = "put", description = "", handlers = Corrupt.class)
+		public Put put;
+	}
+
+	static final List<String> seen = new ArrayList<>();
+
+	private PrintStream origOut;
+
+	@Before
+	public void before() {
+		origOut = System.out;
+		System.setOut(new PrintStream(new ByteArrayOutputStream()));
+		seen.clear();
+	}
+
+	@After
+	public void after() {
+		System.setOut(origOut);
+	}
+
+	@Test
+	public void hitTest() {
+		ConsoleShell shell = new ConsoleShell(CacheCfg.class);
+		shell.setParseCache(16);
+		for (int i = 0; i < 3; i++)
+			assertEquals(CommandStatus.DONE, shell.execute(new String[] {"cache", "put", "a"}));
+		shell.executeCommand(new String[] {"cache", "put", "b"});
+
+		assertEquals("handlers get copies", "[a, a, a, b]", seen.toString());
+		ParseCache cache = shell.getParseCache();
+		assertEquals(2, cache.getHits());
+		assertEquals(2, cache.getMisses());
+		assertEquals(2, cache.getSize());
+	}
+
+	@Test
+	public void evictionTest() {
+		ConsoleShell shell = new ConsoleShell(CacheCfg.class);
+		shell.setParseCache(2);
+		for (String key : new String[] {"a", "b", "a", "c", "b"})
+			shell.executeCommand(new String[] {"cache", "put", key});
+
+		// "b" is the eldest when "c" is added
+		ParseCache cache = shell.getParseCache();
+		assertEquals(1, cache.getHits());
+		assertEquals(4, cache.getMisses());
+		assertEquals(2, cache.getEvictions());
+		assertEquals(2, cache.getSize());
+	}
+
+	@Test
+	public void copyTest() {
+		CacheCfg cfg = new CacheCfg();
+		cfg.put = new Put();
+		cfg.put.key = "k";
+		cfg.put.force = true;
+		cfg.put.tags = new String[] {"x", "y"};
+
+		CacheCfg copy = (CacheCfg) ParseCache.copy(cfg);
+		assertNotSame(cfg, copy);
+		assertNotSame(cfg.put, copy.put);
+		assertSame(cfg.put.key, copy.put.key);
+		assertEquals(true, copy.put.force);
+		assertNotSame(cfg.put.tags, copy.put.tags);
+		assertArrayEquals(cfg.put.tags, copy.put.tags);
+	}
+
+	@Test
+	public void offTest() {
+		ConsoleShell shell = new ConsoleShell(CacheCfg.class);
+		shell.setParseCache(4);
+		shell.setParseCache(0);
+		shell.executeCommand(new String[] {"cache", "put", "a"});
+		assertEquals(null, shell.getParseCache());
+	}
+}
@@ -0,0 +1,172 @@
+package org.box.metadata.cli.shell.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.box.metadata.cli.annotation.CLIConfiguration;
+import org.box.metadata.cli.annotation.Command;
+import org.box.metadata.cli.shell.CommandHandler;
+import org.box.metadata.cli.shell.Shell;
+import org.box.metadata.cli.shell.impl.TestHandlers.Fail;
+import org.box.metadata.cli.shell.impl.TestHandlers.Text;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link AbstractShell#runScript(File)} tests.
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public class ScriptTest {
+
+	public static class Echo implements CommandHandler<ScriptCfg> {
+
+		@Override
+		public void validate(ScriptCfg cfg, Shell shell) {
+		}
+
+		@Override
+		public void process(ScriptCfg cfg, Shell shell) {
+			shell.appendMessage("echo " + cfg.echo.text);
+			executed.add(cfg.echo.text + " by " + cfg.parser);
+		}
+	}
+
+	@CLIConfiguration(version = "1", name = "script")
+	public static class ScriptCfg {
+
+		/** the thread parsed the command */
+		public final String parser = Thread.currentThread().getName();
+		@Command(name = "echo", description = "", handlers = Echo.class)
+		public Text echo;
+
+		@Command(name = "fail", description = "", handlers = Fail.class)
+		public Object fail;
+	}
+
+	static final List<String> executed = new ArrayList<>();
+
+	private PrintStream origOut;
+	private ByteArrayOutputStream out;
+	private File script;
+
+	@Before
+	public void before() throws Exception {
+		origOut = System.out;
+		out = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(out, true));
+		script = File.createTempFile("script", ".txt");
+		executed.clear();
+	}
+
+	@After
+	public void after() {
+		System.setOut(origOut);
+		script.delete();
+	}
+
+	@Test
+	public void summaryTest() throws Exception {
+		write("script echo one\n"
+				+ "\n"
+				+ "  # a comment\n"
+				+ "script echo \"two\r\nlines\"\r\n"
+				+ "script fail\n"
+				+ "unknown\n"
+				+ "script echo three");
+
+		ScriptSummary summary = new ConsoleShell(ScriptCfg.class).runScript(script);
+		assertEquals(3, summary.getCount(CommandStatus.DONE));
+		assertEquals(1, summary.getCount(CommandStatus.FAILED));
+		assertEquals(1, summary.getCount(CommandStatus.NOT_FOUND));
+		assertEquals(2, summary.getSkipped());
+		assertFalse(summary.isSuccessful());
+		assertEquals("{1, 4, 8}", summary.getLines(CommandStatus.DONE).toString());
+		assertEquals("{6}", summary.getLines(CommandStatus.FAILED).toString());
+
+		String s = out.toString();
+		assertTrue(s, s.contains("echo one"));
+		assertTrue(s, s.contains("echo two\nlines"));
+		assertTrue(s, s.contains("echo three"));
+		assertFalse("no prompts", s.contains(">"));
+		assertTrue(s, s.contains("5 commands, 3 done, 1 failed, 1 not found, 2 skipped"));
+		assertTrue(s, s.contains("not found at 7"));
+	}
+
+	@Test
+	public void exitTest() throws Exception {
+		write("script echo one\nexit\nscript echo two\n");
+
+		ScriptSummary summary = new ConsoleShell(ScriptCfg.class).runScript(script);
+		assertEquals(2, summary.getCount(CommandStatus.DONE));
+		assertFalse(out.toString().contains("echo two"));
+	}
+
+	@Test
+	public void parseAheadTest() throws Exception {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 100; i++)
+			text.append("script echo ").append(i).append('\n');
+		text.append("script fail\nunknown\nexit\nscript echo after\n");
+		write(text.toString());
+
+		ConsoleShell shell = new ConsoleShell(ScriptCfg.class);
+		shell.setParseAhead(8);
+		ScriptSummary summary = shell.runScript(script);
+		assertEquals(101, summary.getCount(CommandStatus.DONE));
+		assertEquals("{101}", summary.getLines(CommandStatus.FAILED).toString());
+		assertEquals("{102}", summary.getLines(CommandStatus.NOT_FOUND).toString());
+
+		assertEquals(100, executed.size());
+		for (int i = 0; i < 100; i++)
+			assertTrue(executed.get(i), executed.get(i).startsWith(i + " by shell-parser-"));
+
+		// errors are reported in order
+		String s = out.toString();
+		assertTrue(s, s.indexOf("echo 99") < s.indexOf("fail"));
+		assertTrue(s, s.indexOf("fail") < s.indexOf("'unknown'"));
+		assertFalse("stopped by exit", s.contains("echo after"));
+	}
+
+	@Test
+	public void overrideTest() throws Exception {
+		final List<String> calls = new ArrayList<>();
+		// an override of the void executeCommand still compiles
+		ConsoleShell shell = new ConsoleShell(ScriptCfg.class) {
+			@Override
+			protected void executeCommand(String[] args) {
+				calls.add("executeCommand " + args[2]);
+				super.executeCommand(args);
+			}
+
+			@Override
+			protected CommandStatus execute(String[] args) {
+				calls.add("execute " + args[2]);
+				return super.execute(args);
+			}
+		};
+		shell.runAndExit(new String[] {"script", "echo", "one"});
+		assertEquals("[executeCommand one, execute one]", calls.toString());
+
+		calls.clear();
+		write("script echo two\n");
+		shell.runScript(script);
+		assertEquals("[execute two]", calls.toString());
+	}
+
+	private void write(String text) throws Exception {
+		try (FileOutputStream os = new FileOutputStream(script)) {
+			os.write(text.getBytes("UTF-8"));
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package org.box.metadata.cli.shell.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.box.metadata.cli.DummyConfigurationCommands;
+import org.box.metadata.cli.annotation.CLIConfiguration;
+import org.box.metadata.cli.annotation.Command;
+import org.box.metadata.cli.exception.InvalidConfigurationException;
+import org.box.metadata.cli.impl.CommandCompile;
+import org.junit.Test;
+
+/**
+ * {@link ShellCommandsModel} tests.
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public class ShellCommandsModelTest {
+
+	public static class NotConfiguration {
+	}
+
+	@CLIConfiguration(version = "0", name = "bad")
+	public static class BadCommandName {
+		@Command(name = "Bad!", description = "bad")
+		public DummyConfigurationCommands.DummyCommand bad;
+	}
+
+	@Test
+	public void orderTest() {
+		Class<?>[] classes = new Class<?>[] { DummyConfigurationCommands.class,
+				DefaultConsoleConfiguration.class, ShellTestCfgs2.class };
+
+		for (int i = 0; i < 3; i++) {
+			ShellCommandsModel merged = new ShellCommandsModel(classes);
+
+			List<String> expected = new ArrayList<>();
+			for (Class<?> c : classes)
+				for (CommandCompile cc : new ShellCommandsModel(c).getCommands())
+					expected.add(cc.getFullAndShortName());
+			List<String> names = new ArrayList<>();
+			for (CommandCompile cc : merged.getCommands())
+				names.add(cc.getFullAndShortName());
+
+			assertEquals(expected, names);
+			assertSame(ShellTestCfgs2.class, ((ShellCommandCompile) merged.getCommands()
+					.get(names.size() - 1)).getCfgClass());
+			assertEquals(new ShellCommandsModel(ShellTestCfgs2.class).getRootArgumentsSyntax(),
+					merged.getRootArgumentsSyntax());
+		}
+	}
+
+	@Test
+	public void allInvalidTest() {
+		try {
+			new ShellCommandsModel(DummyConfigurationCommands.class, NotConfiguration.class,
+					DefaultConsoleConfiguration.class, BadCommandName.class);
+			fail();
+		} catch (InvalidConfigurationException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains(NotConfiguration.class.getName()));
+			assertEquals(1, e.getSuppressed().length);
+			assertTrue(e.getSuppressed()[0].getMessage().contains("Bad!"));
+		}
+	}
+
+	@Test
+	public void shellInvalidTest() {
+		// a shell of classes is compiled through the cache
+		try {
+			new ConsoleShell(NotConfiguration.class, DummyConfigurationCommands.class, 
+					BadCommandName.class);
+			fail();
+		} catch (InvalidConfigurationException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains(NotConfiguration.class.getName()));
+			assertEquals(1, e.getSuppressed().length);
+			assertTrue(e.getSuppressed()[0].getMessage().contains("Bad!"));
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package org.box.metadata.cli.shell.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.box.metadata.cli.annotation.CLIConfiguration;
+import org.box.metadata.cli.annotation.Command;
+import org.box.metadata.cli.exception.ParseException;
+import org.box.metadata.cli.impl.ModelCache;
+import org.box.metadata.cli.impl.MetaCommandLineParser.ParserType;
+import org.box.metadata.cli.shell.CommandHandler;
+import org.box.metadata.cli.shell.Shell;
+import org.box.metadata.cli.shell.impl.TestHandlers.Fail;
+import org.box.metadata.cli.shell.impl.TestHandlers.Text;
+import org.box.metadata.cli.shell.impl.CommandResult.Phase;
+import org.box.metadata.cli.shell.impl.output.OutputSink;
+import org.junit.Test;
+
+/**
+ * {@link ShellSession} tests.
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public class ShellSessionTest {
+
+	public static class Greet implements CommandHandler<SessionCfg> {
+
+		@Override
+		public void validate(SessionCfg cfg, Shell shell) {
+		}
+
+		@Override
+		public void process(SessionCfg cfg, Shell shell) {
+			shell.appendMessageNoBr("hello, ");
+			shell.appendMessage(cfg.greet.text);
+			Thread.yield();
+			shell.appendMessage("bye, " + cfg.greet.text);
+		}
+	}
+
+	@CLIConfiguration(version = "1", name = "session")
+	public static class SessionCfg {
+		@Command(name = "greet", description = "", handlers = Greet.class)
+		public Text greet;
+
+		@Command(name = "fail", description = "", handlers = Fail.class)
+		public Object fail;
+	}
+
+	@Test
+	public void executeTest() {
+		try (ShellSession session = new ShellSession(SessionCfg.class)) {
+			CommandResult r = session.execute("session greet \"big world\"");
+			assertEquals(CommandStatus.DONE, r.getStatus());
+			assertTrue(r.isSuccessful());
+			assertEquals("[hello, big world, bye, big world]", r.getMessages().toString());
+			assertNull(r.getFailure());
+			assertTrue(r.getTime(Phase.TOKENIZE) > 0);
+			assertTrue(r.getTime(Phase.PARSE) > 0);
+			assertTrue(r.getTime(Phase.EXECUTE) > 0);
+
+			r = session.execute(new String[] {"session", "fail"});
+			assertEquals(CommandStatus.FAILED, r.getStatus());
+			assertTrue(r.getFailure() instanceof IllegalStateException);
+			assertTrue(r.getOutput(), r.getOutput().contains("fail"));
+
+			r = session.execute("unknown command");
+			assertEquals(CommandStatus.NOT_FOUND, r.getStatus());
+			assertTrue(r.getOutput(), r.getOutput().contains("'unknown'"));
+
+			r = session.execute("session greet --bogus x");
+			assertEquals(CommandStatus.INVALID, r.getStatus());
+			assertTrue(r.getFailure() instanceof ParseException);
+
+			r = session.execute("session greet \"open");
+			assertEquals(CommandStatus.INVALID, r.getStatus());
+			assertEquals(0, r.getTime(Phase.EXECUTE));
+
+			assertEquals(CommandStatus.NOT_FOUND, session.execute("  ").getStatus());
+		}
+	}
+
+	@Test
+	public void runTest() {
+		try (ShellSession session = new ShellSession(SessionCfg.class)) {
+			final StringBuilder output = new StringBuilder();
+			session.setOutput(new OutputSink() {
+				@Override
+				public void append(String text) {
+					output.append(text);
+				}
+
+				@Override
+				public void flush() {
+				}
+
+				@Override
+				public void close() {
+				}
+			});
+			
+			// no user input is read, the shell stays open
+			session.getShell().run(new String[] {"session", "greet", "run"});
+			session.getShell().run(new String[0]);
+			session.getShell().runAndExit(new String[] {"session", "greet", "again"});
+			String nl = System.lineSeparator();
+			assertEquals("hello, run" + nl + "bye, run" + nl + "hello, again" + nl + "bye, again" + nl, 
+					output.toString());
+			
+			assertEquals(CommandStatus.DONE, session.execute("session greet after").getStatus());
+		}
+	}
+
+	@Test
+	public void sharedModelTest() {
+		try (ShellSession a = new ShellSession(SessionCfg.class);
+				ShellSession b = new ShellSession(ParserType.GNU_PARSER, 
+						ModelCache.getShellModel(SessionCfg.class))) {
+			assertSame(a.getModel(), b.getModel());
+		}
+	}
+
+	@Test
+	public void concurrentTest() throws Exception {
+		final ShellSession session = new ShellSession(SessionCfg.class);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<String>> futures = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				final int thread = t;
+				futures.add(executor.submit(new Callable<String>() {
+					@Override
+					public String call() {
+						for (int i = 0; i < 500; i++) {
+							String name = thread + "-" + i;
+							CommandResult r = session.execute(new String[] {"session", "greet", name});
+							List<String> expected = new ArrayList<>();
+							expected.add("hello, " + name);
+							expected.add("bye, " + name);
+							if (r.getStatus() != CommandStatus.DONE || !expected.equals(r.getMessages()))
+								return r.getStatus() + " " + r.getMessages();
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<String> f : futures)
+				assertNull(f.get());
+		} finally {
+			executor.shutdown();
+			session.close();
+		}
+	}
+}
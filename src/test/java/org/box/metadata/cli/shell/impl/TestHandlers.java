@@ -0,0 +1,38 @@
+package org.box.metadata.cli.shell.impl;
+
+import org.box.metadata.cli.annotation.Argument;
+import org.box.metadata.cli.shell.CommandHandler;
+import org.box.metadata.cli.shell.Shell;
+
+/**
+ * Fixtures of the shell tests: a command of a single text argument and 
+ * a handler which always fails.
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+final class TestHandlers {
+
+	private TestHandlers() {
+	}
+
+	public static class Text {
+		@Argument(index = 1, name = "text", required = true)
+		public String text;
+	}
+
+	/**
+	 * Throws {@link IllegalStateException} with the message <code>"fail"</code>
+	 */
+	public static class Fail implements CommandHandler<Object> {
+
+		@Override
+		public void validate(Object cfg, Shell shell) {
+		}
+
+		@Override
+		public void process(Object cfg, Shell shell) {
+			throw new IllegalStateException("fail");
+		}
+	}
+}
@@ -0,0 +1,153 @@
+package org.box.metadata.cli.shell.impl.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+
+import org.box.metadata.cli.DummyConfigurationCommands;
+import org.box.metadata.cli.shell.impl.ConsoleShell;
+import org.junit.Test;
+
+/**
+ * {@link LineReader} tests.
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public class LineReaderTest {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	@Test
+	public void linesTest() throws Exception {
+		// a small buffer splits lines, "\r\n" and a 2-byte char
+		LineReader reader = reader("one\r\ntwo\n\nthr\u00e9e\r\nlast", 3, 2);
+		assertEquals("one", reader.readLine());
+		assertEquals("two", reader.readLine());
+		assertEquals("", reader.readLine());
+		assertEquals("thr\u00e9e", reader.readLine());
+		assertEquals("last", reader.readLine());
+		assertNull(reader.readLine());
+		assertNull("the end is kept", reader.readLine());
+		assertTrue(reader.ready());
+	}
+
+	@Test
+	public void readAheadTest() throws Exception {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 10000; i++)
+			text.append("line ").append(i).append('\n');
+
+		LineReader reader = reader(text.toString(), LineReader.DEFAULT_BUFFER_SIZE, 16);
+		for (int i = 0; i < 10000; i++)
+			assertEquals("line " + i, reader.readLine());
+		assertNull(reader.readLine());
+	}
+
+	@Test
+	public void onDemandTest() throws Exception {
+		ByteArrayInputStream in = new ByteArrayInputStream("a\nb\u00e9\r\nc".getBytes(UTF8));
+		LineReader reader = LineReader.onDemand(Channels.newChannel(in), UTF8);
+		assertEquals("a", reader.readLine());
+		Thread.sleep(100);
+		assertEquals("the rest is left for others", 6, in.available());
+		assertFalse(reader.ready());
+
+		assertEquals("b\u00e9", reader.readLine());
+		assertEquals(1, in.available());
+		assertEquals("c", reader.readLine());
+		assertNull(reader.readLine());
+	}
+
+	@Test
+	public void interruptTest() throws Exception {
+		PipedOutputStream out = new PipedOutputStream();
+		final LineReader reader = new LineReader(Channels.newChannel(new PipedInputStream(out)));
+
+		Thread.currentThread().interrupt();
+		try {
+			reader.readLine();
+			assertTrue("interrupted", false);
+		} catch (InterruptedException e) {
+			// expected
+		}
+
+		out.write("next\n".getBytes());
+		out.flush();
+		assertEquals("next", reader.readLine());
+		assertFalse(reader.ready());
+		out.close();
+	}
+
+	@Test
+	public void shellExitTest() throws Exception {
+		PrintStream origOut = System.out;
+		System.setOut(new PrintStream(new ByteArrayOutputStream()));
+		try {
+			PipedOutputStream out = new PipedOutputStream();
+			final ConsoleShell shell = new ConsoleShell(DummyConfigurationCommands.class);
+			shell.setInput(new LineReader(Channels.newChannel(new PipedInputStream(out))));
+
+			Thread main = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					shell.run(new String[0]);
+				}
+			});
+			main.start();
+			out.write("help\n".getBytes());
+			out.flush();
+			Thread.sleep(100);
+			
+			shell.exit();
+			main.join(5000);
+			assertFalse("the waiting main loop is woken up", main.isAlive());
+
+			// the same for an interruption
+			final ConsoleShell shell2 = new ConsoleShell(DummyConfigurationCommands.class);
+			shell2.setInput(new LineReader(Channels.newChannel(new PipedInputStream(new PipedOutputStream()))));
+			main = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					shell2.run(new String[0]);
+				}
+			});
+			main.start();
+			Thread.sleep(100);
+			main.interrupt();
+			main.join(5000);
+			assertFalse(main.isAlive());
+		} finally {
+			System.setOut(origOut);
+		}
+	}
+
+	@Test
+	public void shellEndOfInputTest() {
+		PrintStream origOut = System.out;
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(bytes));
+		try {
+			ConsoleShell shell = new ConsoleShell(DummyConfigurationCommands.class);
+			shell.setInput(reader("dummy create -k2 file.txt\n", 1024, 16));
+			shell.run(new String[0]);
+			assertTrue(bytes.toString(), bytes.toString().contains("process: key = true; file = file.txt"));
+		} finally {
+			System.setOut(origOut);
+		}
+	}
+
+	private static LineReader reader(String text, int bufferSize, int capacity) {
+		return new LineReader(Channels.newChannel(new ByteArrayInputStream(text.getBytes(UTF8))),
+				UTF8, bufferSize, capacity);
+	}
+}
@@ -0,0 +1,75 @@
+package org.box.metadata.cli.shell.impl.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.Charset;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link MappedLineReader} tests.
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public class MappedLineReaderTest {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private File file;
+
+	@Before
+	public void before() throws Exception {
+		file = File.createTempFile("lines", ".txt");
+	}
+
+	@After
+	public void after() {
+		file.delete();
+	}
+
+	@Test
+	public void windowsTest() throws Exception {
+		// lines cross the 4-byte windows, one is longer than a window
+		write("one\r\ntwo\n\na much longer line\r\nthr\u00e9e\nlast");
+		try (MappedLineReader reader = new MappedLineReader(file, UTF8, 4)) {
+			assertEquals("one", reader.readLine());
+			assertEquals("two", reader.readLine());
+			assertEquals("", reader.readLine());
+			assertEquals("a much longer line", reader.readLine());
+			assertEquals("thr\u00e9e", reader.readLine());
+			assertEquals("last", reader.readLine());
+			assertEquals(6, reader.getLineNumber());
+			assertNull(reader.readLine());
+			assertNull(reader.readLine());
+		}
+	}
+
+	@Test
+	public void emptyTest() throws Exception {
+		try (MappedLineReader reader = new MappedLineReader(file)) {
+			assertNull(reader.readLine());
+		}
+		write("\n");
+		try (MappedLineReader reader = new MappedLineReader(file)) {
+			assertEquals("", reader.readLine());
+			assertNull(reader.readLine());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void charsetTest() throws Exception {
+		new MappedLineReader(file, Charset.forName("UTF-16"), 1024);
+	}
+
+	private void write(String text) throws Exception {
+		try (FileOutputStream os = new FileOutputStream(file)) {
+			os.write(text.getBytes(UTF8));
+		}
+	}
+}
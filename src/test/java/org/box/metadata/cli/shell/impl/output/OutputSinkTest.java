@@ -0,0 +1,118 @@
+package org.box.metadata.cli.shell.impl.output;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.Test;
+
+/**
+ * {@link OutputSink} implementations tests.
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public class OutputSinkTest {
+
+	private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+	private final PrintStream stream = new PrintStream(out, true);
+
+	@Test
+	public void bufferedTest() {
+		BufferedSink sink = new BufferedSink(stream, 8, 60000);
+		sink.append("abc");
+		sink.append("def");
+		assertEquals("", out.toString());
+
+		sink.append("gh");
+		assertEquals("flushed by size", "abcdefgh", out.toString());
+
+		sink.append("i");
+		sink.flush();
+		assertEquals("abcdefghi", out.toString());
+	}
+
+	@Test
+	public void delayTest() throws Exception {
+		BufferedSink sink = new BufferedSink(stream, 1024, 10);
+		sink.append("a");
+		Thread.sleep(50);
+		sink.append("b");
+		assertEquals("flushed by time", "ab", out.toString());
+	}
+
+	@Test
+	public void asyncTest() throws Exception {
+		AsyncSink sink = new AsyncSink(new BufferedSink(stream, 1024, 60000), 60000);
+		for (int i = 0; i < 1000; i++)
+			sink.append(i + ",");
+		sink.flush();
+		String s = out.toString();
+		assertTrue(s.startsWith("0,1,2,"));
+		assertTrue(s.endsWith(",998,999,"));
+
+		sink.append("tail");
+		sink.close();
+		assertTrue(out.toString().endsWith("tail"));
+	}
+
+	@Test
+	public void asyncIntervalTest() throws Exception {
+		AsyncSink sink = new AsyncSink(new BufferedSink(stream, 1024, 60000), 10);
+		sink.append("idle");
+		for (int i = 0; i < 500 && out.size() == 0; i++)
+			Thread.sleep(10);
+		assertEquals("flushed by the writer", "idle", out.toString());
+		sink.close();
+	}
+
+	@Test
+	public void interruptedTest() {
+		AsyncSink sink = new AsyncSink(new BufferedSink(stream, 1024, 60000), 60000);
+		sink.append("killed");
+		Thread.currentThread().interrupt();
+		sink.flush();
+		assertTrue("the interruption is kept", Thread.interrupted());
+		assertEquals("killed", out.toString());
+		sink.close();
+	}
+
+	@Test
+	public void asyncFailureTest() {
+		final RuntimeException broken = new RuntimeException("broken");
+		AsyncSink sink = new AsyncSink(new StreamSink(stream) {
+			@Override
+			public void append(String text) {
+				if ("bad".equals(text))
+					throw broken;
+				super.append(text);
+			}
+		}, 60000);
+
+		sink.append("bad");
+		try {
+			sink.flush();
+			fail("no failure of the sink");
+		} catch (IllegalStateException e) {
+			assertSame(broken, e.getCause());
+		}
+
+		// the writer goes on after the failure
+		sink.append("good");
+		sink.flush();
+		assertEquals("good", out.toString());
+
+		sink.close();
+		try {
+			sink.flush();
+			fail("flushed after close");
+		} catch (IllegalStateException e) {
+		}
+		sink.close();
+	}
+}
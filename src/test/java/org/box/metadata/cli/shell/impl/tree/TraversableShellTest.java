@@ -1,12 +1,17 @@
 package org.box.metadata.cli.shell.impl.tree;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 import org.box.metadata.cli.DummyConfigurationCommands;
+import org.box.metadata.cli.impl.CommandCompile;
 import org.box.metadata.cli.impl.MetaCommandLineParser.ParserType;
 import org.box.metadata.cli.shell.impl.ShellCommandsModel;
 import org.junit.After;
@@ -72,4 +77,104 @@ public class TraversableShellTest {
 
 	}
 
+	/**
+	 * A map model which notifies about changes
+	 */
+	private static class ObservableMapModel extends TraversableTestMapModel 
+			implements ObservableTreeModel {
+
+		final Set<TraversableTreeListener> listeners = new CopyOnWriteArraySet<>();
+		final HashMap<String, Object[]> map;
+		int listed;
+
+		ObservableMapModel(HashMap<String, Object[]> map) {
+			super(map);
+			this.map = map;
+		}
+
+		@Override
+		public Object[] list(String path) {
+			listed++;
+			return super.list(path);
+		}
+
+		void put(String path, Object[] content) {
+			map.put(path, content);
+			for (TraversableTreeListener l : listeners)
+				l.folderChanged(path);
+		}
+
+		@Override
+		public void addTreeListener(TraversableTreeListener listener) {
+			listeners.add(listener);
+		}
+
+		@Override
+		public void removeTreeListener(TraversableTreeListener listener) {
+			listeners.remove(listener);
+		}
+	}
+
+	@Test
+	public void folderCacheTest() {
+		HashMap<String, Object[]> map = new HashMap<>();
+		ShellCommandsModel m1 = new ShellCommandsModel(DummyConfigurationCommands.class);
+		map.put("/", new Object[] { "bin" });
+		map.put("/bin/", new Object[] { m1 });
+
+		ObservableMapModel model = new ObservableMapModel(map);
+		TraversableShell shell = new TraversableShell(
+				ParserType.GNU_PARSER, 
+				new ShellCommandsModel(TraversableShellConfiguration.class), 
+				model);
+		
+		shell.processCommandPath(new String[] { "/bin/dummy" });
+		List<CommandCompile> commands = shell.getModel().getCommands();
+		assertEquals(m1.getCommands(), commands);
+		assertEquals(1, model.listeners.size());
+		
+		shell.processCommandPath(new String[] { "ls" });
+		assertEquals(4, shell.getModel().getCommands().size());
+		
+		// the same folder is not listed again
+		shell.processCommandPath(new String[] { "/bin/dummy" });
+		assertEquals(commands, shell.getModel().getCommands());
+		assertEquals(1, model.listed);
+
+		model.put("/bin/", new Object[] { "file1" });
+		shell.runAndExit(new String[] { "/bin/dummy", "create" });
+		assertEquals(2, model.listed);
+		assertTrue(shell.getModel().getCommands().isEmpty());
+		assertTrue(assertOut.toString().contains("No appropriate command"));
+		
+		// the disposed shell is not referenced by the model
+		assertTrue(model.listeners.isEmpty());
+	}
+
+	@Test
+	public void noFolderCacheTest() {
+		HashMap<String, Object[]> map = new HashMap<>();
+		map.put("/", new Object[] { "bin" });
+		map.put("/bin/", new Object[] { new ShellCommandsModel(DummyConfigurationCommands.class) });
+
+		final int[] listed = new int[1];
+		TraversableTestMapModel model = new TraversableTestMapModel(map) {
+			@Override
+			public Object[] list(String path) {
+				listed[0]++;
+				return super.list(path);
+			}
+		};
+		TraversableShell shell = new TraversableShell(
+				ParserType.GNU_PARSER, 
+				new ShellCommandsModel(TraversableShellConfiguration.class), 
+				model);
+		
+		// the model doesn't report changes, so the folder is listed each time
+		shell.processCommandPath(new String[] { "/bin/dummy" });
+		map.put("/bin/", new Object[] { "file1" });
+		shell.processCommandPath(new String[] { "/bin/dummy" });
+		assertEquals(2, listed[0]);
+		assertTrue(shell.getModel().getCommands().isEmpty());
+	}
 }
@@ -0,0 +1,56 @@
+package org.box.metadata.cli.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.lang.annotation.ElementType;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * {@link EnumTable} tests.
+ *
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ *
+ */
+public class EnumTableTest {
+
+	enum Region {
+		eu_west, EU_WEST, us_east, AP_SOUTH
+	}
+
+	@Test
+	public void lookupTest() {
+		EnumTable table = EnumTable.of(Region.class);
+
+		assertSame(Region.us_east, table.get("US_EAST"));
+		assertSame(Region.AP_SOUTH, table.get("ap_south"));
+		assertSame(Region.eu_west, table.get("Eu_West"));
+		assertSame(Region.eu_west, table.get("EU_WEST"));
+		assertNull(table.get("eu-west"));
+		assertNull(table.get(""));
+		assertNull(table.get(null));
+		assertSame(table, EnumTable.of(Region.class));
+	}
+
+	@Test
+	public void allConstantsTest() {
+		EnumTable table = EnumTable.of(ElementType.class);
+		for (ElementType t : ElementType.values())
+			assertSame(t, table.get(t.name().toLowerCase()));
+
+		assertEquals(Arrays.toString(ElementType.values()), table.getConstants());
+	}
+
+	@Test
+	public void notEnumTest() {
+		try {
+			EnumTable.of(String.class);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+}
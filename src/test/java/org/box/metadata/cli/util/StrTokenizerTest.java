@@ -136,4 +136,27 @@ public class StrTokenizerTest {
 
 
 	}
+
+	@Test
+	public void test4() {
+		// long escaped payloads must not blow the stack
+		StringBuilder sb = new StringBuilder("a ");
+		for (int i = 0; i < 100000; i++)
+			sb.append("\\\\");
+		sb.append("\\ b c");
+		String str = sb.toString();
+
+		StrTokenizer tokenizer = new StrTokenizer(str, ' ');
+		Assert.assertEquals("a", tokenizer.nextTokenUnquoted());
+		String token = tokenizer.nextTokenUnquoted();
+		Assert.assertEquals(100000 + 2, token.length());
+		Assert.assertTrue(token.endsWith("\\ b"));
+		Assert.assertEquals("c", tokenizer.nextTokenUnquoted());
+		Assert.assertNull(tokenizer.nextTokenUnquoted());
+
+		tokenizer = new StrTokenizer(str, ' ');
+		tokenizer.setUnescaping(StrTokenizer.UNESCAPING_OFF);
+		tokenizer.nextToken();
+		Assert.assertEquals(200000 + 3, tokenizer.nextToken().length());
+	}
 }
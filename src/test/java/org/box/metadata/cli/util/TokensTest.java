@@ -0,0 +1,101 @@
+package org.box.metadata.cli.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@link Tokens} tests.
+ * 
+ * @author <a href="mailto:alexander.box@gmail.com">Alexander Korobka</a>
+ * 
+ */
+public class TokensTest {
+
+	@Test
+	public void offsetsTest() {
+		Tokens tokens = new Tokens();
+		String line = " create\t\"a b\"  c\\ d 'e\\'f' ";
+		Assert.assertEquals(4, tokens.tokenize(line));
+
+		Assert.assertEquals(1, tokens.start(0));
+		Assert.assertEquals(7, tokens.end(0));
+		Assert.assertEquals(0, tokens.flags(0));
+		Assert.assertEquals(Tokens.QUOTED, tokens.flags(1));
+		Assert.assertEquals(Tokens.ESCAPED, tokens.flags(2));
+		Assert.assertEquals(Tokens.QUOTED | Tokens.ESCAPED, tokens.flags(3));
+		Assert.assertTrue(tokens.equalsIgnoreCase(0, "CREATE"));
+		Assert.assertFalse(tokens.equalsIgnoreCase(0, "creat"));
+
+		Assert.assertArrayEquals(new String[] { "create", "a b", "c d", "e'f" }, 
+				tokens.toArray());
+		Assert.assertSame(tokens.get(1), tokens.get(1));
+		Assert.assertFalse(tokens.isIncomplete());
+	}
+
+	@Test
+	public void reuseTest() {
+		Tokens tokens = new Tokens();
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 100; i++)
+			sb.append("t").append(i).append(' ');
+
+		Assert.assertEquals(100, tokens.tokenize(sb.toString()));
+		Assert.assertEquals("t99", tokens.get(99));
+
+		Assert.assertEquals(2, tokens.tokenize("x \"y"));
+		Assert.assertEquals("x", tokens.get(0));
+		Assert.assertEquals("\"y", tokens.get(1));
+		Assert.assertTrue(tokens.isIncomplete());
+
+		Assert.assertEquals(0, tokens.tokenize(" \t "));
+		Assert.assertArrayEquals(new String[0], tokens.toArray());
+		try {
+			tokens.get(0);
+			Assert.fail();
+		} catch (IndexOutOfBoundsException e) {
+		}
+	}
+
+	@Test
+	public void appendTest() {
+		Tokens tokens = new Tokens();
+		Assert.assertEquals(3, tokens.tokenize("echo x 'a b"));
+		Assert.assertEquals("x", tokens.get(1));
+		Assert.assertTrue(tokens.isIncomplete());
+
+		Assert.assertEquals(3, tokens.append("c \\\"d"));
+		Assert.assertTrue(tokens.isIncomplete());
+
+		Assert.assertEquals(4, tokens.append("e' f"));
+		Assert.assertFalse(tokens.isIncomplete());
+		Assert.assertArrayEquals(new String[] { "echo", "x", "a b\nc \"d\ne", "f" },
+				tokens.toArray());
+		Assert.assertEquals("echo x 'a b\nc \\\"d\ne' f", tokens.getLine());
+
+		// quotes are kept and an escape goes on over the line end
+		tokens.setUnquoting(false);
+		Assert.assertEquals(1, tokens.tokenize("\"a\\"));
+		Assert.assertEquals(1, tokens.append("b\""));
+		Assert.assertEquals("\"a\nb\"", tokens.get(0));
+		Assert.assertEquals(tokens.getLine().length(), tokens.end(0));
+	}
+
+	@Test
+	public void appendManyTest() {
+		Tokens tokens = new Tokens();
+		tokens.tokenize("paste \"");
+		for (int i = 0; i < 10000; i++)
+			tokens.append("line " + i);
+		tokens.append("\" done");
+
+		Assert.assertEquals(3, tokens.size());
+		Assert.assertTrue(tokens.get(1).endsWith("\nline 9999\n"));
+		Assert.assertEquals("done", tokens.get(2));
+	}
+
+	@Test
+	public void smartSplitTest() {
+		Assert.assertArrayEquals(new String[] { "a", "b c", "d\te" },
+				CLIUtil.smartSplit("a\t'b c' \"d\te\""));
+	}
+}